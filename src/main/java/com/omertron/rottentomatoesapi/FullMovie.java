@@ -0,0 +1,172 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.model.RTCast;
+import com.omertron.rottentomatoesapi.model.RTClip;
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.omertron.rottentomatoesapi.model.Review;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The parts of a movie fetched together, with the outcome of each part
+ *
+ * A part that was not requested, failed or timed out has no value; the lists
+ * for those parts are empty and the movie is null.
+ *
+ * @author Stuart
+ */
+public class FullMovie {
+
+    /**
+     * The outcome of each part
+     */
+    public enum Status {
+        NOT_REQUESTED,
+        OK,
+        FAILED,
+        TIMED_OUT
+    }
+
+    private final int movieId;
+    private final Map<MoviePart, Status> statuses = new EnumMap<MoviePart, Status>(MoviePart.class);
+    private final Map<MoviePart, RottenTomatoesException> failures = new EnumMap<MoviePart, RottenTomatoesException>(MoviePart.class);
+    private RTMovie movie;
+    private List<RTCast> cast = Collections.emptyList();
+    private List<RTClip> clips = Collections.emptyList();
+    private List<Review> reviews = Collections.emptyList();
+    private List<RTMovie> similar = Collections.emptyList();
+
+    FullMovie(int movieId, Set<MoviePart> parts) {
+        this.movieId = movieId;
+        for (MoviePart part : MoviePart.values()) {
+            statuses.put(part, parts.contains(part) ? null : Status.NOT_REQUESTED);
+        }
+    }
+
+    /**
+     * Record a part that was fetched
+     *
+     * @param part
+     * @param value
+     */
+    @SuppressWarnings("unchecked")
+    synchronized void setPart(MoviePart part, Object value) {
+        switch (part) {
+            case INFO:
+                movie = (RTMovie) value;
+                break;
+            case CAST:
+                cast = (List<RTCast>) value;
+                break;
+            case CLIPS:
+                clips = (List<RTClip>) value;
+                break;
+            case REVIEWS:
+                reviews = (List<Review>) value;
+                break;
+            case SIMILAR:
+                similar = (List<RTMovie>) value;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown part " + part);
+        }
+        statuses.put(part, Status.OK);
+    }
+
+    /**
+     * Record a part that could not be fetched
+     *
+     * @param part
+     * @param status FAILED or TIMED_OUT
+     * @param failure
+     */
+    synchronized void setFailure(MoviePart part, Status status, RottenTomatoesException failure) {
+        statuses.put(part, status);
+        failures.put(part, failure);
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    /**
+     * The outcome of a part
+     *
+     * @param part
+     * @return
+     */
+    public synchronized Status getStatus(MoviePart part) {
+        return statuses.get(part);
+    }
+
+    /**
+     * Why a part failed
+     *
+     * @param part
+     * @return the failure, or null if the part did not fail
+     */
+    public synchronized RottenTomatoesException getFailure(MoviePart part) {
+        return failures.get(part);
+    }
+
+    /**
+     * Check that every requested part was fetched
+     *
+     * @return
+     */
+    public synchronized boolean isComplete() {
+        for (Status status : statuses.values()) {
+            if (status != Status.OK && status != Status.NOT_REQUESTED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized RTMovie getMovie() {
+        return movie;
+    }
+
+    public synchronized List<RTCast> getCast() {
+        return cast;
+    }
+
+    public synchronized List<RTClip> getClips() {
+        return clips;
+    }
+
+    public synchronized List<Review> getReviews() {
+        return reviews;
+    }
+
+    public synchronized List<RTMovie> getSimilar() {
+        return similar;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "FullMovie{movieId=" + movieId + ", statuses=" + statuses + "}";
+    }
+}
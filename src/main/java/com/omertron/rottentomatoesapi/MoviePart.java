@@ -0,0 +1,59 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The parts of a movie that can be fetched together with
+ * {@link RottenTomatoesAsyncApi#getFullMovie(int, Set, long, java.util.concurrent.TimeUnit)}
+ *
+ * @author Stuart
+ */
+public enum MoviePart {
+
+    /**
+     * The detailed movie information
+     */
+    INFO,
+    /**
+     * The cast
+     */
+    CAST,
+    /**
+     * The clips
+     */
+    CLIPS,
+    /**
+     * The first page of reviews
+     */
+    REVIEWS,
+    /**
+     * The similar movies
+     */
+    SIMILAR;
+
+    /**
+     * Every part
+     */
+    public static final Set<MoviePart> ALL = Collections.unmodifiableSet(EnumSet.allOf(MoviePart.class));
+}
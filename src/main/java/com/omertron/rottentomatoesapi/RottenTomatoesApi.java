@@ -19,39 +19,61 @@
  */
 package com.omertron.rottentomatoesapi;
 
+import com.omertron.rottentomatoesapi.model.AbstractJsonMapping;
 import com.omertron.rottentomatoesapi.model.RTCast;
 import com.omertron.rottentomatoesapi.model.RTClip;
 import com.omertron.rottentomatoesapi.model.RTMovie;
 import com.omertron.rottentomatoesapi.model.Review;
+import com.omertron.rottentomatoesapi.tools.ApacheTransport;
 import com.omertron.rottentomatoesapi.tools.ApiBuilder;
+import com.omertron.rottentomatoesapi.tools.AsyncHttpTransport;
+import com.omertron.rottentomatoesapi.tools.ConnectionPool;
+import com.omertron.rottentomatoesapi.tools.DiskCache;
+import com.omertron.rottentomatoesapi.tools.HttpTransport;
+import com.omertron.rottentomatoesapi.tools.PageCursor;
+import com.omertron.rottentomatoesapi.tools.PoolStatistics;
+import com.omertron.rottentomatoesapi.tools.RateLimiter;
 import com.omertron.rottentomatoesapi.tools.ResponseBuilder;
+import com.omertron.rottentomatoesapi.tools.ResponseCache;
+import com.omertron.rottentomatoesapi.tools.RetryMetrics;
+import com.omertron.rottentomatoesapi.tools.RetryPolicy;
+import com.omertron.rottentomatoesapi.tools.TransferMetrics;
+import com.omertron.rottentomatoesapi.tools.TransportConfig;
 import com.omertron.rottentomatoesapi.wrapper.WrapperLists;
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.client.HttpClient;
 import org.yamj.api.common.exception.ApiExceptionType;
-import org.yamj.api.common.http.SimpleHttpClientBuilder;
 
 /**
  * Connect to the Rotten Tomatoes web site and get the rating for a specific
  * movie
  *
+ * Each call builds its own request properties, so a single instance can be
+ * shared between threads without any external locking
+ *
+ * Close the API when it is no longer needed to release the connection pool it
+ * created. A HTTP client or transport passed in by the caller is not closed.
+ *
  * @author Stuart.Boston
  *
  */
-public class RottenTomatoesApi {
+public class RottenTomatoesApi implements Closeable {
 
     private static final String ENCODING_UTF8 = "UTF-8";
-    private ResponseBuilder response;
-    /*
-     * Properties map
-     */
-    private final Map<String, String> properties = new HashMap<String, String>();
+    private final ResponseBuilder response;
+    private final ConnectionPool connectionPool;
+    private volatile Executor prefetchExecutor;
 
     /*
      * RTMovie Lists
@@ -94,27 +116,105 @@ public class RottenTomatoesApi {
     /*
      * Defaults
      */
-    private static final int DEFAULT_PAGE = 0;
-    private static final int DEFAULT_PAGE_LIMIT = 0;
-    private static final int DEFAULT_LIMIT = 0;
-    private static final String DEFAULT_COUNTRY = "";
-    private static final String DEFAULT_REVIEW = "";
+    static final int DEFAULT_PAGE = 0;
+    static final int DEFAULT_PAGE_LIMIT = 0;
+    static final int DEFAULT_LIMIT = 0;
+    static final String DEFAULT_COUNTRY = "";
+    static final String DEFAULT_REVIEW = "";
     /*
      * Constants
      */
     private static final int LENGTH_OF_IMDB_PREFIX = 2;
 
+    /**
+     * Create the API with a pool of connections using the default transport
+     * settings
+     *
+     * @param apiKey
+     * @throws RottenTomatoesException
+     */
     public RottenTomatoesApi(String apiKey) throws RottenTomatoesException {
-        this(apiKey, new SimpleHttpClientBuilder().build());
+        this(apiKey, new TransportConfig());
     }
 
+    /**
+     * Create the API with a pool of connections
+     *
+     * @param apiKey
+     * @param transportConfig The connection pool settings
+     * @throws RottenTomatoesException
+     */
+    public RottenTomatoesApi(String apiKey, TransportConfig transportConfig) throws RottenTomatoesException {
+        this(apiKey, new ConnectionPool(transportConfig));
+    }
+
+    /**
+     * Create the API using an existing HTTP client
+     *
+     * @param apiKey
+     * @param httpClient
+     * @throws RottenTomatoesException
+     */
     public RottenTomatoesApi(String apiKey, HttpClient httpClient) throws RottenTomatoesException {
+        this(apiKey, new ApacheTransport(httpClient), null);
+    }
+
+    /**
+     * Create the API using another HTTP transport, such as the JdkTransport
+     *
+     * @param apiKey
+     * @param transport
+     * @throws RottenTomatoesException
+     */
+    public RottenTomatoesApi(String apiKey, HttpTransport transport) throws RottenTomatoesException {
+        this(apiKey, transport, null);
+    }
+
+    private RottenTomatoesApi(String apiKey, ConnectionPool connectionPool) throws RottenTomatoesException {
+        this(apiKey, new ApacheTransport(connectionPool.getHttpClient()), connectionPool);
+    }
+
+    private RottenTomatoesApi(String apiKey, HttpTransport transport, ConnectionPool connectionPool) throws RottenTomatoesException {
         if (StringUtils.isBlank(apiKey)) {
             throw new RottenTomatoesException(ApiExceptionType.AUTH_FAILURE, "No API Key provided!");
         }
 
         ApiBuilder.addApiKey(apiKey);
-        this.response = new ResponseBuilder(httpClient);
+        this.response = new ResponseBuilder(transport);
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * The state of the connection pool
+     *
+     * @return the statistics, or null if the API was given its HTTP client
+     */
+    public PoolStatistics getPoolStatistics() {
+        return connectionPool == null ? null : connectionPool.getStatistics();
+    }
+
+    /**
+     * Close the connection pool if the API created one
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (connectionPool != null) {
+            connectionPool.close();
+        }
+    }
+
+    /**
+     * Set the executor the page cursors use to fetch pages in the background
+     *
+     * Cursors created after this call use the executor. Null uses a shared pool
+     * of daemon threads.
+     *
+     * @param prefetchExecutor
+     */
+    public void setPrefetchExecutor(Executor prefetchExecutor) {
+        this.prefetchExecutor = prefetchExecutor;
     }
 
     /**
@@ -138,6 +238,170 @@ public class RottenTomatoesApi {
         response.setRetryLimit(retryLimit);
     }
 
+    /**
+     * Set the policy used to retry failed calls.
+     *
+     * Calls are retried when the account is over its limit, the server returns
+     * a 5xx error or the connection fails.
+     *
+     * @param retryPolicy
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        response.setRetryPolicy(retryPolicy);
+    }
+
+    /**
+     * Counters for the attempts and retries made by the calls
+     *
+     * @return
+     */
+    public RetryMetrics getRetryMetrics() {
+        return response.getRetryMetrics();
+    }
+
+    /**
+     * Ask the server to compress the responses, on by default
+     *
+     * @param compression
+     */
+    public void setCompression(boolean compression) {
+        response.setCompression(compression);
+    }
+
+    /**
+     * The wire and decoded sizes of the responses read
+     *
+     * @return
+     */
+    public TransferMetrics getTransferMetrics() {
+        return response.getTransferMetrics();
+    }
+
+    /**
+     * Can the transport make calls without holding a thread for each one
+     *
+     * @return true if the transport is an AsyncHttpTransport
+     */
+    public boolean isNonBlocking() {
+        return response.getTransport() instanceof AsyncHttpTransport;
+    }
+
+    /**
+     * Request the wrapper without blocking, used by the asynchronous API
+     *
+     * @param <T>
+     * @param clazz
+     * @param properties
+     * @return
+     */
+    <T extends AbstractJsonMapping> CompletableFuture<T> getResponseAsync(Class<T> clazz, Map<String, String> properties) {
+        return response.getResponseAsync(clazz, properties);
+    }
+
+    /**
+     * Let identical calls made at the same time share one request instead of
+     * each making their own, off by default.
+     *
+     * The shared objects are returned to every caller, so should not be
+     * changed.
+     *
+     * @param coalescing
+     */
+    public void setCoalescing(boolean coalescing) {
+        response.setCoalescing(coalescing);
+    }
+
+    /**
+     * The number of calls that shared the response of an identical call that
+     * was already in progress instead of making their own request
+     *
+     * @return
+     */
+    public long getCoalescedCount() {
+        return response.getCoalescedCount();
+    }
+
+    /**
+     * Pace the calls to the API so they stay within the account's queries per
+     * second limit.
+     *
+     * The limit is shared by all threads using this instance.
+     *
+     * @param queriesPerSecond Number of calls allowed per second, 0 or less to
+     * remove the limit
+     */
+    public void setRateLimit(double queriesPerSecond) {
+        if (queriesPerSecond > 0) {
+            response.setRateLimiter(new RateLimiter(queriesPerSecond));
+        } else {
+            response.setRateLimiter(null);
+        }
+    }
+
+    /**
+     * The rate limiter pacing the calls to the API
+     *
+     * Use this to see how long callers have waited for the limit.
+     *
+     * @return the limiter, or null if there is no limit
+     */
+    public RateLimiter getRateLimiter() {
+        return response.getRateLimiter();
+    }
+
+    /**
+     * Map the responses with generated bytecode rather than reflection
+     *
+     * This speeds up parsing for heavy users, at the cost of generating the
+     * classes the first time each model type is read.
+     *
+     * @param afterburner true to use the Afterburner module
+     */
+    public void setAfterburner(boolean afterburner) {
+        response.setAfterburner(afterburner);
+    }
+
+    /**
+     * Cache the responses from the API in memory.
+     *
+     * Cached objects are shared between callers, so should not be changed.
+     *
+     * @param responseCache the cache to use, or null to not cache responses
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        response.setResponseCache(responseCache);
+    }
+
+    /**
+     * The cache of responses from the API
+     *
+     * @return the cache, or null if responses are not cached
+     */
+    public ResponseCache getResponseCache() {
+        return response.getResponseCache();
+    }
+
+    /**
+     * Set the persistent cache for the raw responses from the API
+     *
+     * Responses in the disk cache survive restarts of the application. The
+     * caller is responsible for closing the cache.
+     *
+     * @param diskCache the cache to use, or null to not persist responses
+     */
+    public void setDiskCache(DiskCache diskCache) {
+        response.setDiskCache(diskCache);
+    }
+
+    /**
+     * The persistent cache of responses from the API
+     *
+     * @return the cache, or null if responses are not persisted
+     */
+    public DiskCache getDiskCache() {
+        return response.getDiskCache();
+    }
+
     /**
      * Displays top box office earning movies, sorted by most recent weekend
      * gross ticket sales.
@@ -148,10 +412,7 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public List<RTMovie> getBoxOffice(String country, int limit) throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_URL, URL_BOX_OFFICE);
-        properties.put(ApiBuilder.PROPERTY_LIMIT, ApiBuilder.validateLimit(limit));
-        properties.put(ApiBuilder.PROPERTY_COUNTRY, ApiBuilder.validateCountry(country));
+        Map<String, String> properties = boxOfficeProperties(country, limit);
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
         if (wrapper != null && wrapper.getMovies() != null) {
@@ -161,6 +422,19 @@ public class RottenTomatoesApi {
         }
     }
 
+    /**
+     * The properties for the top box office movies
+     *
+     * @param country
+     * @param limit
+     * @return
+     */
+    static Map<String, String> boxOfficeProperties(String country, int limit) {
+        Map<String, String> properties = countryProperties(URL_BOX_OFFICE, country);
+        properties.put(ApiBuilder.PROPERTY_LIMIT, ApiBuilder.validateLimit(limit));
+        return properties;
+    }
+
     /**
      * Displays top box office earning movies, sorted by most recent weekend
      * gross ticket sales.
@@ -194,11 +468,7 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public List<RTMovie> getInTheaters(String country, int page, int pageLimit) throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_URL, URL_IN_THEATERS);
-        properties.put(ApiBuilder.PROPERTY_COUNTRY, ApiBuilder.validateCountry(country));
-        properties.put(ApiBuilder.PROPERTY_PAGE, ApiBuilder.validatePage(page));
-        properties.put(ApiBuilder.PROPERTY_PAGE_LIMIT, ApiBuilder.validatePageLimit(pageLimit));
+        Map<String, String> properties = inTheatersProperties(country, page, pageLimit);
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
         if (wrapper != null && wrapper.getMovies() != null) {
@@ -208,6 +478,18 @@ public class RottenTomatoesApi {
         }
     }
 
+    /**
+     * The properties for a page of the movies in theaters
+     *
+     * @param country
+     * @param page
+     * @param pageLimit
+     * @return
+     */
+    static Map<String, String> inTheatersProperties(String country, int page, int pageLimit) {
+        return pageProperties(countryProperties(URL_IN_THEATERS, country), page, pageLimit);
+    }
+
     /**
      * Retrieves movies currently in theaters
      *
@@ -229,6 +511,25 @@ public class RottenTomatoesApi {
         return getInTheaters(DEFAULT_COUNTRY);
     }
 
+    /**
+     * Iterates over all the movies currently in theaters, a page at a time
+     *
+     * @param country Provides localized data for the selected country
+     * @return
+     */
+    public PageCursor<RTMovie> getInTheatersCursor(String country) {
+        return cursor(countryProperties(URL_IN_THEATERS, country), WrapperLists::getMovies, RTMovie::getId);
+    }
+
+    /**
+     * Iterates over all the movies currently in theaters, a page at a time
+     *
+     * @return
+     */
+    public PageCursor<RTMovie> getInTheatersCursor() {
+        return getInTheatersCursor(DEFAULT_COUNTRY);
+    }
+
     /**
      * Retrieves current opening movies
      *
@@ -238,10 +539,7 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public List<RTMovie> getOpeningMovies(String country, int limit) throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_URL, URL_OPENING_MOVIES);
-        properties.put(ApiBuilder.PROPERTY_LIMIT, ApiBuilder.validateLimit(limit));
-        properties.put(ApiBuilder.PROPERTY_COUNTRY, ApiBuilder.validateCountry(country));
+        Map<String, String> properties = openingMoviesProperties(country, limit);
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
         if (wrapper != null && wrapper.getMovies() != null) {
@@ -251,6 +549,19 @@ public class RottenTomatoesApi {
         }
     }
 
+    /**
+     * The properties for the current opening movies
+     *
+     * @param country
+     * @param limit
+     * @return
+     */
+    static Map<String, String> openingMoviesProperties(String country, int limit) {
+        Map<String, String> properties = countryProperties(URL_OPENING_MOVIES, country);
+        properties.put(ApiBuilder.PROPERTY_LIMIT, ApiBuilder.validateLimit(limit));
+        return properties;
+    }
+
     /**
      * Retrieves current opening movies
      *
@@ -282,11 +593,7 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public List<RTMovie> getUpcomingMovies(String country, int page, int pageLimit) throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_URL, URL_UPCOMING_MOVIES);
-        properties.put(ApiBuilder.PROPERTY_COUNTRY, ApiBuilder.validateCountry(country));
-        properties.put(ApiBuilder.PROPERTY_PAGE, ApiBuilder.validatePage(page));
-        properties.put(ApiBuilder.PROPERTY_PAGE_LIMIT, ApiBuilder.validatePageLimit(pageLimit));
+        Map<String, String> properties = upcomingMoviesProperties(country, page, pageLimit);
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
         if (wrapper != null && wrapper.getMovies() != null) {
@@ -296,6 +603,18 @@ public class RottenTomatoesApi {
         }
     }
 
+    /**
+     * The properties for a page of the upcoming movies
+     *
+     * @param country
+     * @param page
+     * @param pageLimit
+     * @return
+     */
+    static Map<String, String> upcomingMoviesProperties(String country, int page, int pageLimit) {
+        return pageProperties(countryProperties(URL_UPCOMING_MOVIES, country), page, pageLimit);
+    }
+
     /**
      * Retrieves upcoming movies
      *
@@ -317,6 +636,25 @@ public class RottenTomatoesApi {
         return getUpcomingMovies(DEFAULT_COUNTRY);
     }
 
+    /**
+     * Iterates over all the upcoming movies, a page at a time
+     *
+     * @param country Provides localized data for the selected country
+     * @return
+     */
+    public PageCursor<RTMovie> getUpcomingMoviesCursor(String country) {
+        return cursor(countryProperties(URL_UPCOMING_MOVIES, country), WrapperLists::getMovies, RTMovie::getId);
+    }
+
+    /**
+     * Iterates over all the upcoming movies, a page at a time
+     *
+     * @return
+     */
+    public PageCursor<RTMovie> getUpcomingMoviesCursor() {
+        return getUpcomingMoviesCursor(DEFAULT_COUNTRY);
+    }
+
     /**
      * Retrieves the current top DVD rentals
      *
@@ -326,10 +664,7 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public List<RTMovie> getTopRentals(String country, int limit) throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_URL, URL_TOP_RENTALS);
-        properties.put(ApiBuilder.PROPERTY_LIMIT, ApiBuilder.validateLimit(limit));
-        properties.put(ApiBuilder.PROPERTY_COUNTRY, ApiBuilder.validateCountry(country));
+        Map<String, String> properties = topRentalsProperties(country, limit);
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
         if (wrapper != null && wrapper.getMovies() != null) {
@@ -339,6 +674,19 @@ public class RottenTomatoesApi {
         }
     }
 
+    /**
+     * The properties for the current top DVD rentals
+     *
+     * @param country
+     * @param limit
+     * @return
+     */
+    static Map<String, String> topRentalsProperties(String country, int limit) {
+        Map<String, String> properties = countryProperties(URL_TOP_RENTALS, country);
+        properties.put(ApiBuilder.PROPERTY_LIMIT, ApiBuilder.validateLimit(limit));
+        return properties;
+    }
+
     /**
      * Retrieves the current top DVD rentals
      *
@@ -370,11 +718,7 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public List<RTMovie> getCurrentReleaseDvds(String country, int page, int pageLimit) throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_URL, URL_CURRENT_RELEASE_DVDS);
-        properties.put(ApiBuilder.PROPERTY_COUNTRY, ApiBuilder.validateCountry(country));
-        properties.put(ApiBuilder.PROPERTY_PAGE, ApiBuilder.validatePage(page));
-        properties.put(ApiBuilder.PROPERTY_PAGE_LIMIT, ApiBuilder.validatePageLimit(pageLimit));
+        Map<String, String> properties = currentReleaseDvdsProperties(country, page, pageLimit);
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
         if (wrapper != null && wrapper.getMovies() != null) {
@@ -384,6 +728,18 @@ public class RottenTomatoesApi {
         }
     }
 
+    /**
+     * The properties for a page of the current release DVDs
+     *
+     * @param country
+     * @param page
+     * @param pageLimit
+     * @return
+     */
+    static Map<String, String> currentReleaseDvdsProperties(String country, int page, int pageLimit) {
+        return pageProperties(countryProperties(URL_CURRENT_RELEASE_DVDS, country), page, pageLimit);
+    }
+
     /**
      * Retrieves current release DVDs
      *
@@ -405,6 +761,25 @@ public class RottenTomatoesApi {
         return getCurrentReleaseDvds(DEFAULT_COUNTRY);
     }
 
+    /**
+     * Iterates over all the current release DVDs, a page at a time
+     *
+     * @param country Provides localized data for the selected country
+     * @return
+     */
+    public PageCursor<RTMovie> getCurrentReleaseDvdsCursor(String country) {
+        return cursor(countryProperties(URL_CURRENT_RELEASE_DVDS, country), WrapperLists::getMovies, RTMovie::getId);
+    }
+
+    /**
+     * Iterates over all the current release DVDs, a page at a time
+     *
+     * @return
+     */
+    public PageCursor<RTMovie> getCurrentReleaseDvdsCursor() {
+        return getCurrentReleaseDvdsCursor(DEFAULT_COUNTRY);
+    }
+
     /**
      * Retrieves new release DVDs
      *
@@ -415,11 +790,7 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public List<RTMovie> getNewReleaseDvds(String country, int page, int pageLimit) throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_URL, URL_NEW_RELEASE_DVDS);
-        properties.put(ApiBuilder.PROPERTY_COUNTRY, ApiBuilder.validateCountry(country));
-        properties.put(ApiBuilder.PROPERTY_PAGE, ApiBuilder.validatePage(page));
-        properties.put(ApiBuilder.PROPERTY_PAGE_LIMIT, ApiBuilder.validatePageLimit(pageLimit));
+        Map<String, String> properties = newReleaseDvdsProperties(country, page, pageLimit);
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
         if (wrapper != null && wrapper.getMovies() != null) {
@@ -429,6 +800,18 @@ public class RottenTomatoesApi {
         }
     }
 
+    /**
+     * The properties for a page of the new release DVDs
+     *
+     * @param country
+     * @param page
+     * @param pageLimit
+     * @return
+     */
+    static Map<String, String> newReleaseDvdsProperties(String country, int page, int pageLimit) {
+        return pageProperties(countryProperties(URL_NEW_RELEASE_DVDS, country), page, pageLimit);
+    }
+
     /**
      * Retrieves new release DVDs
      *
@@ -450,6 +833,25 @@ public class RottenTomatoesApi {
         return getNewReleaseDvds(DEFAULT_COUNTRY);
     }
 
+    /**
+     * Iterates over all the new release DVDs, a page at a time
+     *
+     * @param country Provides localized data for the selected country
+     * @return
+     */
+    public PageCursor<RTMovie> getNewReleaseDvdsCursor(String country) {
+        return cursor(countryProperties(URL_NEW_RELEASE_DVDS, country), WrapperLists::getMovies, RTMovie::getId);
+    }
+
+    /**
+     * Iterates over all the new release DVDs, a page at a time
+     *
+     * @return
+     */
+    public PageCursor<RTMovie> getNewReleaseDvdsCursor() {
+        return getNewReleaseDvdsCursor(DEFAULT_COUNTRY);
+    }
+
     /**
      * Retrieves current release DVDs
      *
@@ -460,11 +862,7 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public List<RTMovie> getUpcomingDvds(String country, int page, int pageLimit) throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_URL, URL_UPCOMING_DVDS);
-        properties.put(ApiBuilder.PROPERTY_COUNTRY, ApiBuilder.validateCountry(country));
-        properties.put(ApiBuilder.PROPERTY_PAGE, ApiBuilder.validatePage(page));
-        properties.put(ApiBuilder.PROPERTY_PAGE_LIMIT, ApiBuilder.validatePageLimit(pageLimit));
+        Map<String, String> properties = upcomingDvdsProperties(country, page, pageLimit);
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
         if (wrapper != null && wrapper.getMovies() != null) {
@@ -474,6 +872,18 @@ public class RottenTomatoesApi {
         }
     }
 
+    /**
+     * The properties for a page of the upcoming DVDs
+     *
+     * @param country
+     * @param page
+     * @param pageLimit
+     * @return
+     */
+    static Map<String, String> upcomingDvdsProperties(String country, int page, int pageLimit) {
+        return pageProperties(countryProperties(URL_UPCOMING_DVDS, country), page, pageLimit);
+    }
+
     /**
      * Retrieves current release DVDs
      *
@@ -495,6 +905,25 @@ public class RottenTomatoesApi {
         return getUpcomingDvds(DEFAULT_COUNTRY);
     }
 
+    /**
+     * Iterates over all the upcoming DVDs, a page at a time
+     *
+     * @param country Provides localized data for the selected country
+     * @return
+     */
+    public PageCursor<RTMovie> getUpcomingDvdsCursor(String country) {
+        return cursor(countryProperties(URL_UPCOMING_DVDS, country), WrapperLists::getMovies, RTMovie::getId);
+    }
+
+    /**
+     * Iterates over all the upcoming DVDs, a page at a time
+     *
+     * @return
+     */
+    public PageCursor<RTMovie> getUpcomingDvdsCursor() {
+        return getUpcomingDvdsCursor(DEFAULT_COUNTRY);
+    }
+
     /**
      * Detailed information on a specific movie specified by Id.
      *
@@ -503,13 +932,24 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public RTMovie getDetailedInfo(int movieId) throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_ID, String.valueOf(movieId));
-        properties.put(ApiBuilder.PROPERTY_URL, URL_MOVIES_INFO);
+        Map<String, String> properties = detailedInfoProperties(movieId);
 
         return response.getResponse(RTMovie.class, properties);
     }
 
+    /**
+     * The properties for the detailed information on a movie
+     *
+     * @param movieId
+     * @return
+     */
+    static Map<String, String> detailedInfoProperties(int movieId) {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(ApiBuilder.PROPERTY_ID, String.valueOf(movieId));
+        properties.put(ApiBuilder.PROPERTY_URL, URL_MOVIES_INFO);
+        return properties;
+    }
+
     /**
      * Pulls the complete movie cast for a movie
      *
@@ -518,9 +958,7 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public List<RTCast> getCastInfo(int movieId) throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_ID, String.valueOf(movieId));
-        properties.put(ApiBuilder.PROPERTY_URL, URL_CAST_INFO);
+        Map<String, String> properties = castInfoProperties(movieId);
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
         if (wrapper != null && wrapper.getCast() != null) {
@@ -530,6 +968,19 @@ public class RottenTomatoesApi {
         }
     }
 
+    /**
+     * The properties for the cast of a movie
+     *
+     * @param movieId
+     * @return
+     */
+    static Map<String, String> castInfoProperties(int movieId) {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(ApiBuilder.PROPERTY_ID, String.valueOf(movieId));
+        properties.put(ApiBuilder.PROPERTY_URL, URL_CAST_INFO);
+        return properties;
+    }
+
     /**
      * Related movie clips and trailers for a movie
      *
@@ -538,18 +989,29 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public List<RTClip> getMovieClips(int movieId) throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_ID, String.valueOf(movieId));
-        properties.put(ApiBuilder.PROPERTY_URL, URL_MOVIE_CLIPS);
+        Map<String, String> properties = movieClipsProperties(movieId);
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
-        if (wrapper != null && wrapper.getClass() != null) {
+        if (wrapper != null && wrapper.getClips() != null) {
             return wrapper.getClips();
         } else {
             return Collections.emptyList();
         }
     }
 
+    /**
+     * The properties for the clips of a movie
+     *
+     * @param movieId
+     * @return
+     */
+    static Map<String, String> movieClipsProperties(int movieId) {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(ApiBuilder.PROPERTY_ID, String.valueOf(movieId));
+        properties.put(ApiBuilder.PROPERTY_URL, URL_MOVIE_CLIPS);
+        return properties;
+    }
+
     /**
      * Retrieves the reviews for a movie
      *
@@ -562,13 +1024,7 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public List<Review> getMoviesReviews(int movieId, String reviewType, int pageLimit, int page, String country) throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_ID, String.valueOf(movieId));
-        properties.put(ApiBuilder.PROPERTY_URL, URL_MOVIES_REVIEWS);
-        properties.put(ApiBuilder.PROPERTY_REVIEW_TYPE, reviewType);
-        properties.put(ApiBuilder.PROPERTY_PAGE_LIMIT, ApiBuilder.validatePageLimit(pageLimit));
-        properties.put(ApiBuilder.PROPERTY_PAGE, ApiBuilder.validatePage(page));
-        properties.put(ApiBuilder.PROPERTY_COUNTRY, ApiBuilder.validateCountry(country));
+        Map<String, String> properties = moviesReviewsProperties(movieId, reviewType, pageLimit, page, country);
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
         if (wrapper != null && wrapper.getReviews() != null) {
@@ -578,6 +1034,35 @@ public class RottenTomatoesApi {
         }
     }
 
+    /**
+     * The properties for a page of the reviews for a movie
+     *
+     * @param movieId
+     * @param reviewType
+     * @param pageLimit
+     * @param page
+     * @param country
+     * @return
+     */
+    static Map<String, String> moviesReviewsProperties(int movieId, String reviewType, int pageLimit, int page, String country) {
+        return pageProperties(moviesReviewsProperties(movieId, reviewType, country), page, pageLimit);
+    }
+
+    /**
+     * The properties for the reviews for a movie, without the page
+     *
+     * @param movieId
+     * @param reviewType
+     * @param country
+     * @return
+     */
+    private static Map<String, String> moviesReviewsProperties(int movieId, String reviewType, String country) {
+        Map<String, String> properties = countryProperties(URL_MOVIES_REVIEWS, country);
+        properties.put(ApiBuilder.PROPERTY_ID, String.valueOf(movieId));
+        properties.put(ApiBuilder.PROPERTY_REVIEW_TYPE, reviewType);
+        return properties;
+    }
+
     /**
      * Retrieves the reviews for a movie
      *
@@ -614,6 +1099,28 @@ public class RottenTomatoesApi {
         return getMoviesReviews(movieId, DEFAULT_COUNTRY);
     }
 
+    /**
+     * Iterates over all the reviews for a movie, a page at a time
+     *
+     * @param movieId
+     * @param reviewType
+     * @param country
+     * @return
+     */
+    public PageCursor<Review> getMoviesReviewsCursor(int movieId, String reviewType, String country) {
+        return cursor(moviesReviewsProperties(movieId, reviewType, country), WrapperLists::getReviews, null);
+    }
+
+    /**
+     * Iterates over all the reviews for a movie, a page at a time
+     *
+     * @param movieId
+     * @return
+     */
+    public PageCursor<Review> getMoviesReviewsCursor(int movieId) {
+        return getMoviesReviewsCursor(movieId, DEFAULT_REVIEW, DEFAULT_COUNTRY);
+    }
+
     /**
      * Returns similar movies to a movie
      *
@@ -623,10 +1130,7 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public List<RTMovie> getMoviesSimilar(int movieId, int limit) throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_ID, String.valueOf(movieId));
-        properties.put(ApiBuilder.PROPERTY_URL, URL_MOVIES_SIMILAR);
-        properties.put(ApiBuilder.PROPERTY_LIMIT, ApiBuilder.validateLimit(limit));
+        Map<String, String> properties = moviesSimilarProperties(movieId, limit);
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
         if (wrapper != null && wrapper.getMovies() != null) {
@@ -636,6 +1140,21 @@ public class RottenTomatoesApi {
         }
     }
 
+    /**
+     * The properties for the movies similar to a movie
+     *
+     * @param movieId
+     * @param limit
+     * @return
+     */
+    static Map<String, String> moviesSimilarProperties(int movieId, int limit) {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(ApiBuilder.PROPERTY_ID, String.valueOf(movieId));
+        properties.put(ApiBuilder.PROPERTY_URL, URL_MOVIES_SIMILAR);
+        properties.put(ApiBuilder.PROPERTY_LIMIT, ApiBuilder.validateLimit(limit));
+        return properties;
+    }
+
     /**
      * Returns similar movies to a movie
      *
@@ -656,7 +1175,20 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public RTMovie getMoviesAlias(String altMovieId, String type) throws RottenTomatoesException {
-        properties.clear();
+        Map<String, String> properties = moviesAliasProperties(altMovieId, type);
+
+        return response.getResponse(RTMovie.class, properties);
+    }
+
+    /**
+     * The properties for a movie lookup by an id from a different vendor
+     *
+     * @param altMovieId
+     * @param type
+     * @return
+     */
+    static Map<String, String> moviesAliasProperties(String altMovieId, String type) {
+        Map<String, String> properties = new HashMap<String, String>();
         properties.put(ApiBuilder.PROPERTY_URL, URL_MOVIES_ALIAS);
         // remove the "tt" from the start of the ID if it's imdb
         if ("imdb".equalsIgnoreCase(type) && altMovieId.toLowerCase().startsWith("tt")) {
@@ -665,8 +1197,7 @@ public class RottenTomatoesApi {
             properties.put(ApiBuilder.PROPERTY_ID, altMovieId);
         }
         properties.put(ApiBuilder.PROPERTY_TYPE, type);
-
-        return response.getResponse(RTMovie.class, properties);
+        return properties;
     }
 
     /**
@@ -680,16 +1211,7 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public List<RTMovie> getMoviesSearch(String query, int pageLimit, int page) throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_URL, URL_MOVIES_SEARCH);
-        properties.put(ApiBuilder.PROPERTY_PAGE_LIMIT, ApiBuilder.validatePageLimit(pageLimit));
-        properties.put(ApiBuilder.PROPERTY_PAGE, ApiBuilder.validatePage(page));
-
-        try {
-            properties.put(ApiBuilder.PROPERTY_QUERY, URLEncoder.encode(query, ENCODING_UTF8));
-        } catch (UnsupportedEncodingException ex) {
-            throw new RottenTomatoesException(ApiExceptionType.MAPPING_FAILED, "Failed to encode URL", query, ex);
-        }
+        Map<String, String> properties = moviesSearchProperties(query, pageLimit, page);
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
         if (wrapper != null && wrapper.getMovies() != null) {
@@ -699,6 +1221,39 @@ public class RottenTomatoesApi {
         }
     }
 
+    /**
+     * The properties for a page of the movies matching a plain text query
+     *
+     * @param query
+     * @param pageLimit
+     * @param page
+     * @return
+     * @throws RottenTomatoesException
+     */
+    static Map<String, String> moviesSearchProperties(String query, int pageLimit, int page) throws RottenTomatoesException {
+        return pageProperties(moviesSearchProperties(query), page, pageLimit);
+    }
+
+    /**
+     * The properties for the movies matching a plain text query, without the
+     * page
+     *
+     * @param query
+     * @return
+     * @throws RottenTomatoesException
+     */
+    private static Map<String, String> moviesSearchProperties(String query) throws RottenTomatoesException {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(ApiBuilder.PROPERTY_URL, URL_MOVIES_SEARCH);
+
+        try {
+            properties.put(ApiBuilder.PROPERTY_QUERY, URLEncoder.encode(query, ENCODING_UTF8));
+        } catch (UnsupportedEncodingException ex) {
+            throw new RottenTomatoesException(ApiExceptionType.MAPPING_FAILED, "Failed to encode URL", query, ex);
+        }
+        return properties;
+    }
+
     /**
      * The movies search endpoint for plain text queries. Let's you search for
      * movies!
@@ -711,6 +1266,73 @@ public class RottenTomatoesApi {
         return getMoviesSearch(query, DEFAULT_PAGE_LIMIT, DEFAULT_PAGE);
     }
 
+    /**
+     * Iterates over all the movies matching a plain text query, a page at a
+     * time
+     *
+     * @param query
+     * @return
+     * @throws RottenTomatoesException
+     */
+    public PageCursor<RTMovie> getMoviesSearchCursor(String query) throws RottenTomatoesException {
+        return cursor(moviesSearchProperties(query), WrapperLists::getMovies, RTMovie::getId);
+    }
+
+    /**
+     * Create a cursor over a paged list
+     *
+     * @param <T>
+     * @param properties The properties for the list, without the page
+     * @param items Gets the items from each page
+     * @param key Identifies repeated items, null to keep them all
+     * @return
+     */
+    private <T> PageCursor<T> cursor(final Map<String, String> properties, Function<WrapperLists, List<T>> items, Function<T, ?> key) {
+        return new PageCursor<T>((page, pageLimit) -> getPage(properties, page, pageLimit), items, key, prefetchExecutor);
+    }
+
+    /**
+     * Get a single page of a paged list
+     *
+     * @param properties The properties for the list, these are not changed
+     * @param page
+     * @param pageLimit
+     * @return
+     * @throws RottenTomatoesException
+     */
+    private WrapperLists getPage(Map<String, String> properties, int page, int pageLimit) throws RottenTomatoesException {
+        Map<String, String> pageProperties = pageProperties(new HashMap<String, String>(properties), page, pageLimit);
+        return response.getResponse(WrapperLists.class, pageProperties);
+    }
+
+    /**
+     * The properties for a list that is localized by country
+     *
+     * @param url
+     * @param country
+     * @return
+     */
+    private static Map<String, String> countryProperties(String url, String country) {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(ApiBuilder.PROPERTY_URL, url);
+        properties.put(ApiBuilder.PROPERTY_COUNTRY, ApiBuilder.validateCountry(country));
+        return properties;
+    }
+
+    /**
+     * Add the page to the properties of a paged list
+     *
+     * @param properties The properties for the list, these are changed
+     * @param page
+     * @param pageLimit
+     * @return the properties
+     */
+    private static Map<String, String> pageProperties(Map<String, String> properties, int page, int pageLimit) {
+        properties.put(ApiBuilder.PROPERTY_PAGE, ApiBuilder.validatePage(page));
+        properties.put(ApiBuilder.PROPERTY_PAGE_LIMIT, ApiBuilder.validatePageLimit(pageLimit));
+        return properties;
+    }
+
     /**
      * Displays the top level lists available in the API
      *
@@ -718,8 +1340,7 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public Map<String, String> getListsDirectory() throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_URL, URL_LISTS_DIRECTORY);
+        Map<String, String> properties = listsDirectoryProperties();
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
         if (wrapper != null && wrapper.getLinks() != null) {
@@ -729,6 +1350,17 @@ public class RottenTomatoesApi {
         }
     }
 
+    /**
+     * The properties for the directory of the top level lists
+     *
+     * @return
+     */
+    static Map<String, String> listsDirectoryProperties() {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(ApiBuilder.PROPERTY_URL, URL_LISTS_DIRECTORY);
+        return properties;
+    }
+
     /**
      * Shows the movie lists available
      *
@@ -736,8 +1368,7 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public Map<String, String> getMovieListsDirectory() throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_URL, URL_MOVIE_LISTS);
+        Map<String, String> properties = movieListsDirectoryProperties();
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
         if (wrapper != null && wrapper.getLinks() != null) {
@@ -747,6 +1378,17 @@ public class RottenTomatoesApi {
         }
     }
 
+    /**
+     * The properties for the directory of the movie lists
+     *
+     * @return
+     */
+    static Map<String, String> movieListsDirectoryProperties() {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(ApiBuilder.PROPERTY_URL, URL_MOVIE_LISTS);
+        return properties;
+    }
+
     /**
      * Shows the DVD lists available
      *
@@ -754,8 +1396,7 @@ public class RottenTomatoesApi {
      * @throws RottenTomatoesException
      */
     public Map<String, String> getDvdListsDirectory() throws RottenTomatoesException {
-        properties.clear();
-        properties.put(ApiBuilder.PROPERTY_URL, URL_DVD_LISTS);
+        Map<String, String> properties = dvdListsDirectoryProperties();
 
         WrapperLists wrapper = response.getResponse(WrapperLists.class, properties);
         if (wrapper != null && wrapper.getLinks() != null) {
@@ -765,4 +1406,15 @@ public class RottenTomatoesApi {
         }
     }
 
+    /**
+     * The properties for the directory of the DVD lists
+     *
+     * @return
+     */
+    static Map<String, String> dvdListsDirectoryProperties() {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(ApiBuilder.PROPERTY_URL, URL_DVD_LISTS);
+        return properties;
+    }
+
 }
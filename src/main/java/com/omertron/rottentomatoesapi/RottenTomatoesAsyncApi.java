@@ -0,0 +1,961 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.model.RTCast;
+import com.omertron.rottentomatoesapi.model.RTClip;
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.omertron.rottentomatoesapi.model.Review;
+import com.omertron.rottentomatoesapi.tools.AliasStore;
+import com.omertron.rottentomatoesapi.tools.AsyncHttpTransport;
+import com.omertron.rottentomatoesapi.tools.BulkCallback;
+import com.omertron.rottentomatoesapi.tools.BulkFetch;
+import com.omertron.rottentomatoesapi.tools.BulkResult;
+import com.omertron.rottentomatoesapi.wrapper.WrapperLists;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.HttpClient;
+import org.yamj.api.common.exception.ApiExceptionType;
+
+/**
+ * Asynchronous version of the {@link RottenTomatoesApi}
+ *
+ * Each method runs the matching blocking call on the executor and returns a
+ * future for the result. Any {@link RottenTomatoesException} thrown by the call
+ * fails the future with that exception.
+ *
+ * If the API uses a non-blocking transport, such as the JdkTransport, the
+ * calls, including the bulk lookups, do not use the executor. They hold no
+ * thread while waiting for the server or for a retry, so thousands can be in
+ * progress at once.
+ *
+ * @author Stuart.Boston
+ */
+public class RottenTomatoesAsyncApi implements Closeable {
+
+    private static final String THREAD_NAME = "rt-async-";
+    private static final String IMDB = "imdb";
+    private static final String NO_MATCH_ERROR = "Could not find";
+    private static final long DEFAULT_PART_TIMEOUT_SECONDS = 30;
+    private static final ScheduledExecutorService TIMEOUTS = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "rt-async-timeout");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final RottenTomatoesApi api;
+    private final Executor executor;
+    private final boolean nonBlocking;
+    private final boolean ownsApi;
+    private final boolean ownsExecutor;
+
+    /**
+     * Create an asynchronous API using a default executor of daemon threads
+     *
+     * @param apiKey
+     * @throws RottenTomatoesException
+     */
+    public RottenTomatoesAsyncApi(String apiKey) throws RottenTomatoesException {
+        this(new RottenTomatoesApi(apiKey), defaultExecutor(), true, true);
+    }
+
+    /**
+     * Create an asynchronous API
+     *
+     * @param apiKey
+     * @param httpClient
+     * @param executor The executor to run the calls on
+     * @throws RottenTomatoesException
+     */
+    public RottenTomatoesAsyncApi(String apiKey, HttpClient httpClient, Executor executor) throws RottenTomatoesException {
+        this(new RottenTomatoesApi(apiKey, httpClient), executor, true, false);
+    }
+
+    /**
+     * Create an asynchronous API around an existing API instance
+     *
+     * @param api The API to run the calls against
+     * @param executor The executor to run the calls on
+     */
+    public RottenTomatoesAsyncApi(RottenTomatoesApi api, Executor executor) {
+        this(api, executor, false, false);
+    }
+
+    /**
+     * Create an asynchronous API that makes the calls it can without blocking
+     *
+     * The other calls run on a default executor of daemon threads.
+     *
+     * @param apiKey
+     * @param transport
+     * @throws RottenTomatoesException
+     */
+    public RottenTomatoesAsyncApi(String apiKey, AsyncHttpTransport transport) throws RottenTomatoesException {
+        this(new RottenTomatoesApi(apiKey, transport), defaultExecutor(), true, true);
+    }
+
+    private RottenTomatoesAsyncApi(RottenTomatoesApi api, Executor executor, boolean ownsApi, boolean ownsExecutor) {
+        this.api = api;
+        this.executor = executor;
+        this.nonBlocking = api.isNonBlocking();
+        this.ownsApi = ownsApi;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Close the API and stop the executor if they were created here
+     *
+     * An API or executor passed in by the caller is left for the caller to
+     * close.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (ownsExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+        if (ownsApi) {
+            api.close();
+        }
+    }
+
+    /**
+     * Are the calls that support it made without blocking a thread
+     *
+     * @return
+     */
+    public boolean isNonBlocking() {
+        return nonBlocking;
+    }
+
+    /**
+     * The blocking API used for the calls
+     *
+     * @return
+     */
+    public RottenTomatoesApi getApi() {
+        return api;
+    }
+
+    /**
+     * Create an executor of daemon threads that grows with demand
+     *
+     * @return
+     */
+    private static ExecutorService defaultExecutor() {
+        final AtomicInteger count = new AtomicInteger(0);
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, THREAD_NAME + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Run the call on the executor
+     *
+     * @param <T>
+     * @param call
+     * @return
+     */
+    private <T> CompletableFuture<T> submit(final ApiCall<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.execute());
+                } catch (RottenTomatoesException | RuntimeException ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(new RottenTomatoesException(ApiExceptionType.UNKNOWN_CAUSE, "Call rejected by executor", "", ex));
+        }
+        return future;
+    }
+
+    /**
+     * A blocking call to the API
+     *
+     * @param <T>
+     */
+    private interface ApiCall<T> {
+
+        T execute() throws RottenTomatoesException;
+    }
+
+    /**
+     * Request a list without blocking and extract the items from it
+     *
+     * @param <T>
+     * @param properties
+     * @param items gets the items from the wrapper, may return null
+     * @return
+     */
+    private <T> CompletableFuture<List<T>> requestList(Map<String, String> properties, Function<WrapperLists, List<T>> items) {
+        return api.getResponseAsync(WrapperLists.class, properties).thenApply(wrapper -> {
+            List<T> list = wrapper == null ? null : items.apply(wrapper);
+            return list == null ? Collections.<T>emptyList() : list;
+        });
+    }
+
+    /**
+     * Request the links of a directory without blocking
+     *
+     * @param properties
+     * @return
+     */
+    private CompletableFuture<Map<String, String>> requestLinks(Map<String, String> properties) {
+        return api.getResponseAsync(WrapperLists.class, properties).thenApply(wrapper -> {
+            Map<String, String> links = wrapper == null ? null : wrapper.getLinks();
+            return links == null ? Collections.<String, String>emptyMap() : links;
+        });
+    }
+
+    /**
+     * Displays top box office earning movies, sorted by most recent weekend
+     * gross ticket sales.
+     *
+     * @param country Provides localized data for the selected country
+     * @param limit Limits the number of movies returned
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getBoxOffice(String country, int limit) {
+        if (nonBlocking) {
+            return requestList(RottenTomatoesApi.boxOfficeProperties(country, limit), WrapperLists::getMovies);
+        }
+        return submit(() -> api.getBoxOffice(country, limit));
+    }
+
+    /**
+     * Displays top box office earning movies, sorted by most recent weekend
+     * gross ticket sales.
+     *
+     * @param country Provides localized data for the selected country
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getBoxOffice(String country) {
+        return getBoxOffice(country, RottenTomatoesApi.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Displays top box office earning movies, sorted by most recent weekend
+     * gross ticket sales.
+     *
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getBoxOffice() {
+        return getBoxOffice(RottenTomatoesApi.DEFAULT_COUNTRY);
+    }
+
+    /**
+     * Retrieves movies currently in theaters
+     *
+     * @param country Provides localized data for the selected country
+     * @param page The selected page of in theaters movies
+     * @param pageLimit The amount of movies in theaters to show per page
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getInTheaters(String country, int page, int pageLimit) {
+        if (nonBlocking) {
+            return requestList(RottenTomatoesApi.inTheatersProperties(country, page, pageLimit), WrapperLists::getMovies);
+        }
+        return submit(() -> api.getInTheaters(country, page, pageLimit));
+    }
+
+    /**
+     * Retrieves movies currently in theaters
+     *
+     * @param country Provides localized data for the selected country
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getInTheaters(String country) {
+        return getInTheaters(country, RottenTomatoesApi.DEFAULT_PAGE, RottenTomatoesApi.DEFAULT_PAGE_LIMIT);
+    }
+
+    /**
+     * Retrieves movies currently in theaters
+     *
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getInTheaters() {
+        return getInTheaters(RottenTomatoesApi.DEFAULT_COUNTRY);
+    }
+
+    /**
+     * Retrieves current opening movies
+     *
+     * @param country Provides localized data for the selected country
+     * @param limit Limits the number of opening movies returned
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getOpeningMovies(String country, int limit) {
+        if (nonBlocking) {
+            return requestList(RottenTomatoesApi.openingMoviesProperties(country, limit), WrapperLists::getMovies);
+        }
+        return submit(() -> api.getOpeningMovies(country, limit));
+    }
+
+    /**
+     * Retrieves current opening movies
+     *
+     * @param country Provides localized data for the selected country
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getOpeningMovies(String country) {
+        return getOpeningMovies(country, RottenTomatoesApi.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Retrieves current opening movies
+     *
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getOpeningMovies() {
+        return getOpeningMovies(RottenTomatoesApi.DEFAULT_COUNTRY);
+    }
+
+    /**
+     * Retrieves upcoming movies
+     *
+     * @param country Provides localized data for the selected country
+     * @param page The selected page of upcoming movies
+     * @param pageLimit The amount of upcoming movies to show per page
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getUpcomingMovies(String country, int page, int pageLimit) {
+        if (nonBlocking) {
+            return requestList(RottenTomatoesApi.upcomingMoviesProperties(country, page, pageLimit), WrapperLists::getMovies);
+        }
+        return submit(() -> api.getUpcomingMovies(country, page, pageLimit));
+    }
+
+    /**
+     * Retrieves upcoming movies
+     *
+     * @param country Provides localized data for the selected country
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getUpcomingMovies(String country) {
+        return getUpcomingMovies(country, RottenTomatoesApi.DEFAULT_PAGE, RottenTomatoesApi.DEFAULT_PAGE_LIMIT);
+    }
+
+    /**
+     * Retrieves upcoming movies
+     *
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getUpcomingMovies() {
+        return getUpcomingMovies(RottenTomatoesApi.DEFAULT_COUNTRY);
+    }
+
+    /**
+     * Retrieves the current top DVD rentals
+     *
+     * @param country Provides localized data for the selected country
+     * @param limit Limits the number of DVDs returned
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getTopRentals(String country, int limit) {
+        if (nonBlocking) {
+            return requestList(RottenTomatoesApi.topRentalsProperties(country, limit), WrapperLists::getMovies);
+        }
+        return submit(() -> api.getTopRentals(country, limit));
+    }
+
+    /**
+     * Retrieves the current top DVD rentals
+     *
+     * @param country Provides localized data for the selected country
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getTopRentals(String country) {
+        return getTopRentals(country, RottenTomatoesApi.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Retrieves the current top DVD rentals
+     *
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getTopRentals() {
+        return getTopRentals(RottenTomatoesApi.DEFAULT_COUNTRY);
+    }
+
+    /**
+     * Retrieves current release DVDs
+     *
+     * @param country Provides localized data for the selected country
+     * @param page The selected page of DVDs
+     * @param pageLimit The amount of DVDs to show per page
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getCurrentReleaseDvds(String country, int page, int pageLimit) {
+        if (nonBlocking) {
+            return requestList(RottenTomatoesApi.currentReleaseDvdsProperties(country, page, pageLimit), WrapperLists::getMovies);
+        }
+        return submit(() -> api.getCurrentReleaseDvds(country, page, pageLimit));
+    }
+
+    /**
+     * Retrieves current release DVDs
+     *
+     * @param country Provides localized data for the selected country
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getCurrentReleaseDvds(String country) {
+        return getCurrentReleaseDvds(country, RottenTomatoesApi.DEFAULT_PAGE, RottenTomatoesApi.DEFAULT_PAGE_LIMIT);
+    }
+
+    /**
+     * Retrieves current release DVDs
+     *
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getCurrentReleaseDvds() {
+        return getCurrentReleaseDvds(RottenTomatoesApi.DEFAULT_COUNTRY);
+    }
+
+    /**
+     * Retrieves new release DVDs
+     *
+     * @param country Provides localized data for the selected country
+     * @param page The selected page of DVDs
+     * @param pageLimit The amount of DVDs to show per page
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getNewReleaseDvds(String country, int page, int pageLimit) {
+        if (nonBlocking) {
+            return requestList(RottenTomatoesApi.newReleaseDvdsProperties(country, page, pageLimit), WrapperLists::getMovies);
+        }
+        return submit(() -> api.getNewReleaseDvds(country, page, pageLimit));
+    }
+
+    /**
+     * Retrieves new release DVDs
+     *
+     * @param country Provides localized data for the selected country
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getNewReleaseDvds(String country) {
+        return getNewReleaseDvds(country, RottenTomatoesApi.DEFAULT_PAGE, RottenTomatoesApi.DEFAULT_PAGE_LIMIT);
+    }
+
+    /**
+     * Retrieves new release DVDs
+     *
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getNewReleaseDvds() {
+        return getNewReleaseDvds(RottenTomatoesApi.DEFAULT_COUNTRY);
+    }
+
+    /**
+     * Retrieves upcoming DVDs
+     *
+     * @param country Provides localized data for the selected country
+     * @param page The selected page of DVDs
+     * @param pageLimit The amount of DVDs to show per page
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getUpcomingDvds(String country, int page, int pageLimit) {
+        if (nonBlocking) {
+            return requestList(RottenTomatoesApi.upcomingDvdsProperties(country, page, pageLimit), WrapperLists::getMovies);
+        }
+        return submit(() -> api.getUpcomingDvds(country, page, pageLimit));
+    }
+
+    /**
+     * Retrieves upcoming DVDs
+     *
+     * @param country Provides localized data for the selected country
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getUpcomingDvds(String country) {
+        return getUpcomingDvds(country, RottenTomatoesApi.DEFAULT_PAGE, RottenTomatoesApi.DEFAULT_PAGE_LIMIT);
+    }
+
+    /**
+     * Retrieves upcoming DVDs
+     *
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getUpcomingDvds() {
+        return getUpcomingDvds(RottenTomatoesApi.DEFAULT_COUNTRY);
+    }
+
+    /**
+     * Detailed information on a specific movie specified by Id.
+     *
+     * @param movieId RT Movie ID to locate
+     * @return
+     */
+    public CompletableFuture<RTMovie> getDetailedInfo(int movieId) {
+        if (nonBlocking) {
+            return api.getResponseAsync(RTMovie.class, RottenTomatoesApi.detailedInfoProperties(movieId));
+        }
+        return submit(() -> api.getDetailedInfo(movieId));
+    }
+
+    /**
+     * Detailed information on a batch of movies
+     *
+     * At most "concurrency" lookups run at once on the executor, or are
+     * outstanding at once if the calls do not block. Each movie, or the reason
+     * it could not be fetched, is passed to the callback as soon as it is
+     * known, and one failed movie does not stop the rest. Duplicate IDs are
+     * only fetched once.
+     *
+     * @param movieIds RT Movie IDs to locate
+     * @param concurrency The largest number of lookups to run at once
+     * @param callback Receives each movie, called from the executor threads,
+     * or the transport's threads if the calls do not block
+     * @return a future that completes with the summary when every ID is done
+     */
+    public CompletableFuture<BulkResult> getDetailedInfo(int[] movieIds, int concurrency, BulkCallback<RTMovie> callback) {
+        if (nonBlocking) {
+            return BulkFetch.async(movieIds, concurrency, this::getDetailedInfo, callback).start(executor);
+        }
+        return new BulkFetch<RTMovie>(movieIds, concurrency, api::getDetailedInfo, callback).start(executor);
+    }
+
+    /**
+     * Detailed information on a batch of movies
+     *
+     * @param movieIds RT Movie IDs to locate
+     * @param concurrency The largest number of lookups to run at once
+     * @param callback Receives each movie, called from the executor threads
+     * @return a future that completes with the summary when every ID is done
+     * @see #getDetailedInfo(int[], int, BulkCallback)
+     */
+    public CompletableFuture<BulkResult> getDetailedInfo(Collection<Integer> movieIds, int concurrency, BulkCallback<RTMovie> callback) {
+        return getDetailedInfo(BulkFetch.toArray(movieIds), concurrency, callback);
+    }
+
+    /**
+     * Find the Rotten Tomatoes IDs for a list of IMDb IDs
+     *
+     * Only the IDs the store does not already hold are looked up, at most
+     * "concurrency" at a time. Each match is added to the store, as is each ID
+     * the API has no movie for, so neither is looked up again. Other failures
+     * are not stored and will be retried next time.
+     *
+     * Once the future completes the RT IDs can be read with
+     * {@link AliasStore#get(int)}. If a result could not be written to the
+     * store the future fails with an UncheckedIOException, once the rest of
+     * the batch is done.
+     *
+     * @param imdbIds The IMDb IDs, with or without the "tt" prefix. Invalid IDs
+     * are skipped
+     * @param concurrency The largest number of lookups to run at once
+     * @param store The store to check and add the results to
+     * @return a future that completes with the summary of the lookups made
+     */
+    public CompletableFuture<BulkResult> resolveImdbIds(Collection<String> imdbIds, int concurrency, final AliasStore store) {
+        int[] missing = imdbIds.stream()
+                .mapToInt(AliasStore::parseImdbId)
+                .filter(id -> id != AliasStore.UNKNOWN && !store.contains(id))
+                .toArray();
+
+        final AtomicReference<IOException> storeFailure = new AtomicReference<IOException>();
+        BulkCallback<RTMovie> callback = new BulkCallback<RTMovie>() {
+            @Override
+            public void onResult(int id, RTMovie result) {
+                storeAlias(store, id, result == null ? AliasStore.NO_MATCH : result.getId(), storeFailure);
+            }
+
+            @Override
+            public void onFailure(int id, RottenTomatoesException ex) {
+                if (isNoMatch(ex)) {
+                    storeAlias(store, id, AliasStore.NO_MATCH, storeFailure);
+                }
+            }
+        };
+
+        BulkFetch<RTMovie> fetch;
+        if (nonBlocking) {
+            fetch = BulkFetch.async(missing, concurrency, id -> getMoviesAlias(AliasStore.formatImdbId(id), IMDB), callback);
+        } else {
+            fetch = new BulkFetch<RTMovie>(missing, concurrency, id -> api.getMoviesAlias(AliasStore.formatImdbId(id), IMDB), callback);
+        }
+        return fetch.start(executor)
+                .thenApply(result -> {
+                    IOException failure = storeFailure.get();
+                    try {
+                        store.flush();
+                    } catch (IOException ex) {
+                        if (failure == null) {
+                            failure = ex;
+                        } else {
+                            failure.addSuppressed(ex);
+                        }
+                    }
+                    if (failure != null) {
+                        throw new UncheckedIOException(failure);
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Add an alias to the store, keeping the first failure to write it
+     *
+     * The failure is not thrown, the bulk lookup would only log it.
+     *
+     * @param store
+     * @param imdbId
+     * @param rtId
+     * @param failure Holds the first failure
+     */
+    private static void storeAlias(AliasStore store, int imdbId, int rtId, AtomicReference<IOException> failure) {
+        try {
+            store.put(imdbId, Math.max(rtId, AliasStore.NO_MATCH));
+        } catch (IOException ex) {
+            failure.compareAndSet(null, ex);
+        }
+    }
+
+    /**
+     * Check if the failure means the API has no movie for the ID
+     *
+     * @param ex
+     * @return
+     */
+    private static boolean isNoMatch(RottenTomatoesException ex) {
+        if (ex.getExceptionType() == ApiExceptionType.HTTP_404_ERROR) {
+            return true;
+        }
+        return ex.getExceptionType() == ApiExceptionType.MAPPING_FAILED
+                && StringUtils.containsIgnoreCase(ex.getResponse(), NO_MATCH_ERROR);
+    }
+
+    /**
+     * Pulls the complete movie cast for a movie
+     *
+     * @param movieId RT Movie ID
+     * @return
+     */
+    public CompletableFuture<List<RTCast>> getCastInfo(int movieId) {
+        if (nonBlocking) {
+            return requestList(RottenTomatoesApi.castInfoProperties(movieId), WrapperLists::getCast);
+        }
+        return submit(() -> api.getCastInfo(movieId));
+    }
+
+    /**
+     * Related movie clips and trailers for a movie
+     *
+     * @param movieId RT Movie ID
+     * @return
+     */
+    public CompletableFuture<List<RTClip>> getMovieClips(int movieId) {
+        if (nonBlocking) {
+            return requestList(RottenTomatoesApi.movieClipsProperties(movieId), WrapperLists::getClips);
+        }
+        return submit(() -> api.getMovieClips(movieId));
+    }
+
+    /**
+     * Retrieves the reviews for a movie
+     *
+     * @param movieId
+     * @param reviewType
+     * @param pageLimit
+     * @param page
+     * @param country
+     * @return
+     */
+    public CompletableFuture<List<Review>> getMoviesReviews(int movieId, String reviewType, int pageLimit, int page, String country) {
+        if (nonBlocking) {
+            return requestList(RottenTomatoesApi.moviesReviewsProperties(movieId, reviewType, pageLimit, page, country), WrapperLists::getReviews);
+        }
+        return submit(() -> api.getMoviesReviews(movieId, reviewType, pageLimit, page, country));
+    }
+
+    /**
+     * Retrieves the reviews for a movie
+     *
+     * @param movieId
+     * @param reviewType
+     * @param country
+     * @return
+     */
+    public CompletableFuture<List<Review>> getMoviesReviews(int movieId, String reviewType, String country) {
+        return getMoviesReviews(movieId, reviewType, RottenTomatoesApi.DEFAULT_PAGE_LIMIT, RottenTomatoesApi.DEFAULT_PAGE, country);
+    }
+
+    /**
+     * Retrieves the reviews for a movie
+     *
+     * @param movieId
+     * @param country
+     * @return
+     */
+    public CompletableFuture<List<Review>> getMoviesReviews(int movieId, String country) {
+        return getMoviesReviews(movieId, RottenTomatoesApi.DEFAULT_REVIEW, RottenTomatoesApi.DEFAULT_PAGE_LIMIT, RottenTomatoesApi.DEFAULT_PAGE, country);
+    }
+
+    /**
+     * Retrieves the reviews for a movie
+     *
+     * @param movieId
+     * @return
+     */
+    public CompletableFuture<List<Review>> getMoviesReviews(int movieId) {
+        return getMoviesReviews(movieId, RottenTomatoesApi.DEFAULT_COUNTRY);
+    }
+
+    /**
+     * Returns similar movies to a movie
+     *
+     * @param movieId RT Movie ID
+     * @param limit Limit number of returned movies
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getMoviesSimilar(int movieId, int limit) {
+        if (nonBlocking) {
+            return requestList(RottenTomatoesApi.moviesSimilarProperties(movieId, limit), WrapperLists::getMovies);
+        }
+        return submit(() -> api.getMoviesSimilar(movieId, limit));
+    }
+
+    /**
+     * Returns similar movies to a movie
+     *
+     * @param movieId RT Movie ID
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getMoviesSimilar(int movieId) {
+        return getMoviesSimilar(movieId, RottenTomatoesApi.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Fetch every part of a movie at the same time
+     *
+     * @param movieId RT Movie ID
+     * @return
+     * @see #getFullMovie(int, Set, long, TimeUnit)
+     */
+    public CompletableFuture<FullMovie> getFullMovie(int movieId) {
+        return getFullMovie(movieId, MoviePart.ALL, DEFAULT_PART_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Fetch the chosen parts of a movie at the same time
+     *
+     * Each part is a separate call run on the executor, so the result arrives
+     * after about as long as the slowest part. A part that fails or takes
+     * longer than the timeout is marked as such in the result and does not
+     * affect the other parts, so the future itself does not fail.
+     *
+     * A timed out call is not interrupted; its result is ignored when it
+     * arrives.
+     *
+     * @param movieId RT Movie ID
+     * @param parts The parts to fetch
+     * @param timeout The longest to wait for each part
+     * @param unit
+     * @return
+     */
+    public CompletableFuture<FullMovie> getFullMovie(int movieId, Set<MoviePart> parts, long timeout, TimeUnit unit) {
+        final FullMovie fullMovie = new FullMovie(movieId, parts);
+        List<CompletableFuture<?>> futures = new ArrayList<CompletableFuture<?>>(parts.size());
+        for (final MoviePart part : parts) {
+            futures.add(withTimeout(fetchPart(movieId, part), timeout, unit).handle((value, ex) -> {
+                if (ex == null) {
+                    fullMovie.setPart(part, value);
+                } else {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof TimeoutException) {
+                        fullMovie.setFailure(part, FullMovie.Status.TIMED_OUT,
+                                new RottenTomatoesException(ApiExceptionType.CONNECTION_ERROR, "Timed out fetching " + part, String.valueOf(movieId), cause));
+                    } else if (cause instanceof RottenTomatoesException) {
+                        fullMovie.setFailure(part, FullMovie.Status.FAILED, (RottenTomatoesException) cause);
+                    } else {
+                        fullMovie.setFailure(part, FullMovie.Status.FAILED,
+                                new RottenTomatoesException(ApiExceptionType.UNKNOWN_CAUSE, "Failed to fetch " + part, String.valueOf(movieId), cause));
+                    }
+                }
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).thenApply(done -> fullMovie);
+    }
+
+    /**
+     * Start the call for a part of a movie
+     *
+     * @param movieId
+     * @param part
+     * @return
+     */
+    private CompletableFuture<?> fetchPart(int movieId, MoviePart part) {
+        switch (part) {
+            case INFO:
+                return getDetailedInfo(movieId);
+            case CAST:
+                return getCastInfo(movieId);
+            case CLIPS:
+                return getMovieClips(movieId);
+            case REVIEWS:
+                return getMoviesReviews(movieId);
+            case SIMILAR:
+                return getMoviesSimilar(movieId);
+            default:
+                throw new IllegalArgumentException("Unknown part " + part);
+        }
+    }
+
+    /**
+     * Get a future with the result of the source, or a TimeoutException if the
+     * source is not done in time
+     *
+     * The source is left as it is, so a timeout does not fail other callers
+     * that are sharing it.
+     *
+     * @param <T>
+     * @param future
+     * @param timeout
+     * @param unit
+     * @return a new future
+     */
+    private static <T> CompletableFuture<T> withTimeout(final CompletableFuture<T> future, long timeout, TimeUnit unit) {
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+        final ScheduledFuture<?> timer = TIMEOUTS.schedule(() -> result.completeExceptionally(new TimeoutException()), timeout, unit);
+        future.whenComplete((value, ex) -> {
+            timer.cancel(false);
+            if (ex == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(ex);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Provides a movie lookup by an id from a different vendor
+     *
+     * @param altMovieId
+     * @param type
+     * @return
+     */
+    public CompletableFuture<RTMovie> getMoviesAlias(String altMovieId, String type) {
+        if (nonBlocking) {
+            return api.getResponseAsync(RTMovie.class, RottenTomatoesApi.moviesAliasProperties(altMovieId, type));
+        }
+        return submit(() -> api.getMoviesAlias(altMovieId, type));
+    }
+
+    /**
+     * The movies search endpoint for plain text queries.
+     *
+     * @param query
+     * @param pageLimit
+     * @param page
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getMoviesSearch(String query, int pageLimit, int page) {
+        if (nonBlocking) {
+            try {
+                return requestList(RottenTomatoesApi.moviesSearchProperties(query, pageLimit, page), WrapperLists::getMovies);
+            } catch (RottenTomatoesException ex) {
+                CompletableFuture<List<RTMovie>> failed = new CompletableFuture<List<RTMovie>>();
+                failed.completeExceptionally(ex);
+                return failed;
+            }
+        }
+        return submit(() -> api.getMoviesSearch(query, pageLimit, page));
+    }
+
+    /**
+     * The movies search endpoint for plain text queries.
+     *
+     * @param query
+     * @return
+     */
+    public CompletableFuture<List<RTMovie>> getMoviesSearch(String query) {
+        return getMoviesSearch(query, RottenTomatoesApi.DEFAULT_PAGE_LIMIT, RottenTomatoesApi.DEFAULT_PAGE);
+    }
+
+    /**
+     * Displays the top level lists available in the API
+     *
+     * @return
+     */
+    public CompletableFuture<Map<String, String>> getListsDirectory() {
+        if (nonBlocking) {
+            return requestLinks(RottenTomatoesApi.listsDirectoryProperties());
+        }
+        return submit(() -> api.getListsDirectory());
+    }
+
+    /**
+     * Shows the movie lists available
+     *
+     * @return
+     */
+    public CompletableFuture<Map<String, String>> getMovieListsDirectory() {
+        if (nonBlocking) {
+            return requestLinks(RottenTomatoesApi.movieListsDirectoryProperties());
+        }
+        return submit(() -> api.getMovieListsDirectory());
+    }
+
+    /**
+     * Shows the DVD lists available
+     *
+     * @return
+     */
+    public CompletableFuture<Map<String, String>> getDvdListsDirectory() {
+        if (nonBlocking) {
+            return requestLinks(RottenTomatoesApi.dvdListsDirectoryProperties());
+        }
+        return submit(() -> api.getDvdListsDirectory());
+    }
+}
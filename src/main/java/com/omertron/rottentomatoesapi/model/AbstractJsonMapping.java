@@ -19,13 +19,11 @@
  */
 package com.omertron.rottentomatoesapi.model;
 
-import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.omertron.rottentomatoesapi.wrapper.IWrapperError;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import org.apache.commons.lang3.StringUtils;
@@ -33,14 +31,16 @@ import org.apache.commons.lang3.StringUtils;
 /**
  * Abstract base class for the RT objects
  *
- * Handles any unknown properties by outputting a log message<br/>
- * Handles error messages
+ * Handles error messages<br/>
+ * Unknown properties are ignored, so the models can be read with any
+ * ObjectMapper. The readers in JsonReaders pass them to UnknownProperties
+ * instead, which can count them.
  *
  * @author stuart.boston
  */
+@JsonIgnoreProperties(ignoreUnknown = true)
 public abstract class AbstractJsonMapping implements Serializable, IWrapperError {
 
-    private static final Logger LOG = LoggerFactory.getLogger(AbstractJsonMapping.class);
     @JsonProperty("error")
     private String error = "";
 
@@ -64,21 +64,6 @@ public abstract class AbstractJsonMapping implements Serializable, IWrapperError
         return StringUtils.isBlank(error);
     }
 
-    /**
-     * Handle unknown properties and print a message
-     *
-     * @param key
-     * @param value
-     */
-    @JsonAnySetter
-    protected void handleUnknown(String key, Object value) {
-        StringBuilder unknown = new StringBuilder(this.getClass().getSimpleName());
-        unknown.append(": Unknown property='").append(key);
-        unknown.append("' value='").append(value).append("'");
-
-        LOG.trace(unknown.toString());
-    }
-
     @Override
     public String toString() {
         return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
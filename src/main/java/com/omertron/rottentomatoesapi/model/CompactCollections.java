@@ -0,0 +1,269 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.model;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Memory efficient forms of the collections held by the model objects
+ *
+ * Empty collections are replaced with the shared immutable empty instances
+ * and small maps and sets are copied into read only arrays, which take a
+ * fraction of the space of a HashMap or HashSet with the same entries.
+ *
+ * The collections returned are always read only, whatever their size.
+ *
+ * @author Stuart
+ */
+public final class CompactCollections {
+
+    /**
+     * The largest map or set that is stored in an array
+     */
+    public static final int MAX_ARRAY_SIZE = 8;
+    /*
+     * The read only wrappers, so that compacting twice does not wrap again
+     */
+    private static final Class<?> UNMODIFIABLE_MAP = Collections.unmodifiableMap(Collections.emptyMap()).getClass();
+    private static final Class<?> UNMODIFIABLE_SET = Collections.unmodifiableSet(Collections.emptySet()).getClass();
+    private static final Class<?> UNMODIFIABLE_LIST = Collections.unmodifiableList(new ArrayList<Object>()).getClass();
+
+    private CompactCollections() {
+        throw new UnsupportedOperationException("Class can not be instantiated");
+    }
+
+    /**
+     * Get a compact copy of the map
+     *
+     * Maps of up to MAX_ARRAY_SIZE entries are copied into an array, larger
+     * maps are wrapped as read only.
+     *
+     * @param <K>
+     * @param <V>
+     * @param map
+     * @return
+     */
+    public static <K, V> Map<K, V> compactMap(Map<K, V> map) {
+        if (map == null || map.isEmpty()) {
+            return Collections.emptyMap();
+        } else if (map instanceof ArrayMap || map.getClass() == UNMODIFIABLE_MAP) {
+            return map;
+        } else if (map.size() == 1) {
+            Map.Entry<K, V> entry = map.entrySet().iterator().next();
+            return Collections.singletonMap(entry.getKey(), entry.getValue());
+        } else if (map.size() <= MAX_ARRAY_SIZE) {
+            return new ArrayMap<K, V>(map);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Get a compact copy of the set
+     *
+     * Sets of up to MAX_ARRAY_SIZE entries are copied into an array, larger
+     * sets are wrapped as read only.
+     *
+     * @param <T>
+     * @param set
+     * @return
+     */
+    public static <T> Set<T> compactSet(Set<T> set) {
+        if (set == null || set.isEmpty()) {
+            return Collections.emptySet();
+        } else if (set instanceof ArraySet || set.getClass() == UNMODIFIABLE_SET) {
+            return set;
+        } else if (set.size() == 1) {
+            return Collections.singleton(set.iterator().next());
+        } else if (set.size() <= MAX_ARRAY_SIZE) {
+            return new ArraySet<T>(set);
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    /**
+     * Get a compact form of the list
+     *
+     * Empty lists are replaced with the shared empty list, other lists keep
+     * their contents but have any spare capacity trimmed and are wrapped as
+     * read only.
+     *
+     * @param <T>
+     * @param list
+     * @return
+     */
+    public static <T> List<T> compactList(List<T> list) {
+        if (list == null || list.isEmpty()) {
+            return Collections.emptyList();
+        } else if (list.getClass() == UNMODIFIABLE_LIST) {
+            return list;
+        } else if (list instanceof ArrayList) {
+            ((ArrayList<T>) list).trimToSize();
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Read only map held as alternating keys and values in one array
+     */
+    private static final class ArrayMap<K, V> extends AbstractMap<K, V> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private final Object[] keysAndValues;
+
+        ArrayMap(Map<K, V> map) {
+            keysAndValues = new Object[map.size() * 2];
+            int index = 0;
+            for (Map.Entry<K, V> entry : map.entrySet()) {
+                keysAndValues[index++] = entry.getKey();
+                keysAndValues[index++] = entry.getValue();
+            }
+        }
+
+        @Override
+        public int size() {
+            return keysAndValues.length / 2;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            int index = indexOf(key);
+            return index < 0 ? null : (V) keysAndValues[index + 1];
+        }
+
+        private int indexOf(Object key) {
+            for (int index = 0; index < keysAndValues.length; index += 2) {
+                Object current = keysAndValues[index];
+                if (current == null ? key == null : current.equals(key)) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new AbstractSet<Map.Entry<K, V>>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new ArrayIterator<Map.Entry<K, V>>(size()) {
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        Map.Entry<K, V> get(int index) {
+                            return new AbstractMap.SimpleImmutableEntry<K, V>((K) keysAndValues[index * 2], (V) keysAndValues[index * 2 + 1]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return ArrayMap.this.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * Read only set held in an array
+     */
+    private static final class ArraySet<T> extends AbstractSet<T> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private final Object[] elements;
+
+        ArraySet(Collection<T> set) {
+            elements = set.toArray();
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            for (Object element : elements) {
+                if (element == null ? o == null : element.equals(o)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new ArrayIterator<T>(elements.length) {
+                @Override
+                @SuppressWarnings("unchecked")
+                T get(int index) {
+                    return (T) elements[index];
+                }
+            };
+        }
+    }
+
+    /**
+     * Read only iterator over an index
+     */
+    private abstract static class ArrayIterator<T> implements Iterator<T> {
+
+        private final int size;
+        private int next;
+
+        ArrayIterator(int size) {
+            this.size = size;
+        }
+
+        abstract T get(int index);
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public T next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            return get(next++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Collection is read only");
+        }
+    }
+}
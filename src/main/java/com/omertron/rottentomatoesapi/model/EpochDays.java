@@ -0,0 +1,115 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.model;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Decode the API dates into days since 1970-01-01
+ *
+ * The API returns dates as "yyyy-MM-dd" strings. The models decode them once
+ * when they are mapped, so filtering on a date window is an int comparison.
+ *
+ * @author Stuart
+ */
+public final class EpochDays {
+
+    /**
+     * The value used when the date is missing or can not be decoded
+     */
+    public static final int MISSING = Integer.MIN_VALUE;
+    private static final int DATE_LENGTH = 10;
+
+    private EpochDays() {
+        throw new UnsupportedOperationException("Class can not be instantiated");
+    }
+
+    /**
+     * Decode a "yyyy-MM-dd" date
+     *
+     * @param date
+     * @return the epoch day, or MISSING
+     */
+    public static int parse(String date) {
+        if (date == null || date.length() != DATE_LENGTH || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return MISSING;
+        }
+
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 7);
+        int day = digits(date, 8, 10);
+        if (year < 0 || month < 0 || day < 0) {
+            return MISSING;
+        }
+
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException ex) {
+            return MISSING;
+        }
+    }
+
+    private static int digits(String value, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /**
+     * Today's date as an epoch day
+     *
+     * @return
+     */
+    public static int today() {
+        return (int) LocalDate.now().toEpochDay();
+    }
+
+    /**
+     * Convert an epoch day back to a date
+     *
+     * @param epochDay
+     * @return the date, or null if it is MISSING
+     */
+    public static LocalDate toLocalDate(int epochDay) {
+        if (epochDay == MISSING) {
+            return null;
+        }
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Check if an epoch day falls in a window
+     *
+     * @param epochDay
+     * @param from the first day, inclusive
+     * @param to the last day, inclusive
+     * @return false if the day is MISSING
+     */
+    public static boolean isBetween(int epochDay, int from, int to) {
+        return epochDay != MISSING && epochDay >= from && epochDay <= to;
+    }
+}
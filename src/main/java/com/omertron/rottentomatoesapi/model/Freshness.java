@@ -0,0 +1,74 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The freshness of a review
+ *
+ * @author Stuart
+ */
+public enum Freshness {
+
+    FRESH("fresh"),
+    ROTTEN("rotten"),
+    UNKNOWN("");
+
+    /*
+     * Case insensitive without allocating or depending on the default locale
+     */
+    private static final Map<String, Freshness> LOOKUP = new TreeMap<String, Freshness>(String.CASE_INSENSITIVE_ORDER);
+    private final String label;
+
+    static {
+        for (Freshness value : values()) {
+            LOOKUP.put(value.label, value);
+        }
+    }
+
+    Freshness(String label) {
+        this.label = label;
+    }
+
+    /**
+     * The value used by the API
+     *
+     * @return
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Get the freshness for the API value
+     *
+     * @param label
+     * @return the freshness, UNKNOWN if the value is not recognised
+     */
+    public static Freshness fromLabel(String label) {
+        if (label == null) {
+            return UNKNOWN;
+        }
+        Freshness value = LOOKUP.get(label);
+        return value == null ? UNKNOWN : value;
+    }
+}
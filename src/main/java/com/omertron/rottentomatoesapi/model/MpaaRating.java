@@ -0,0 +1,78 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The MPAA ratings used by the API
+ *
+ * @author Stuart
+ */
+public enum MpaaRating {
+
+    G("G"),
+    PG("PG"),
+    PG_13("PG-13"),
+    R("R"),
+    NC_17("NC-17"),
+    UNRATED("Unrated"),
+    UNKNOWN("");
+
+    /*
+     * Case insensitive without allocating or depending on the default locale
+     */
+    private static final Map<String, MpaaRating> LOOKUP = new TreeMap<String, MpaaRating>(String.CASE_INSENSITIVE_ORDER);
+    private final String label;
+
+    static {
+        for (MpaaRating rating : values()) {
+            LOOKUP.put(rating.label, rating);
+        }
+    }
+
+    MpaaRating(String label) {
+        this.label = label;
+    }
+
+    /**
+     * The value used by the API
+     *
+     * @return
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Get the rating for the API value
+     *
+     * @param label
+     * @return the rating, UNKNOWN if the value is not recognised
+     */
+    public static MpaaRating fromLabel(String label) {
+        if (label == null) {
+            return UNKNOWN;
+        }
+        MpaaRating rating = LOOKUP.get(label);
+        return rating == null ? UNKNOWN : rating;
+    }
+}
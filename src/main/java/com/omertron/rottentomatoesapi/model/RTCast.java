@@ -21,7 +21,7 @@ package com.omertron.rottentomatoesapi.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.io.Serializable;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Set;
 
 public class RTCast extends AbstractJsonMapping implements Serializable {
@@ -38,7 +38,7 @@ public class RTCast extends AbstractJsonMapping implements Serializable {
     @JsonProperty("name")
     private String castName;
     @JsonProperty("characters")
-    private Set<String> characters = new HashSet<String>();
+    private Set<String> characters = Collections.emptySet();
 
     //<editor-fold defaultstate="collapsed" desc="Getter methods">
     public String getCastName() {
@@ -60,7 +60,7 @@ public class RTCast extends AbstractJsonMapping implements Serializable {
     }
 
     public void setCharacters(Set<String> characters) {
-        this.characters = characters;
+        this.characters = CompactCollections.compactSet(characters);
     }
 
     public void setId(int id) {
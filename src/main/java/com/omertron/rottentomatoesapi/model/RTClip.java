@@ -21,7 +21,7 @@ package com.omertron.rottentomatoesapi.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
 
 public class RTClip extends AbstractJsonMapping implements Serializable {
@@ -40,7 +40,7 @@ public class RTClip extends AbstractJsonMapping implements Serializable {
     @JsonProperty("thumbnail")
     private String thumbnail;
     @JsonProperty("links")
-    private Map<String, String> links = new HashMap<String, String>();
+    private Map<String, String> links = Collections.emptyMap();
 
     //<editor-fold defaultstate="collapsed" desc="Getter methods">
     public int getDuration() {
@@ -66,7 +66,7 @@ public class RTClip extends AbstractJsonMapping implements Serializable {
     }
 
     public void setLinks(Map<String, String> links) {
-        this.links = links;
+        this.links = CompactCollections.compactMap(links);
     }
 
     public void setThumbnail(String thumbnail) {
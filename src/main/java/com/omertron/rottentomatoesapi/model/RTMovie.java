@@ -22,10 +22,11 @@ package com.omertron.rottentomatoesapi.model;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Map;
 import java.util.Set;
+import org.apache.commons.lang3.math.NumberUtils;
 
 /**
  * The Rotten Tomatoes movie details
@@ -34,10 +35,41 @@ import java.util.Set;
  *
  * @author Stuart.Boston
  */
-@JsonIgnoreProperties({"critics_consensus"})
+@JsonIgnoreProperties(value = {"critics_consensus"}, ignoreUnknown = true)
 public class RTMovie extends AbstractJsonMapping implements Serializable {
 
     private static final long serialVersionUID = 1L;
+    /*
+     * Keys of the ratings
+     */
+    public static final String RATING_CRITICS = "critics_rating";
+    public static final String RATING_AUDIENCE = "audience_rating";
+    public static final String SCORE_CRITICS = "critics_score";
+    public static final String SCORE_AUDIENCE = "audience_score";
+    public static final String RELEASE_THEATER = "theater";
+    public static final String RELEASE_DVD = "dvd";
+    /**
+     * The score used when the movie has no score, as the API does
+     */
+    public static final int SCORE_ABSENT = -1;
+    /**
+     * Orders movies by critics score, highest first, with absent scores last
+     */
+    public static final Comparator<RTMovie> BY_CRITICS_SCORE = new Comparator<RTMovie>() {
+        @Override
+        public int compare(RTMovie first, RTMovie second) {
+            return Integer.compare(second.criticsScore, first.criticsScore);
+        }
+    };
+    /**
+     * Orders movies by audience score, highest first, with absent scores last
+     */
+    public static final Comparator<RTMovie> BY_AUDIENCE_SCORE = new Comparator<RTMovie>() {
+        @Override
+        public int compare(RTMovie first, RTMovie second) {
+            return Integer.compare(second.audienceScore, first.audienceScore);
+        }
+    };
     @JsonProperty("id")
     private int id;
     @JsonProperty("title")
@@ -47,27 +79,46 @@ public class RTMovie extends AbstractJsonMapping implements Serializable {
     @JsonProperty("year")
     private int year;
     @JsonProperty("mpaa_rating")
-    private String mpaaRating;
+    private MpaaRating mpaaRating = MpaaRating.UNKNOWN;
+    /*
+     * The API value when it is not a known rating
+     */
+    private String otherMpaaRating;
     @JsonProperty("runtime")
     private int runtime;
     @JsonProperty("release_dates")
-    private Map<String, String> releaseDates = new HashMap<String, String>();
+    private Map<String, String> releaseDates = Collections.emptyMap();
     @JsonProperty("ratings")
-    private Map<String, String> ratings = new HashMap<String, String>();
+    private Map<String, String> ratings = Collections.emptyMap();
     @JsonProperty("posters")
-    private Map<String, String> artwork = new HashMap<String, String>();
+    private Map<String, String> artwork = Collections.emptyMap();
     @JsonProperty("abridged_cast")
-    private Set<RTCast> cast = new HashSet<RTCast>();
+    private Set<RTCast> cast = Collections.emptySet();
     @JsonProperty("alternate_ids")
-    private Map<String, String> alternateIds = new HashMap<String, String>();
+    private Map<String, String> alternateIds = Collections.emptyMap();
     @JsonProperty("links")
-    private Map<String, String> links = new HashMap<String, String>();
+    private Map<String, String> links = Collections.emptyMap();
     @JsonProperty("genres")
-    private Set<String> genres = new HashSet<String>();
+    private Set<String> genres = Collections.emptySet();
     @JsonProperty("abridged_directors")
-    private Set<RTPerson> directors = new HashSet<RTPerson>();
+    private Set<RTPerson> directors = Collections.emptySet();
     @JsonProperty("studio")
     private String studio;
+    /*
+     * Scores parsed from the ratings
+     */
+    private int criticsScore = SCORE_ABSENT;
+    private int audienceScore = SCORE_ABSENT;
+    /*
+     * Rating labels looked up from the ratings
+     */
+    private RatingLabel criticsRating = RatingLabel.UNKNOWN;
+    private RatingLabel audienceRating = RatingLabel.UNKNOWN;
+    /*
+     * Release dates decoded from the release dates
+     */
+    private int theaterReleaseDay = EpochDays.MISSING;
+    private int dvdReleaseDay = EpochDays.MISSING;
     @JsonProperty("link_template")
     private String linkTemplate;
 
@@ -104,11 +155,26 @@ public class RTMovie extends AbstractJsonMapping implements Serializable {
     }
 
     public String getMpaaRating() {
-        return mpaaRating;
+        return mpaaRating == MpaaRating.UNKNOWN ? otherMpaaRating : mpaaRating.getLabel();
     }
 
+    /**
+     * Set the MPAA rating and look up the enum for it
+     *
+     * @param mpaaRating
+     */
     public void setMpaaRating(String mpaaRating) {
-        this.mpaaRating = mpaaRating;
+        this.mpaaRating = MpaaRating.fromLabel(mpaaRating);
+        this.otherMpaaRating = this.mpaaRating == MpaaRating.UNKNOWN ? StringDictionary.intern(mpaaRating) : null;
+    }
+
+    /**
+     * The MPAA rating as an enum
+     *
+     * @return the rating, UNKNOWN if it is missing or not recognised
+     */
+    public MpaaRating getMpaaRatingType() {
+        return mpaaRating;
     }
 
     public int getRuntime() {
@@ -123,16 +189,101 @@ public class RTMovie extends AbstractJsonMapping implements Serializable {
         return releaseDates;
     }
 
+    /**
+     * Set the release dates and decode the theater and DVD dates
+     *
+     * @param releaseDates
+     */
     public void setReleaseDates(Map<String, String> releaseDates) {
-        this.releaseDates = releaseDates;
+        this.releaseDates = CompactCollections.compactMap(releaseDates);
+        this.theaterReleaseDay = EpochDays.parse(this.releaseDates.get(RELEASE_THEATER));
+        this.dvdReleaseDay = EpochDays.parse(this.releaseDates.get(RELEASE_DVD));
+    }
+
+    /**
+     * The theater release date, decoded from the release dates
+     *
+     * @return the epoch day, or EpochDays.MISSING
+     */
+    public int getTheaterReleaseDay() {
+        return theaterReleaseDay;
+    }
+
+    /**
+     * The DVD release date, decoded from the release dates
+     *
+     * @return the epoch day, or EpochDays.MISSING
+     */
+    public int getDvdReleaseDay() {
+        return dvdReleaseDay;
     }
 
     public Map<String, String> getRatings() {
         return ratings;
     }
 
+    /**
+     * Set the ratings and parse the scores and labels from them
+     *
+     * @param ratings
+     */
     public void setRatings(Map<String, String> ratings) {
-        this.ratings = ratings;
+        this.ratings = CompactCollections.compactMap(StringDictionary.internValues(ratings));
+        this.criticsScore = parseScore(this.ratings.get(SCORE_CRITICS));
+        this.audienceScore = parseScore(this.ratings.get(SCORE_AUDIENCE));
+        this.criticsRating = RatingLabel.fromLabel(this.ratings.get(RATING_CRITICS));
+        this.audienceRating = RatingLabel.fromLabel(this.ratings.get(RATING_AUDIENCE));
+    }
+
+    private static int parseScore(String score) {
+        int value = NumberUtils.toInt(score, SCORE_ABSENT);
+        return value < 0 ? SCORE_ABSENT : value;
+    }
+
+    /**
+     * The critics score, parsed from the ratings
+     *
+     * @return the score from 0 to 100, or SCORE_ABSENT
+     */
+    public int getCriticsScore() {
+        return criticsScore;
+    }
+
+    /**
+     * The audience score, parsed from the ratings
+     *
+     * @return the score from 0 to 100, or SCORE_ABSENT
+     */
+    public int getAudienceScore() {
+        return audienceScore;
+    }
+
+    public boolean hasCriticsScore() {
+        return criticsScore != SCORE_ABSENT;
+    }
+
+    public boolean hasAudienceScore() {
+        return audienceScore != SCORE_ABSENT;
+    }
+
+    /**
+     * The critics rating label, such as "Certified Fresh", looked up when the
+     * ratings were set
+     *
+     * @return the label, UNKNOWN if it is missing or not recognised
+     */
+    public RatingLabel getCriticsRating() {
+        return criticsRating;
+    }
+
+    /**
+     * The audience rating label, such as "Upright", looked up when the
+     * ratings were set
+     *
+     * @return the label, UNKNOWN if it is missing or not recognised
+     */
+    public RatingLabel getAudienceRating() {
+        return audienceRating;
     }
 
     public Map<String, String> getArtwork() {
@@ -140,7 +291,7 @@ public class RTMovie extends AbstractJsonMapping implements Serializable {
     }
 
     public void setArtwork(Map<String, String> artwork) {
-        this.artwork = artwork;
+        this.artwork = CompactCollections.compactMap(artwork);
     }
 
     public Set<RTCast> getCast() {
@@ -148,7 +299,7 @@ public class RTMovie extends AbstractJsonMapping implements Serializable {
     }
 
     public void setCast(Set<RTCast> cast) {
-        this.cast = cast;
+        this.cast = CompactCollections.compactSet(cast);
     }
 
     public Map<String, String> getAlternateIds() {
@@ -156,7 +307,7 @@ public class RTMovie extends AbstractJsonMapping implements Serializable {
     }
 
     public void setAlternateIds(Map<String, String> alternateIds) {
-        this.alternateIds = alternateIds;
+        this.alternateIds = CompactCollections.compactMap(alternateIds);
     }
 
     public Map<String, String> getLinks() {
@@ -164,7 +315,7 @@ public class RTMovie extends AbstractJsonMapping implements Serializable {
     }
 
     public void setLinks(Map<String, String> links) {
-        this.links = links;
+        this.links = CompactCollections.compactMap(links);
     }
 
     public Set<String> getGenres() {
@@ -172,7 +323,7 @@ public class RTMovie extends AbstractJsonMapping implements Serializable {
     }
 
     public void setGenres(Set<String> genres) {
-        this.genres = genres;
+        this.genres = CompactCollections.compactSet(StringDictionary.internAll(genres));
     }
 
     public Set<RTPerson> getDirectors() {
@@ -180,7 +331,7 @@ public class RTMovie extends AbstractJsonMapping implements Serializable {
     }
 
     public void setDirectors(Set<RTPerson> directors) {
-        this.directors = directors;
+        this.directors = CompactCollections.compactSet(directors);
     }
 
     public String getStudio() {
@@ -188,7 +339,7 @@ public class RTMovie extends AbstractJsonMapping implements Serializable {
     }
 
     public void setStudio(String studio) {
-        this.studio = studio;
+        this.studio = StringDictionary.intern(studio);
     }
 
     public String getLinkTemplate() {
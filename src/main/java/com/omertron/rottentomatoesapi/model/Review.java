@@ -21,7 +21,7 @@ package com.omertron.rottentomatoesapi.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
 
 public class Review extends AbstractJsonMapping implements Serializable {
@@ -40,13 +40,18 @@ public class Review extends AbstractJsonMapping implements Serializable {
     @JsonProperty("original_score")
     private String originalScore = "";
     @JsonProperty("freshness")
-    private String freshness;
+    private Freshness freshness = Freshness.UNKNOWN;
+    /*
+     * The API value when it is not a known freshness
+     */
+    private String otherFreshness;
     @JsonProperty("publication")
     private String publication;
     @JsonProperty("quote")
     private String quote;
     @JsonProperty("links")
-    private Map<String, String> links = new HashMap<String, String>();
+    private Map<String, String> links = Collections.emptyMap();
+    private int dateDay = EpochDays.MISSING;
 
     //<editor-fold defaultstate="collapsed" desc="Getter methods">
     public String getCritic() {
@@ -57,11 +62,29 @@ public class Review extends AbstractJsonMapping implements Serializable {
         return date;
     }
 
+    /**
+     * The review date, decoded when it was set
+     *
+     * @return the epoch day, or EpochDays.MISSING
+     */
+    public int getDateDay() {
+        return dateDay;
+    }
+
     public String getOriginalScore() {
         return originalScore;
     }
 
     public String getFreshness() {
+        return freshness == Freshness.UNKNOWN ? otherFreshness : freshness.getLabel();
+    }
+
+    /**
+     * The freshness as an enum
+     *
+     * @return the freshness, UNKNOWN if it is missing or not recognised
+     */
+    public Freshness getFreshnessType() {
         return freshness;
     }
 
@@ -85,6 +108,7 @@ public class Review extends AbstractJsonMapping implements Serializable {
 
     public void setDate(String date) {
         this.date = date;
+        this.dateDay = EpochDays.parse(date);
     }
 
     public void setOriginalScore(String originalScore) {
@@ -92,11 +116,12 @@ public class Review extends AbstractJsonMapping implements Serializable {
     }
 
     public void setFreshness(String freshness) {
-        this.freshness = freshness;
+        this.freshness = Freshness.fromLabel(freshness);
+        this.otherFreshness = this.freshness == Freshness.UNKNOWN ? StringDictionary.intern(freshness) : null;
     }
 
     public void setLinks(Map<String, String> links) {
-        this.links = links;
+        this.links = CompactCollections.compactMap(links);
     }
 
     public void setPublication(String publication) {
@@ -0,0 +1,160 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.model;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shared dictionary for the strings that repeat across many model objects
+ *
+ * When enabled, the model setters replace values such as the MPAA rating,
+ * studio, genres, rating labels and review freshness with a single shared
+ * instance of the string, so a large catalogue holds one copy of each rather
+ * than one per object. The values of the enums MpaaRating, RatingLabel and
+ * Freshness are held as the enum labels.
+ *
+ * The dictionary stops growing once it reaches its size limit, after which
+ * new values are kept as they are.
+ *
+ * @author Stuart
+ */
+public final class StringDictionary {
+
+    public static final int MAX_ENTRIES = 10000;
+    private static final ConcurrentMap<String, String> ENTRIES = new ConcurrentHashMap<String, String>();
+    private static volatile boolean enabled = false;
+
+    static {
+        seed();
+    }
+
+    private StringDictionary() {
+        throw new UnsupportedOperationException("Class can not be instantiated");
+    }
+
+    /**
+     * Share the repeated strings in models mapped from now on
+     *
+     * @param enabled
+     */
+    public static void setEnabled(boolean enabled) {
+        StringDictionary.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the shared instance of the string
+     *
+     * @param value
+     * @return the shared instance, or the value if the dictionary is disabled
+     * or full
+     */
+    public static String intern(String value) {
+        if (!enabled || value == null) {
+            return value;
+        }
+
+        String shared = ENTRIES.get(value);
+        if (shared != null) {
+            return shared;
+        }
+        if (ENTRIES.size() >= MAX_ENTRIES) {
+            return value;
+        }
+        shared = ENTRIES.putIfAbsent(value, value);
+        return shared == null ? value : shared;
+    }
+
+    /**
+     * Share the strings in the set
+     *
+     * @param values
+     * @return a set of the shared strings, or the values if the dictionary is
+     * disabled
+     */
+    public static Set<String> internAll(Set<String> values) {
+        if (!enabled || values == null || values.isEmpty()) {
+            return values;
+        }
+
+        Set<String> shared = new LinkedHashSet<String>(values.size() * 2);
+        for (String value : values) {
+            shared.add(intern(value));
+        }
+        return shared;
+    }
+
+    /**
+     * Share the values of the map
+     *
+     * @param <K>
+     * @param map
+     * @return a map of the shared values, or the map if the dictionary is
+     * disabled
+     */
+    public static <K> Map<K, String> internValues(Map<K, String> map) {
+        if (!enabled || map == null || map.isEmpty()) {
+            return map;
+        }
+
+        Map<K, String> shared = new LinkedHashMap<K, String>(map.size() * 2);
+        for (Map.Entry<K, String> entry : map.entrySet()) {
+            shared.put(entry.getKey(), intern(entry.getValue()));
+        }
+        return shared;
+    }
+
+    /**
+     * The number of strings held
+     *
+     * @return
+     */
+    public static int size() {
+        return ENTRIES.size();
+    }
+
+    /**
+     * Remove the strings from the dictionary, keeping the enum labels
+     */
+    public static void clear() {
+        ENTRIES.clear();
+        seed();
+    }
+
+    private static void seed() {
+        for (MpaaRating rating : MpaaRating.values()) {
+            ENTRIES.put(rating.getLabel(), rating.getLabel());
+        }
+        for (RatingLabel label : RatingLabel.values()) {
+            ENTRIES.put(label.getLabel(), label.getLabel());
+        }
+        for (Freshness freshness : Freshness.values()) {
+            ENTRIES.put(freshness.getLabel(), freshness.getLabel());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+/**
+ * Base class for the retry policies
+ *
+ * Retries every reason up to the retry limit
+ *
+ * @author Stuart
+ */
+public abstract class AbstractRetryPolicy implements RetryPolicy {
+
+    private final int retryLimit;
+
+    protected AbstractRetryPolicy(int retryLimit) {
+        if (retryLimit < 0) {
+            throw new IllegalArgumentException("Retry limit can not be negative: " + retryLimit);
+        }
+        this.retryLimit = retryLimit;
+    }
+
+    @Override
+    public int getRetryLimit() {
+        return retryLimit;
+    }
+
+    @Override
+    public boolean isRetryable(RetryReason reason) {
+        return true;
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Maps IMDb IDs to Rotten Tomatoes IDs
+ *
+ * The IMDb IDs are held as numbers, without the "tt" prefix, in a primitive
+ * int to int hash table. IDs that the API could not match are kept as
+ * {@link #NO_MATCH} so they are not looked up again.
+ *
+ * If a file is given, every mapping is appended to it as a pair of ints and
+ * the file is read back when the store is opened. A later record for the same
+ * IMDb ID replaces an earlier one. A partly written record at the end of the
+ * file is dropped.
+ *
+ * @author Stuart
+ */
+public class AliasStore implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AliasStore.class);
+    /*
+     * Lookup results
+     */
+    public static final int UNKNOWN = -1;
+    public static final int NO_MATCH = 0;
+    /*
+     * File layout
+     */
+    private static final int MAGIC = 0x5254414C;
+    private static final int HEADER_SIZE = 4;
+    private static final int RECORD_SIZE = 8;
+    private static final String IMDB_PREFIX = "tt";
+    /*
+     * Hash table, a key of 0 is an empty slot
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+    private int[] keys;
+    private int[] values;
+    private int size = 0;
+    private int matches = 0;
+    /*
+     * Persistence
+     */
+    private final File file;
+    private DataOutputStream out;
+
+    /**
+     * Create a store held only in memory
+     */
+    public AliasStore() {
+        this.file = null;
+        this.keys = new int[INITIAL_CAPACITY];
+        this.values = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Open a store backed by a file, loading any mappings already in it
+     *
+     * @param file
+     * @throws IOException
+     */
+    public AliasStore(File file) throws IOException {
+        this.file = file;
+        this.keys = new int[INITIAL_CAPACITY];
+        this.values = new int[INITIAL_CAPACITY];
+        load();
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+
+    /**
+     * Read the mappings from the file, creating it if it is missing
+     *
+     * @throws IOException
+     */
+    private void load() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            if (length < HEADER_SIZE) {
+                channel.truncate(0);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC);
+                channel.write(header, 0);
+                return;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Read the whole file
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not an alias store: " + file);
+            }
+            while (buffer.remaining() >= RECORD_SIZE) {
+                int imdbId = buffer.getInt();
+                int rtId = buffer.getInt();
+                if (imdbId > 0) {
+                    insert(imdbId, rtId);
+                }
+            }
+
+            long valid = length - buffer.remaining();
+            if (valid < length) {
+                LOG.warn("Dropping {} bytes of a partly written record from {}", length - valid, file);
+                channel.truncate(valid);
+            }
+        }
+        LOG.debug("Loaded {} aliases from {}", size, file);
+    }
+
+    /**
+     * Convert an IMDb ID to the number stored
+     *
+     * @param imdbId The ID, with or without the "tt" prefix
+     * @return the number, or UNKNOWN if it is not a valid IMDb ID
+     */
+    public static int parseImdbId(String imdbId) {
+        if (imdbId == null) {
+            return UNKNOWN;
+        }
+        int start = imdbId.regionMatches(true, 0, IMDB_PREFIX, 0, IMDB_PREFIX.length()) ? IMDB_PREFIX.length() : 0;
+        if (start == imdbId.length() || imdbId.length() - start > 9) {
+            return UNKNOWN;
+        }
+
+        int value = 0;
+        for (int i = start; i < imdbId.length(); i++) {
+            char c = imdbId.charAt(i);
+            if (c < '0' || c > '9') {
+                return UNKNOWN;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value > 0 ? value : UNKNOWN;
+    }
+
+    /**
+     * Convert a stored number back to an IMDb ID
+     *
+     * @param imdbId
+     * @return the ID with the "tt" prefix and at least 7 digits
+     */
+    public static String formatImdbId(int imdbId) {
+        return String.format("%s%07d", IMDB_PREFIX, imdbId);
+    }
+
+    /**
+     * Get the Rotten Tomatoes ID for an IMDb ID
+     *
+     * @param imdbId
+     * @return the RT ID, NO_MATCH if the API had no match, or UNKNOWN if it has
+     * not been looked up
+     */
+    public synchronized int get(int imdbId) {
+        if (imdbId <= 0) {
+            return UNKNOWN;
+        }
+        int slot = find(imdbId);
+        return keys[slot] == 0 ? UNKNOWN : values[slot];
+    }
+
+    /**
+     * Check if an IMDb ID has been looked up
+     *
+     * @param imdbId
+     * @return
+     */
+    public boolean contains(int imdbId) {
+        return get(imdbId) != UNKNOWN;
+    }
+
+    /**
+     * Store the Rotten Tomatoes ID for an IMDb ID
+     *
+     * @param imdbId
+     * @param rtId The RT ID, or NO_MATCH
+     * @throws IOException if the mapping could not be written to the file
+     */
+    public synchronized void put(int imdbId, int rtId) throws IOException {
+        if (imdbId <= 0 || rtId < 0) {
+            throw new IllegalArgumentException("Invalid alias: " + imdbId + "=" + rtId);
+        }
+        insert(imdbId, rtId);
+        if (out != null) {
+            out.writeInt(imdbId);
+            out.writeInt(rtId);
+        }
+    }
+
+    private void insert(int imdbId, int rtId) {
+        int slot = find(imdbId);
+        if (keys[slot] == 0) {
+            keys[slot] = imdbId;
+            size++;
+        } else if (values[slot] != NO_MATCH) {
+            matches--;
+        }
+        values[slot] = rtId;
+        if (rtId != NO_MATCH) {
+            matches++;
+        }
+
+        // Keep the table at most half full
+        if (size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    /**
+     * Find the slot holding the key, or the empty slot it would go in
+     *
+     * @param key
+     * @return
+     */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * The number of IMDb IDs held, including those with no match
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * The number of IMDb IDs with a Rotten Tomatoes ID
+     *
+     * @return
+     */
+    public synchronized int getMatchCount() {
+        return matches;
+    }
+
+    /**
+     * Write any buffered mappings to the file
+     *
+     * @throws IOException
+     */
+    public synchronized void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AliasStore{file=" + file + ", size=" + size + ", matches=" + matches + "}";
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Send the requests with an Apache HTTP client
+ *
+ * @author Stuart
+ */
+public class ApacheTransport implements HttpTransport {
+
+    private final HttpClient httpClient;
+
+    public ApacheTransport(HttpClient httpClient) {
+        if (httpClient == null) {
+            throw new IllegalArgumentException("HTTP client can not be null");
+        }
+        this.httpClient = httpClient;
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    @Override
+    public Response get(String url, Map<String, String> headers) throws IOException {
+        HttpGet httpGet = new HttpGet(url);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            httpGet.addHeader(header.getKey(), header.getValue());
+        }
+        return new ApacheResponse(httpClient.execute(httpGet));
+    }
+
+    /**
+     * Wrap the Apache response
+     */
+    private static final class ApacheResponse implements Response {
+
+        private final HttpResponse httpResponse;
+        private final HttpEntity entity;
+
+        ApacheResponse(HttpResponse httpResponse) {
+            this.httpResponse = httpResponse;
+            this.entity = httpResponse.getEntity();
+        }
+
+        @Override
+        public int getStatusCode() {
+            return httpResponse.getStatusLine().getStatusCode();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            Header header = httpResponse.getFirstHeader(name);
+            return header == null ? null : header.getValue();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return entity == null ? null : entity.getContent();
+        }
+
+        @Override
+        public void close() {
+            // Release the connection back to the pool
+            EntityUtils.consumeQuietly(entity);
+        }
+    }
+}
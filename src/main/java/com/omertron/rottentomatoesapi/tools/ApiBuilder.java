@@ -21,6 +21,7 @@ package com.omertron.rottentomatoesapi.tools;
 
 import com.omertron.rottentomatoesapi.RottenTomatoesException;
 import java.util.Map;
+import java.util.TreeMap;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,7 +30,7 @@ import org.yamj.api.common.exception.ApiExceptionType;
 public class ApiBuilder {
 
     private static final Logger LOG = LoggerFactory.getLogger(ApiBuilder.class);
-    private static String apiKey;
+    private static volatile String apiKey;
     // Properties
     public static final String PROPERTY_URL = "url";
     public static final String PROPERTY_LIMIT = "limit";
@@ -47,7 +48,7 @@ public class ApiBuilder {
     // Movie replacement token
     public static final String MOVIE_ID = "{movie-id}";
     // Defaults and max
-    private static final int LIMIT_MAX = 50;
+    public static final int LIMIT_MAX = 50;
     // Constants
     private static final int DEFAULT_COUNTRY_LEN = 2;
 
@@ -62,6 +63,9 @@ public class ApiBuilder {
     /**
      * Create the URL
      *
+     * The properties are only read, never modified, so the same map can be
+     * safely used by the caller afterwards
+     *
      * @param properties
      * @return
      * @throws RottenTomatoesException
@@ -75,18 +79,49 @@ public class ApiBuilder {
         urlBuilder.append(API_VERSION);
 
         urlBuilder.append(getUrlFromProps(properties));
-
         urlBuilder.append(API_PREFIX).append(apiKey);
+        appendProperties(urlBuilder, properties);
+
+        LOG.trace("URL: {}", urlBuilder.toString());
+        return urlBuilder.toString();
+    }
+
+    /**
+     * Create a key that identifies the request, without the API key
+     *
+     * The properties are sorted so the same request always has the same key
+     *
+     * @param properties
+     * @return
+     * @throws RottenTomatoesException
+     */
+    public static String createCacheKey(Map<String, String> properties) throws RottenTomatoesException {
+        StringBuilder keyBuilder = new StringBuilder(API_VERSION);
+        keyBuilder.append(getUrlFromProps(properties));
+        appendProperties(keyBuilder, new TreeMap<String, String>(properties));
+        return keyBuilder.toString();
+    }
+
+    /**
+     * Add the query properties to the URL
+     *
+     * @param urlBuilder
+     * @param properties
+     */
+    private static void appendProperties(StringBuilder urlBuilder, Map<String, String> properties) {
+        boolean idInPath = properties.get(PROPERTY_URL).contains(MOVIE_ID);
 
         for (Map.Entry<String, String> property : properties.entrySet()) {
+            // The URL, and the ID if it was replaced in the URL, are part of the path not the query
+            if (PROPERTY_URL.equals(property.getKey()) || (idInPath && PROPERTY_ID.equals(property.getKey()))) {
+                continue;
+            }
+
             // Validate the key/value
             if (StringUtils.isNotBlank(property.getKey()) && StringUtils.isNotBlank(property.getValue())) {
                 urlBuilder.append("&").append(property.getKey()).append("=").append(property.getValue());
             }
         }
-
-        LOG.trace("URL: {}", urlBuilder.toString());
-        return urlBuilder.toString();
     }
 
     /**
@@ -103,11 +138,7 @@ public class ApiBuilder {
             // If we have the ID, then we need to replace the "{movie-id}" in the URL
             if (properties.containsKey(PROPERTY_ID) && StringUtils.isNotBlank(properties.get(PROPERTY_ID))) {
                 url = url.replace(MOVIE_ID, String.valueOf(properties.get(PROPERTY_ID)));
-                // We don't need this property anymore
-                properties.remove(PROPERTY_ID);
             }
-            // We don't need this property anymore
-            properties.remove(PROPERTY_URL);
             return url;
         } else {
             throw new RottenTomatoesException(ApiExceptionType.INVALID_URL, "No URL specified");
@@ -0,0 +1,43 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A transport that can send requests without blocking the calling thread
+ *
+ * @author Stuart
+ */
+public interface AsyncHttpTransport extends HttpTransport {
+
+    /**
+     * Send a GET request without waiting for the response
+     *
+     * The body is read in full before the future completes, so reading it
+     * from the response never blocks.
+     *
+     * @param url
+     * @param headers the request headers
+     * @return a future that completes with the response, or the IOException
+     */
+    CompletableFuture<Response> getAsync(String url, Map<String, String> headers);
+}
@@ -0,0 +1,50 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import com.omertron.rottentomatoesapi.RottenTomatoesException;
+
+/**
+ * Receives the results of a bulk lookup as each ID completes
+ *
+ * The methods are called from the worker threads, so several calls can be
+ * made at the same time.
+ *
+ * @author Stuart
+ * @param <T> The type returned for each ID
+ */
+public interface BulkCallback<T> {
+
+    /**
+     * Called when an ID was found
+     *
+     * @param id
+     * @param result
+     */
+    void onResult(int id, T result);
+
+    /**
+     * Called when the lookup for an ID failed
+     *
+     * @param id
+     * @param ex
+     */
+    void onFailure(int id, RottenTomatoesException ex);
+}
@@ -0,0 +1,294 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import com.omertron.rottentomatoesapi.RottenTomatoesException;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamj.api.common.exception.ApiExceptionType;
+
+/**
+ * Look up a batch of IDs with a fixed number of concurrent requests
+ *
+ * Duplicate IDs are looked up once, in the order they first appear. Each
+ * worker takes the next ID until none are left, and each result or failure is
+ * passed to the callback as soon as it is known. A failed ID does not stop the
+ * batch.
+ *
+ * The requests go through the API's rate limiter, so the throughput grows with
+ * the concurrency until the rate limit is reached.
+ *
+ * With an asynchronous lookup no worker threads are used. At most
+ * "concurrency" lookups are outstanding, and each one that completes starts
+ * the next.
+ *
+ * @author Stuart
+ * @param <T> The type returned for each ID
+ */
+public class BulkFetch<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkFetch.class);
+    private final int requested;
+    private final int[] ids;
+    private final int concurrency;
+    private final Lookup<T> lookup;
+    private final AsyncLookup<T> asyncLookup;
+    private final BulkCallback<T> callback;
+    private final AtomicInteger nextIndex = new AtomicInteger(0);
+    private final AtomicInteger succeeded = new AtomicInteger(0);
+    private final AtomicInteger failed = new AtomicInteger(0);
+    private final AtomicInteger running = new AtomicInteger(0);
+    /*
+     * Free slots an asynchronous lookup has yet to fill
+     */
+    private final AtomicInteger freeSlots = new AtomicInteger(0);
+    private final CompletableFuture<BulkResult> result = new CompletableFuture<BulkResult>();
+    private long startNanos;
+
+    /**
+     * Create a bulk lookup
+     *
+     * @param ids The IDs to look up
+     * @param concurrency The largest number of lookups to run at once
+     * @param lookup Looks up a single ID
+     * @param callback Receives each result
+     */
+    public BulkFetch(int[] ids, int concurrency, Lookup<T> lookup, BulkCallback<T> callback) {
+        this(ids, concurrency, lookup, null, callback);
+    }
+
+    private BulkFetch(int[] ids, int concurrency, Lookup<T> lookup, AsyncLookup<T> asyncLookup, BulkCallback<T> callback) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1: " + concurrency);
+        }
+        this.requested = ids.length;
+        this.ids = IntStream.of(ids).distinct().toArray();
+        this.concurrency = Math.min(concurrency, Math.max(1, this.ids.length));
+        this.lookup = lookup;
+        this.asyncLookup = asyncLookup;
+        this.callback = callback;
+    }
+
+    /**
+     * Create a bulk lookup that does not block a thread for each lookup
+     *
+     * The callback is called from the threads that complete the lookups.
+     *
+     * @param <T>
+     * @param ids The IDs to look up
+     * @param concurrency The largest number of lookups outstanding at once
+     * @param lookup Starts the lookup of a single ID
+     * @param callback Receives each result
+     * @return
+     */
+    public static <T> BulkFetch<T> async(int[] ids, int concurrency, AsyncLookup<T> lookup, BulkCallback<T> callback) {
+        return new BulkFetch<T>(ids, concurrency, null, lookup, callback);
+    }
+
+    /**
+     * Convert a collection of IDs, skipping any nulls
+     *
+     * @param ids
+     * @return
+     */
+    public static int[] toArray(Collection<Integer> ids) {
+        return ids.stream().filter(id -> id != null).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Start the workers
+     *
+     * Cancelling the returned future stops the workers taking any more IDs;
+     * lookups already running are finished.
+     *
+     * @param executor The executor to run the workers on, not used by an
+     * asynchronous lookup
+     * @return a future that completes with the summary once every ID is done
+     */
+    public CompletableFuture<BulkResult> start(Executor executor) {
+        startNanos = System.nanoTime();
+        running.set(concurrency);
+        if (asyncLookup != null) {
+            fill(concurrency);
+            return result;
+        }
+        for (int worker = 0; worker < concurrency; worker++) {
+            try {
+                executor.execute(this::work);
+            } catch (RejectedExecutionException ex) {
+                if (worker == 0) {
+                    result.completeExceptionally(new RottenTomatoesException(ApiExceptionType.UNKNOWN_CAUSE, "Bulk lookup rejected by executor", "", ex));
+                    break;
+                }
+                LOG.debug("Bulk worker rejected, using {} workers", worker, ex);
+                if (running.addAndGet(worker - concurrency) == 0) {
+                    finish();
+                }
+                break;
+            }
+        }
+        return result;
+    }
+
+    private void work() {
+        try {
+            int index;
+            while (!result.isDone() && (index = nextIndex.getAndIncrement()) < ids.length) {
+                lookupOne(ids[index]);
+            }
+        } finally {
+            if (running.decrementAndGet() == 0) {
+                finish();
+            }
+        }
+    }
+
+    private void lookupOne(int id) {
+        T value;
+        try {
+            value = lookup.fetch(id);
+        } catch (RottenTomatoesException ex) {
+            failed.incrementAndGet();
+            notifyFailure(id, ex);
+            return;
+        } catch (RuntimeException ex) {
+            failed.incrementAndGet();
+            notifyFailure(id, new RottenTomatoesException(ApiExceptionType.UNKNOWN_CAUSE, ex.getMessage(), String.valueOf(id), ex));
+            return;
+        }
+        notifyResult(id, value);
+    }
+
+    /**
+     * Start a lookup for each free slot
+     *
+     * Only one thread fills the slots at a time. A lookup that completes
+     * straight away, from the cache, adds its slot for that thread to fill
+     * rather than starting the next lookup itself, so a long run of them
+     * does not grow the stack.
+     *
+     * @param slots The slots freed
+     */
+    private void fill(int slots) {
+        if (freeSlots.getAndAdd(slots) != 0) {
+            return;
+        }
+
+        int count = slots;
+        do {
+            for (int slot = 0; slot < count; slot++) {
+                startOne();
+            }
+            count = freeSlots.addAndGet(-count);
+        } while (count != 0);
+    }
+
+    private void startOne() {
+        int index;
+        if (result.isDone() || (index = nextIndex.getAndIncrement()) >= ids.length) {
+            if (running.decrementAndGet() == 0) {
+                finish();
+            }
+            return;
+        }
+
+        final int id = ids[index];
+        CompletableFuture<T> future;
+        try {
+            future = asyncLookup.fetch(id);
+        } catch (RuntimeException ex) {
+            future = new CompletableFuture<T>();
+            future.completeExceptionally(ex);
+        }
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                notifyResult(id, value);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                failed.incrementAndGet();
+                if (cause instanceof RottenTomatoesException) {
+                    notifyFailure(id, (RottenTomatoesException) cause);
+                } else {
+                    notifyFailure(id, new RottenTomatoesException(ApiExceptionType.UNKNOWN_CAUSE, cause.getMessage(), String.valueOf(id), cause));
+                }
+            }
+            fill(1);
+        });
+    }
+
+    private void notifyResult(int id, T value) {
+        succeeded.incrementAndGet();
+        try {
+            callback.onResult(id, value);
+        } catch (RuntimeException ex) {
+            LOG.warn("Callback failed for ID {}: {}", id, ex.getMessage(), ex);
+        }
+    }
+
+    private void notifyFailure(int id, RottenTomatoesException failure) {
+        try {
+            callback.onFailure(id, failure);
+        } catch (RuntimeException ex) {
+            LOG.warn("Failure callback failed for ID {}: {}", id, ex.getMessage(), ex);
+        }
+    }
+
+    private void finish() {
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        BulkResult summary = new BulkResult(requested, ids.length, succeeded.get(), failed.get(), elapsed);
+        LOG.debug("Bulk lookup complete: {}", summary);
+        result.complete(summary);
+    }
+
+    /**
+     * Looks up a single ID
+     *
+     * @param <T>
+     */
+    public interface Lookup<T> {
+
+        T fetch(int id) throws RottenTomatoesException;
+    }
+
+    /**
+     * Starts the lookup of a single ID without blocking
+     *
+     * @param <T>
+     */
+    public interface AsyncLookup<T> {
+
+        /**
+         * Start the lookup
+         *
+         * @param id
+         * @return a future that completes with the result or the
+         * RottenTomatoesException
+         */
+        CompletableFuture<T> fetch(int id);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+/**
+ * Summary of a completed bulk lookup
+ *
+ * @author Stuart
+ */
+public class BulkResult {
+
+    private final int requested;
+    private final int unique;
+    private final int succeeded;
+    private final int failed;
+    private final long elapsedMillis;
+
+    public BulkResult(int requested, int unique, int succeeded, int failed, long elapsedMillis) {
+        this.requested = requested;
+        this.unique = unique;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * The number of IDs passed in, including duplicates
+     *
+     * @return
+     */
+    public int getRequested() {
+        return requested;
+    }
+
+    /**
+     * The number of different IDs looked up
+     *
+     * @return
+     */
+    public int getUnique() {
+        return unique;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * The IDs that were not looked up because the lookup was cancelled
+     *
+     * @return
+     */
+    public int getSkipped() {
+        return unique - succeeded - failed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkResult{requested=" + requested + ", unique=" + unique + ", succeeded=" + succeeded
+                + ", failed=" + failed + ", skipped=" + getSkipped() + ", elapsedMs=" + elapsedMillis + "}";
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * A HTTP client with a pool of keep-alive connections set up from a
+ * {@link TransportConfig}
+ *
+ * @author Stuart
+ */
+public class ConnectionPool implements Closeable {
+
+    private final TransportConfig config;
+    private final PoolingHttpClientConnectionManager manager;
+    private final CloseableHttpClient httpClient;
+
+    public ConnectionPool(TransportConfig config) {
+        this.config = config;
+
+        manager = new PoolingHttpClientConnectionManager();
+        manager.setMaxTotal(config.getMaxTotal());
+        manager.setDefaultMaxPerRoute(config.getMaxPerRoute());
+        manager.setValidateAfterInactivity(config.getValidateAfterInactivityMillis());
+        manager.setDefaultSocketConfig(SocketConfig.custom()
+                .setTcpNoDelay(config.isTcpNoDelay())
+                .setSoKeepAlive(config.isSoKeepAlive())
+                .setSoTimeout(config.getSocketTimeoutMillis())
+                .build());
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeoutMillis())
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeoutMillis())
+                .setSocketTimeout(config.getSocketTimeoutMillis())
+                .build();
+
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(manager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy(config.getKeepAliveMillis()))
+                // Compressed responses are decoded while they are parsed
+                .disableContentCompression();
+        if (config.getIdleEvictMillis() > 0) {
+            builder.evictExpiredConnections();
+            builder.evictIdleConnections(config.getIdleEvictMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (StringUtils.isNotBlank(config.getProxyHost())) {
+            builder.setProxy(new HttpHost(config.getProxyHost(), config.getProxyPort()));
+        }
+        httpClient = builder.build();
+    }
+
+    /**
+     * Use the keep-alive time sent by the server, or the configured time if it
+     * does not send one
+     *
+     * @param keepAliveMillis
+     * @return
+     */
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(final long keepAliveMillis) {
+        return (response, context) -> {
+            long serverMillis = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverMillis > 0 ? serverMillis : keepAliveMillis;
+        };
+    }
+
+    public TransportConfig getConfig() {
+        return config;
+    }
+
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Get the current state of the pool
+     *
+     * @return
+     */
+    public PoolStatistics getStatistics() {
+        PoolStats stats = manager.getTotalStats();
+        return new PoolStatistics(stats.getLeased(), stats.getPending(), stats.getAvailable(), stats.getMax());
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
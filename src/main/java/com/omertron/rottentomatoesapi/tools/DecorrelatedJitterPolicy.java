@@ -0,0 +1,65 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with "decorrelated jitter"
+ *
+ * Each delay is a random value between the base delay and three times the
+ * previous delay, up to a maximum. Threads that were throttled together wake
+ * up at different times rather than being throttled together again.
+ *
+ * @author Stuart
+ */
+public class DecorrelatedJitterPolicy extends AbstractRetryPolicy {
+
+    private static final int GROWTH = 3;
+    private final long baseDelay;
+    private final long maxDelay;
+
+    /**
+     * Create the policy
+     *
+     * @param baseDelay the shortest wait in milliseconds
+     * @param maxDelay the longest wait in milliseconds
+     * @param retryLimit the maximum number of retries
+     */
+    public DecorrelatedJitterPolicy(long baseDelay, long maxDelay, int retryLimit) {
+        super(retryLimit);
+        this.baseDelay = baseDelay;
+        this.maxDelay = Math.max(baseDelay, maxDelay);
+    }
+
+    @Override
+    public long getDelay(int retry, long previousDelay) {
+        long upper = Math.min(maxDelay, Math.max(baseDelay, previousDelay) * GROWTH);
+        if (upper <= baseDelay) {
+            return baseDelay;
+        }
+        return ThreadLocalRandom.current().nextLong(baseDelay, upper + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "DecorrelatedJitterPolicy{baseDelay=" + baseDelay + ", maxDelay=" + maxDelay + ", retryLimit=" + getRetryLimit() + "}";
+    }
+}
@@ -0,0 +1,692 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent cache of the raw JSON responses from the API
+ *
+ * Responses are appended to segment files in the cache directory. Each record
+ * holds the key, the expiry time, the JSON and a checksum. The index of keys
+ * to record locations is kept in memory and rebuilt by scanning the segments
+ * when the cache is opened; a record left incomplete by a crash fails its
+ * checksum and the segment is truncated at that point.
+ *
+ * Segments that are no longer being written to are memory mapped for reading.
+ * Segments that are mostly expired or overwritten records are compacted in
+ * the background, and the oldest segments are dropped when the cache grows
+ * past its size limit.
+ *
+ * @author Stuart
+ */
+public class DiskCache implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DiskCache.class);
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    /*
+     * Record layout: magic, key length, value length, expiry time, checksum
+     */
+    private static final int MAGIC = 0x52544443;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 4;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    /*
+     * Defaults
+     */
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+    public static final int DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+    private static final double COMPACT_LIVE_RATIO = 0.5;
+    private static final long COMPACT_INTERVAL_MINUTES = 10;
+    /*
+     * Cache settings
+     */
+    private final File directory;
+    private final long maxBytes;
+    private final int segmentBytes;
+    private final AtomicLongArray ttls = new AtomicLongArray(EndpointFamily.values().length);
+    /*
+     * The index and segments can be read without locking, all changes are
+     * made while holding the write lock
+     */
+    private final ConcurrentMap<String, Location> index = new ConcurrentHashMap<String, Location>();
+    private final ConcurrentNavigableMap<Integer, Segment> segments = new ConcurrentSkipListMap<Integer, Segment>();
+    private final Object writeLock = new Object();
+    private Segment active;
+    private long totalBytes;
+    private boolean closed;
+    private final ScheduledExecutorService compactor;
+    /*
+     * Statistics
+     */
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong expirations = new AtomicLong(0);
+    private final AtomicLong compactions = new AtomicLong(0);
+
+    /**
+     * Open the cache with the default size limits
+     *
+     * @param directory
+     * @throws IOException
+     */
+    public DiskCache(File directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Open the cache, loading any existing segments from the directory
+     *
+     * @param directory The directory to hold the segment files
+     * @param maxBytes The total size of the segments to keep
+     * @param segmentBytes The size of each segment file
+     * @throws IOException
+     */
+    public DiskCache(File directory, long maxBytes, int segmentBytes) throws IOException {
+        if (segmentBytes <= HEADER_SIZE || maxBytes < segmentBytes) {
+            throw new IllegalArgumentException("Invalid cache sizes: maxBytes=" + maxBytes + ", segmentBytes=" + segmentBytes);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create cache directory " + directory);
+        }
+
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.segmentBytes = segmentBytes;
+        for (EndpointFamily family : EndpointFamily.values()) {
+            ttls.set(family.ordinal(), family.getDefaultTtl());
+        }
+
+        synchronized (writeLock) {
+            load();
+            active = createSegment(segments.isEmpty() ? 1 : segments.lastKey() + 1);
+        }
+
+        compactor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "rt-disk-cache-compactor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        compactor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                compact();
+            }
+        }, COMPACT_INTERVAL_MINUTES, COMPACT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Set how long responses from the endpoint family are cached
+     *
+     * @param family
+     * @param duration The time to cache for, 0 to not cache the family
+     * @param unit
+     */
+    public void setTtl(EndpointFamily family, long duration, TimeUnit unit) {
+        ttls.set(family.ordinal(), Math.max(0L, unit.toMillis(duration)));
+    }
+
+    /**
+     * How long responses from the endpoint family are cached
+     *
+     * @param family
+     * @return milliseconds
+     */
+    public long getTtl(EndpointFamily family) {
+        return ttls.get(family.ordinal());
+    }
+
+    /**
+     * Check if responses from the endpoint family are cached
+     *
+     * @param family
+     * @return
+     */
+    public boolean isCached(EndpointFamily family) {
+        return getTtl(family) > 0;
+    }
+
+    /**
+     * Get the JSON for the key
+     *
+     * @param key
+     * @return the JSON, or null if it is not cached or has expired
+     */
+    public String get(String key) {
+        byte[] value = getBytes(key);
+        return value == null ? null : new String(value, UTF8);
+    }
+
+    /**
+     * Get the raw JSON bytes for the key
+     *
+     * @param key
+     * @return the UTF-8 JSON, or null if it is not cached or has expired
+     */
+    public byte[] getBytes(String key) {
+        Location location = index.get(key);
+        if (location == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        if (location.isExpired(System.currentTimeMillis())) {
+            expirations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+
+        Segment segment = segments.get(location.segmentId);
+        if (segment != null) {
+            try {
+                byte[] value = segment.read(location.valueOffset, location.valueLength);
+                hits.incrementAndGet();
+                return value;
+            } catch (IOException ex) {
+                // The segment may have been dropped by a compaction
+                LOG.trace("Failed to read '{}' from {}", key, segment.file, ex);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Add the JSON for the key to the cache
+     *
+     * @param key
+     * @param family The endpoint family that the response came from
+     * @param json
+     */
+    public void put(String key, EndpointFamily family, String json) {
+        put(key, family, json.getBytes(UTF8));
+    }
+
+    /**
+     * Add the raw JSON bytes for the key to the cache
+     *
+     * @param key
+     * @param family The endpoint family that the response came from
+     * @param json The UTF-8 JSON
+     */
+    public void put(String key, EndpointFamily family, byte[] json) {
+        long ttl = getTtl(family);
+        if (ttl <= 0) {
+            return;
+        }
+
+        byte[] keyBytes = key.getBytes(UTF8);
+        if (HEADER_SIZE + keyBytes.length + json.length > segmentBytes) {
+            LOG.trace("Response for '{}' is too large to cache", key);
+            return;
+        }
+
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            try {
+                append(key, keyBytes, json, System.currentTimeMillis() + ttl);
+                dropOldSegments();
+            } catch (IOException ex) {
+                LOG.warn("Failed to write '{}' to the disk cache: {}", key, ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Write a record to the active segment and point the index at it
+     *
+     * Must be called holding the write lock
+     *
+     * @param key
+     * @param keyBytes
+     * @param value
+     * @param expiresAt
+     * @return the location of the record
+     * @throws IOException
+     */
+    private Location append(String key, byte[] keyBytes, byte[] value, long expiresAt) throws IOException {
+        int recordSize = HEADER_SIZE + keyBytes.length + value.length;
+        if (active.size + recordSize > segmentBytes) {
+            rollSegment();
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(recordSize);
+        record.putInt(MAGIC).putInt(keyBytes.length).putInt(value.length).putLong(expiresAt);
+        record.putInt(checksum(keyBytes, value, expiresAt));
+        record.put(keyBytes).put(value);
+        record.flip();
+
+        long position = active.size;
+        while (record.hasRemaining()) {
+            position += active.channel.write(record, position);
+        }
+
+        Location location = new Location(active.id, (int) active.size + HEADER_SIZE + keyBytes.length, value.length, recordSize, expiresAt);
+        active.size += recordSize;
+        active.liveBytes.addAndGet(recordSize);
+        totalBytes += recordSize;
+        release(index.put(key, location));
+        return location;
+    }
+
+    /**
+     * Mark the record as no longer live in its segment
+     *
+     * @param location
+     */
+    private void release(Location location) {
+        if (location != null) {
+            Segment segment = segments.get(location.segmentId);
+            if (segment != null) {
+                segment.liveBytes.addAndGet(-location.recordSize);
+            }
+        }
+    }
+
+    /**
+     * Seal the active segment for memory mapped reading and start a new one
+     *
+     * @throws IOException
+     */
+    private void rollSegment() throws IOException {
+        active.seal();
+        active = createSegment(active.id + 1);
+        compactor.execute(new Runnable() {
+            @Override
+            public void run() {
+                compact();
+            }
+        });
+    }
+
+    /**
+     * Drop the oldest segments until the cache is within its size limit
+     *
+     * @throws IOException
+     */
+    private void dropOldSegments() throws IOException {
+        while (totalBytes > maxBytes && segments.size() > 1) {
+            Segment oldest = segments.firstEntry().getValue();
+            LOG.trace("Cache over {} bytes, dropping {}", maxBytes, oldest.file);
+            dropSegment(oldest);
+        }
+    }
+
+    /**
+     * Remove the segment and all the index entries that point at it
+     *
+     * @param segment
+     * @throws IOException
+     */
+    private void dropSegment(Segment segment) throws IOException {
+        segments.remove(segment.id);
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            if (entry.getValue().segmentId == segment.id) {
+                index.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        totalBytes -= segment.size;
+        segment.channel.close();
+        if (!segment.file.delete()) {
+            LOG.debug("Unable to delete {}", segment.file);
+            segment.file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Copy the live records out of mostly dead segments and then drop them
+     *
+     * This is run in the background, but can be called directly
+     */
+    public void compact() {
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            for (Segment segment : new ArrayList<Segment>(segments.values())) {
+                if (segment == active || segment.liveBytes.get() > segment.size * COMPACT_LIVE_RATIO) {
+                    continue;
+                }
+
+                try {
+                    compactSegment(segment, now);
+                    compactions.incrementAndGet();
+                } catch (IOException ex) {
+                    LOG.warn("Failed to compact {}: {}", segment.file, ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the live records from the segment to the active segment
+     *
+     * @param segment
+     * @param now
+     * @throws IOException
+     */
+    private void compactSegment(Segment segment, long now) throws IOException {
+        List<Map.Entry<String, Location>> live = new ArrayList<Map.Entry<String, Location>>();
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            if (entry.getValue().segmentId == segment.id) {
+                live.add(entry);
+            }
+        }
+
+        LOG.trace("Compacting {} with {} live records", segment.file, live.size());
+        for (Map.Entry<String, Location> entry : live) {
+            Location location = entry.getValue();
+            if (location.isExpired(now)) {
+                index.remove(entry.getKey(), location);
+            } else {
+                byte[] value = segment.read(location.valueOffset, location.valueLength);
+                append(entry.getKey(), entry.getKey().getBytes(UTF8), value, location.expiresAt);
+            }
+        }
+        dropSegment(segment);
+    }
+
+    /**
+     * Load the existing segments and rebuild the index
+     *
+     * @throws IOException
+     */
+    private void load() throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        List<Integer> ids = new ArrayList<Integer>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    ids.add(Integer.valueOf(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException ex) {
+                    LOG.debug("Ignoring unknown file {}", file);
+                }
+            }
+        }
+        Collections.sort(ids);
+
+        long now = System.currentTimeMillis();
+        for (Integer id : ids) {
+            Segment segment = openSegment(id);
+            segments.put(id, segment);
+            scan(segment, now);
+            if (segment.size == 0) {
+                dropSegment(segment);
+            } else {
+                segment.seal();
+            }
+        }
+        LOG.debug("Loaded {} cached responses from {} segments", index.size(), segments.size());
+    }
+
+    /**
+     * Read the records in the segment into the index
+     *
+     * The segment is truncated at the first record that is incomplete or fails
+     * its checksum.
+     *
+     * @param segment
+     * @param now
+     * @throws IOException
+     */
+    private void scan(Segment segment, long now) throws IOException {
+        long fileSize = segment.channel.size();
+        MappedByteBuffer buffer = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        int position = 0;
+
+        while (position + HEADER_SIZE <= fileSize) {
+            buffer.position(position);
+            int magic = buffer.getInt();
+            int keyLength = buffer.getInt();
+            int valueLength = buffer.getInt();
+            long expiresAt = buffer.getLong();
+            int checksum = buffer.getInt();
+            if (magic != MAGIC || keyLength < 0 || valueLength < 0 || (long) position + HEADER_SIZE + keyLength + valueLength > fileSize) {
+                break;
+            }
+
+            byte[] key = new byte[keyLength];
+            byte[] value = new byte[valueLength];
+            buffer.get(key).get(value);
+            if (checksum != checksum(key, value, expiresAt)) {
+                break;
+            }
+
+            int recordSize = HEADER_SIZE + keyLength + valueLength;
+            totalBytes += recordSize;
+            if (expiresAt > now) {
+                segment.liveBytes.addAndGet(recordSize);
+                release(index.put(new String(key, UTF8), new Location(segment.id, position + HEADER_SIZE + keyLength, valueLength, recordSize, expiresAt)));
+            } else {
+                // The newest record wins, so an expired rewrite still hides any older live copy
+                release(index.remove(new String(key, UTF8)));
+            }
+            position += recordSize;
+        }
+
+        if (position < fileSize) {
+            LOG.warn("Discarding {} bytes of incomplete data from {}", fileSize - position, segment.file);
+            segment.channel.truncate(position);
+        }
+        segment.size = position;
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        Segment segment = openSegment(id);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        File file = new File(directory, String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, file, channel);
+    }
+
+    private static int checksum(byte[] key, byte[] value, long expiresAt) {
+        CRC32 crc = new CRC32();
+        crc.update(key);
+        crc.update(value);
+        for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            crc.update((int) (expiresAt >>> shift));
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Close the segment files
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        compactor.shutdownNow();
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+        }
+    }
+
+    /**
+     * The number of responses in the cache, including expired ones
+     *
+     * @return
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * The total size of the segment files
+     *
+     * @return
+     */
+    public long getTotalBytes() {
+        synchronized (writeLock) {
+            return totalBytes;
+        }
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * The number of lookups that found an expired response
+     *
+     * @return
+     */
+    public long getExpiredCount() {
+        return expirations.get();
+    }
+
+    public long getCompactionCount() {
+        return compactions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "DiskCache{directory=" + directory + ", size=" + size() + ", segments=" + getSegmentCount()
+                + ", totalBytes=" + getTotalBytes() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", expired=" + getExpiredCount() + ", compactions=" + getCompactionCount() + "}";
+    }
+
+    /**
+     * Where a value is stored
+     */
+    private static final class Location {
+
+        private final int segmentId;
+        private final int valueOffset;
+        private final int valueLength;
+        private final int recordSize;
+        private final long expiresAt;
+
+        Location(int segmentId, int valueOffset, int valueLength, int recordSize, long expiresAt) {
+            this.segmentId = segmentId;
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+            this.recordSize = recordSize;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+    }
+
+    /**
+     * A segment file
+     *
+     * The active segment is read through its channel, sealed segments are
+     * read from a memory map
+     */
+    private static final class Segment {
+
+        private final int id;
+        private final File file;
+        private final FileChannel channel;
+        private final AtomicLong liveBytes = new AtomicLong(0);
+        private volatile MappedByteBuffer mapped;
+        private volatile long size;
+
+        Segment(int id, File file, FileChannel channel) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+        }
+
+        void seal() throws IOException {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        byte[] read(int offset, int length) throws IOException {
+            byte[] data = new byte[length];
+            MappedByteBuffer map = mapped;
+            if (map != null) {
+                ByteBuffer view = map.duplicate();
+                view.position(offset);
+                view.get(data);
+                return data;
+            }
+
+            ByteBuffer target = ByteBuffer.wrap(data);
+            long position = offset;
+            while (target.hasRemaining()) {
+                int read = channel.read(target, position);
+                if (read < 0) {
+                    throw new EOFException("Unexpected end of " + file);
+                }
+                position += read;
+            }
+            return data;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Groups of API endpoints whose responses change at a similar rate
+ *
+ * Used to give each group its own cache time
+ *
+ * @author Stuart
+ */
+public enum EndpointFamily {
+
+    /**
+     * Detailed information for a movie
+     */
+    MOVIE_INFO(6, TimeUnit.HOURS),
+    /**
+     * The full cast of a movie
+     */
+    MOVIE_CAST(6, TimeUnit.HOURS),
+    /**
+     * Clips and trailers for a movie
+     */
+    MOVIE_CLIPS(6, TimeUnit.HOURS),
+    /**
+     * Reviews of a movie
+     */
+    MOVIE_REVIEWS(1, TimeUnit.HOURS),
+    /**
+     * Movies similar to a movie
+     */
+    MOVIE_SIMILAR(1, TimeUnit.HOURS),
+    /**
+     * Movie lookup by another vendor's ID
+     */
+    MOVIE_ALIAS(6, TimeUnit.HOURS),
+    /**
+     * Movie search
+     */
+    SEARCH(15, TimeUnit.MINUTES),
+    /**
+     * The box office list
+     */
+    BOX_OFFICE(10, TimeUnit.MINUTES),
+    /**
+     * The other movie and DVD lists
+     */
+    LISTS(30, TimeUnit.MINUTES),
+    /**
+     * The directories of the available lists
+     */
+    DIRECTORY(24, TimeUnit.HOURS);
+
+    private static final String LISTS_PREFIX = "/lists";
+    private static final int DIRECTORY_DEPTH = 2;
+    private final long defaultTtl;
+
+    private EndpointFamily(long duration, TimeUnit unit) {
+        this.defaultTtl = unit.toMillis(duration);
+    }
+
+    /**
+     * The default time to cache responses for
+     *
+     * @return milliseconds
+     */
+    public long getDefaultTtl() {
+        return defaultTtl;
+    }
+
+    /**
+     * Find the family of the URL
+     *
+     * @param url The URL of the endpoint, with or without the movie ID replaced
+     * @return
+     */
+    public static EndpointFamily fromUrl(String url) {
+        if (url.startsWith(LISTS_PREFIX)) {
+            if ("/lists/movies/box_office".equals(url)) {
+                return BOX_OFFICE;
+            }
+            // The directories are "/lists", "/lists/movies" and "/lists/dvds"
+            return StringUtils.countMatches(url, '/') > DIRECTORY_DEPTH ? LISTS : DIRECTORY;
+        } else if ("/movie_alias".equals(url)) {
+            return MOVIE_ALIAS;
+        } else if ("/movies".equals(url)) {
+            return SEARCH;
+        } else if (url.endsWith("/cast")) {
+            return MOVIE_CAST;
+        } else if (url.endsWith("/clips")) {
+            return MOVIE_CLIPS;
+        } else if (url.endsWith("/reviews")) {
+            return MOVIE_REVIEWS;
+        } else if (url.endsWith("/similar")) {
+            return MOVIE_SIMILAR;
+        }
+        return MOVIE_INFO;
+    }
+}
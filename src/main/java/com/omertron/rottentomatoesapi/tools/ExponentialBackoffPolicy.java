@@ -0,0 +1,56 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+/**
+ * Doubles the delay for each retry, up to a maximum
+ *
+ * @author Stuart
+ */
+public class ExponentialBackoffPolicy extends AbstractRetryPolicy {
+
+    private final long baseDelay;
+    private final long maxDelay;
+
+    /**
+     * Create the policy
+     *
+     * @param baseDelay milliseconds to wait before the first retry
+     * @param maxDelay the longest wait in milliseconds
+     * @param retryLimit the maximum number of retries
+     */
+    public ExponentialBackoffPolicy(long baseDelay, long maxDelay, int retryLimit) {
+        super(retryLimit);
+        this.baseDelay = baseDelay;
+        this.maxDelay = Math.max(baseDelay, maxDelay);
+    }
+
+    @Override
+    public long getDelay(int retry, long previousDelay) {
+        // Cap the shift so the delay can not overflow
+        int shift = Math.min(Math.max(retry - 1, 0), 30);
+        return Math.min(maxDelay, baseDelay << shift);
+    }
+
+    @Override
+    public String toString() {
+        return "ExponentialBackoffPolicy{baseDelay=" + baseDelay + ", maxDelay=" + maxDelay + ", retryLimit=" + getRetryLimit() + "}";
+    }
+}
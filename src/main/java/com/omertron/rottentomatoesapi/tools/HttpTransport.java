@@ -0,0 +1,72 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * The HTTP client used to send the requests to the API
+ *
+ * Implementations only need to send a GET request and return the raw
+ * response; the decompression, mapping and retries are done by the
+ * ResponseBuilder.
+ *
+ * @author Stuart
+ */
+public interface HttpTransport {
+
+    /**
+     * Send a GET request
+     *
+     * @param url
+     * @param headers the request headers
+     * @return the response, which must be closed
+     * @throws IOException if the request failed
+     */
+    Response get(String url, Map<String, String> headers) throws IOException;
+
+    /**
+     * A response from the server
+     */
+    interface Response extends Closeable {
+
+        int getStatusCode();
+
+        /**
+         * Get the first value of a response header
+         *
+         * @param name
+         * @return the value, or null if the header is not present
+         */
+        String getHeader(String name);
+
+        /**
+         * The body of the response as sent by the server, with no content
+         * decoding
+         *
+         * @return the body, or null if there is none
+         * @throws IOException
+         */
+        InputStream getBody() throws IOException;
+    }
+}
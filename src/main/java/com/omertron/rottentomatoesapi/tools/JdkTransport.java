@@ -0,0 +1,184 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Send the requests with the JDK HTTP client
+ *
+ * The client prefers HTTP/2, so when the server supports it all the requests
+ * to a host share a single connection rather than needing one each. It falls
+ * back to HTTP/1.1 when the server does not.
+ *
+ * The non-blocking calls hold no thread while they wait for the server; the
+ * client's executor is only used to hand over the completed responses.
+ *
+ * @author Stuart
+ */
+public class JdkTransport implements AsyncHttpTransport {
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+
+    /**
+     * Create the transport with the timeouts and proxy from the config
+     *
+     * The pool settings do not apply to this client.
+     *
+     * @param config
+     */
+    public JdkTransport(TransportConfig config) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMillis()));
+        if (StringUtils.isNotBlank(config.getProxyHost())) {
+            builder.proxy(ProxySelector.of(new InetSocketAddress(config.getProxyHost(), config.getProxyPort())));
+        }
+        this.httpClient = builder.build();
+        this.requestTimeout = Duration.ofMillis(config.getSocketTimeoutMillis());
+    }
+
+    /**
+     * Create the transport using an existing client
+     *
+     * @param httpClient
+     * @param requestTimeout the time allowed for each response, can be null
+     * for no limit
+     */
+    public JdkTransport(HttpClient httpClient, Duration requestTimeout) {
+        if (httpClient == null) {
+            throw new IllegalArgumentException("HTTP client can not be null");
+        }
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    @Override
+    public Response get(String url, Map<String, String> headers) throws IOException {
+        try {
+            return new JdkResponse(httpClient.send(createRequest(url, headers), HttpResponse.BodyHandlers.ofInputStream()));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("Interrupted waiting for " + url);
+            interrupted.initCause(ex);
+            throw interrupted;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Response> getAsync(String url, Map<String, String> headers) {
+        return httpClient.sendAsync(createRequest(url, headers), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> (Response) new BufferedResponse(response));
+    }
+
+    private HttpRequest createRequest(String url, Map<String, String> headers) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).GET();
+        if (requestTimeout != null) {
+            request.timeout(requestTimeout);
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            request.header(header.getKey(), header.getValue());
+        }
+        return request.build();
+    }
+
+    /**
+     * Wrap the JDK response
+     */
+    private static final class JdkResponse implements Response {
+
+        private final HttpResponse<InputStream> httpResponse;
+
+        JdkResponse(HttpResponse<InputStream> httpResponse) {
+            this.httpResponse = httpResponse;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return httpResponse.statusCode();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return httpResponse.headers().firstValue(name).orElse(null);
+        }
+
+        @Override
+        public InputStream getBody() {
+            return httpResponse.body();
+        }
+
+        @Override
+        public void close() throws IOException {
+            httpResponse.body().close();
+        }
+    }
+
+    /**
+     * A JDK response with the body already read
+     */
+    private static final class BufferedResponse implements Response {
+
+        private final HttpResponse<byte[]> httpResponse;
+
+        BufferedResponse(HttpResponse<byte[]> httpResponse) {
+            this.httpResponse = httpResponse;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return httpResponse.statusCode();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return httpResponse.headers().firstValue(name).orElse(null);
+        }
+
+        @Override
+        public InputStream getBody() {
+            return httpResponse.body() == null ? null : new ByteArrayInputStream(httpResponse.body());
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.omertron.rottentomatoesapi.wrapper.WrapperLists;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of the Jackson readers for the model types
+ *
+ * An ObjectReader holds the deserializer for its type, so reusing one saves
+ * looking the deserializer up again for every response. The readers are
+ * immutable and can be shared between threads.
+ *
+ * Properties that the model classes do not map are skipped by the
+ * UnknownProperties handler. The models are annotated to ignore unknown
+ * properties for other mappers, so that is turned off here for the handler to
+ * see them.
+ *
+ * The Afterburner readers use generated bytecode to create the objects and
+ * call the setters rather than reflection.
+ *
+ * @author Stuart
+ */
+public final class JsonReaders {
+
+    private static final JsonReaders STANDARD = new JsonReaders(new ObjectMapper());
+    private static final JsonReaders AFTERBURNER = new JsonReaders(new ObjectMapper().registerModule(new AfterburnerModule()));
+    private final ObjectMapper mapper;
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+
+    private JsonReaders(ObjectMapper mapper) {
+        // The caller reads the rest of the response and closes it
+        this.mapper = mapper.setAnnotationIntrospector(new HandledUnknownIntrospector())
+                .addHandler(UnknownProperties.handler())
+                .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        // Build the readers for the response types up front
+        forType(WrapperLists.class);
+        forType(RTMovie.class);
+    }
+
+    /**
+     * The readers that bind using reflection
+     *
+     * @return
+     */
+    public static JsonReaders standard() {
+        return STANDARD;
+    }
+
+    /**
+     * The readers that bind using generated bytecode
+     *
+     * @return
+     */
+    public static JsonReaders afterburner() {
+        return AFTERBURNER;
+    }
+
+    /**
+     * Get the reader for the type
+     *
+     * @param clazz
+     * @return
+     */
+    public ObjectReader forType(Class<?> clazz) {
+        ObjectReader reader = readers.get(clazz);
+        if (reader == null) {
+            reader = mapper.readerFor(clazz);
+            ObjectReader existing = readers.putIfAbsent(clazz, reader);
+            if (existing != null) {
+                reader = existing;
+            }
+        }
+        return reader;
+    }
+
+    public boolean isAfterburner() {
+        return this == AFTERBURNER;
+    }
+
+    /**
+     * Pass unknown properties to the handler rather than ignoring them
+     */
+    private static final class HandledUnknownIntrospector extends JacksonAnnotationIntrospector {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public JsonIgnoreProperties.Value findPropertyIgnorals(Annotated ac) {
+            JsonIgnoreProperties.Value ignorals = super.findPropertyIgnorals(ac);
+            return ignorals == null ? null : ignorals.withoutIgnoreUnknown();
+        }
+    }
+}
@@ -0,0 +1,507 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import com.omertron.rottentomatoesapi.RottenTomatoesException;
+import com.omertron.rottentomatoesapi.wrapper.WrapperLists;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamj.api.common.exception.ApiExceptionType;
+
+/**
+ * Walk all the pages of a paged list
+ *
+ * Pages are requested with the largest page limit the API allows and the walk
+ * stops once the "total" returned with each page has been reached. While the
+ * caller works through one page the next is fetched in the background, so a
+ * walk takes about as long as the requests alone.
+ *
+ * Each call to {@link #iterator()} or {@link #stream()} starts a new walk from
+ * the first page. A failed page request is thrown from the iterator as a
+ * {@link PageException}.
+ *
+ * When the whole list is needed {@link #fetchAll(int)} reads the total from
+ * the first page and then fetches the rest of the pages at the same time.
+ *
+ * For a Reactive Streams pipeline {@link #publisher()} only fetches a page when
+ * the subscriber's demand calls for it.
+ *
+ * @author Stuart
+ * @param <T> The type of the items in the list
+ */
+public class PageCursor<T> implements Iterable<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PageCursor.class);
+    private static final String THREAD_NAME = "rt-page-prefetch-";
+    private static final Executor DEFAULT_EXECUTOR = defaultExecutor();
+    /*
+     * The largest page the API will return
+     */
+    public static final int PAGE_LIMIT = ApiBuilder.LIMIT_MAX;
+    /*
+     * The number of pages fetched at once by fetchAll
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+    private final PageSource source;
+    private final Function<WrapperLists, List<T>> items;
+    private final Function<T, ?> key;
+    private final Executor executor;
+
+    /**
+     * Create a cursor that prefetches on a shared pool of daemon threads
+     *
+     * @param source Fetches a single page
+     * @param items Gets the items from the page
+     */
+    public PageCursor(PageSource source, Function<WrapperLists, List<T>> items) {
+        this(source, items, null, null);
+    }
+
+    /**
+     * Create a cursor
+     *
+     * @param source Fetches a single page
+     * @param items Gets the items from the page
+     * @param key Identifies an item so fetchAll can drop duplicates, null to
+     * keep them all
+     * @param executor The executor to fetch pages on, null for the default
+     */
+    public PageCursor(PageSource source, Function<WrapperLists, List<T>> items, Function<T, ?> key, Executor executor) {
+        this.source = source;
+        this.items = items;
+        this.key = key;
+        this.executor = executor == null ? DEFAULT_EXECUTOR : executor;
+    }
+
+    private static Executor defaultExecutor() {
+        final AtomicInteger count = new AtomicInteger(0);
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, THREAD_NAME + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new PageIterator();
+    }
+
+    /**
+     * Stream the items of all the pages
+     *
+     * Closing the stream cancels any page being prefetched
+     *
+     * @return
+     */
+    public Stream<T> stream() {
+        PageIterator iterator = new PageIterator();
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+    }
+
+    /**
+     * Publish the items of all the pages, fetching each page only when the
+     * subscriber asks for it
+     *
+     * @return
+     */
+    public PagePublisher<T> publisher() {
+        return new PagePublisher<T>(this);
+    }
+
+    /**
+     * Fetch every item in the list using the default parallelism
+     *
+     * @return
+     * @throws RottenTomatoesException
+     */
+    public List<T> fetchAll() throws RottenTomatoesException {
+        return fetchAll(DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Fetch every item in the list
+     *
+     * The first page is fetched to find the total, then the remaining pages
+     * are fetched with at most "parallelism" requests at a time. The pages are
+     * put back in order, and an item that appears on more than one page,
+     * because the list changed during the fetch, is only kept the first time.
+     *
+     * Every request goes through the API's rate limiter, so a low rate limit
+     * will hold back the parallel requests.
+     *
+     * @param parallelism The largest number of pages to fetch at once
+     * @return
+     * @throws RottenTomatoesException if any page fails
+     */
+    public List<T> fetchAll(int parallelism) throws RottenTomatoesException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+
+        WrapperLists first = fetch(1);
+        List<T> firstItems = itemsOf(first);
+        if (!hasNextPage(1, first, firstItems)) {
+            return merge(Collections.singletonList(firstItems));
+        }
+
+        List<List<T>> pages;
+        if (first.getTotal() > 0) {
+            int lastPage = (first.getTotal() - 1) / PAGE_LIMIT + 1;
+            pages = new PageFanOut(lastPage, parallelism).run();
+        } else {
+            // Without a total the pages can only be walked one at a time
+            pages = new ArrayList<List<T>>();
+            WrapperLists wrapper = first;
+            List<T> list = firstItems;
+            int page = 1;
+            while (hasNextPage(page, wrapper, list)) {
+                page++;
+                wrapper = fetch(page);
+                list = itemsOf(wrapper);
+                pages.add(list);
+            }
+        }
+        pages.add(0, firstItems);
+        return merge(pages);
+    }
+
+    /**
+     * Join the pages together, dropping repeated items
+     *
+     * @param pages
+     * @return
+     */
+    private List<T> merge(List<List<T>> pages) {
+        int size = 0;
+        for (List<T> page : pages) {
+            size += page.size();
+        }
+
+        List<T> all = new ArrayList<T>(size);
+        Set<Object> seen = key == null ? null : new HashSet<Object>(size * 2);
+        for (List<T> page : pages) {
+            for (T item : page) {
+                if (seen == null || seen.add(key.apply(item))) {
+                    all.add(item);
+                }
+            }
+        }
+        if (all.size() < size) {
+            LOG.debug("Dropped {} repeated items", size - all.size());
+        }
+        return all;
+    }
+
+    /**
+     * Get a single page from the API
+     *
+     * @param page The page to fetch, starting at 1
+     * @return
+     * @throws RottenTomatoesException
+     */
+    protected WrapperLists fetch(int page) throws RottenTomatoesException {
+        return source.fetch(page, PAGE_LIMIT);
+    }
+
+    /**
+     * Get the items from a page
+     *
+     * @param wrapper
+     * @return the items, never null
+     */
+    protected List<T> itemsOf(WrapperLists wrapper) {
+        List<T> list = wrapper == null ? null : items.apply(wrapper);
+        return list == null ? Collections.<T>emptyList() : list;
+    }
+
+    /**
+     * Check if there is a page after the one given
+     *
+     * @param page The page that was fetched
+     * @param wrapper The page returned
+     * @param list The items on the page
+     * @return
+     */
+    static boolean hasNextPage(int page, WrapperLists wrapper, List<?> list) {
+        if (list.isEmpty()) {
+            return false;
+        }
+        if (wrapper.getTotal() > 0) {
+            return (long) page * PAGE_LIMIT < wrapper.getTotal();
+        }
+        // Without a total keep going until a page is short
+        return list.size() >= PAGE_LIMIT;
+    }
+
+    /**
+     * Fetch a page on the executor
+     *
+     * @param page
+     * @return the future for the page, or null if the executor will not run it
+     */
+    CompletableFuture<WrapperLists> fetchAsync(final int page) {
+        final CompletableFuture<WrapperLists> future = new CompletableFuture<WrapperLists>();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(fetch(page));
+                } catch (RottenTomatoesException | RuntimeException ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            LOG.debug("Prefetch of page {} rejected, it will be fetched when needed", page, ex);
+            return null;
+        }
+        return future;
+    }
+
+    /**
+     * Wait for a page fetched on the executor
+     *
+     * @param future
+     * @return
+     * @throws RottenTomatoesException
+     */
+    static WrapperLists await(CompletableFuture<WrapperLists> future) throws RottenTomatoesException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new RottenTomatoesException(ApiExceptionType.UNKNOWN_CAUSE, "Interrupted waiting for page", "", ex);
+        } catch (CancellationException ex) {
+            throw new RottenTomatoesException(ApiExceptionType.UNKNOWN_CAUSE, "Page fetch cancelled", "", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RottenTomatoesException) {
+                throw (RottenTomatoesException) ex.getCause();
+            }
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new RottenTomatoesException(ApiExceptionType.UNKNOWN_CAUSE, "Page fetch failed", "", ex.getCause());
+        }
+    }
+
+    /**
+     * Fetch pages 2 to the last page with a fixed number of workers
+     *
+     * Each worker takes the next page number until they run out, so no more
+     * than "parallelism" requests are in flight at once. The caller's thread
+     * is one of the workers.
+     */
+    private class PageFanOut {
+
+        private final int lastPage;
+        private final int workers;
+        private final AtomicInteger nextPage = new AtomicInteger(2);
+        private final AtomicReferenceArray<List<T>> pages;
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        PageFanOut(int lastPage, int parallelism) {
+            this.lastPage = lastPage;
+            this.workers = Math.min(parallelism, lastPage - 1);
+            this.pages = new AtomicReferenceArray<List<T>>(lastPage + 1);
+        }
+
+        List<List<T>> run() throws RottenTomatoesException {
+            List<CompletableFuture<Void>> started = new ArrayList<CompletableFuture<Void>>(workers);
+            for (int worker = 1; worker < workers; worker++) {
+                final CompletableFuture<Void> done = new CompletableFuture<Void>();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            work();
+                        } finally {
+                            done.complete(null);
+                        }
+                    });
+                    started.add(done);
+                } catch (RejectedExecutionException ex) {
+                    LOG.debug("Page worker rejected, using fewer workers", ex);
+                    break;
+                }
+            }
+
+            work();
+            for (CompletableFuture<Void> done : started) {
+                done.join();
+            }
+
+            Throwable ex = failure.get();
+            if (ex instanceof RottenTomatoesException) {
+                throw (RottenTomatoesException) ex;
+            } else if (ex instanceof RuntimeException) {
+                throw (RuntimeException) ex;
+            } else if (ex instanceof Error) {
+                throw (Error) ex;
+            } else if (ex != null) {
+                throw new RottenTomatoesException(ApiExceptionType.UNKNOWN_CAUSE, "Page fetch failed", "", ex);
+            }
+
+            List<List<T>> result = new ArrayList<List<T>>(lastPage);
+            for (int page = 2; page <= lastPage; page++) {
+                result.add(pages.get(page));
+            }
+            return result;
+        }
+
+        private void work() {
+            int page;
+            while (failure.get() == null && (page = nextPage.getAndIncrement()) <= lastPage) {
+                try {
+                    pages.set(page, itemsOf(fetch(page)));
+                } catch (Throwable ex) {
+                    // Errors too, or their page would be left missing
+                    failure.compareAndSet(null, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fetches a single page of a list
+     */
+    public interface PageSource {
+
+        /**
+         * Fetch a page
+         *
+         * @param page The page to fetch, starting at 1
+         * @param pageLimit The number of items per page
+         * @return
+         * @throws RottenTomatoesException
+         */
+        WrapperLists fetch(int page, int pageLimit) throws RottenTomatoesException;
+    }
+
+    /**
+     * Thrown from the iterator when a page can not be fetched
+     */
+    public static class PageException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+        private final int page;
+
+        public PageException(int page, RottenTomatoesException cause) {
+            super("Failed to fetch page " + page, cause);
+            this.page = page;
+        }
+
+        public int getPage() {
+            return page;
+        }
+
+        @Override
+        public synchronized RottenTomatoesException getCause() {
+            return (RottenTomatoesException) super.getCause();
+        }
+    }
+
+    /**
+     * Iterate over the items, one page at a time
+     */
+    private class PageIterator implements Iterator<T>, AutoCloseable {
+
+        private int page = 0;
+        private boolean morePages = true;
+        private Iterator<T> current = Collections.<T>emptyIterator();
+        private CompletableFuture<WrapperLists> prefetch;
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (!morePages) {
+                    return false;
+                }
+                nextPage();
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        private void nextPage() {
+            int wanted = page + 1;
+            WrapperLists wrapper;
+            try {
+                wrapper = prefetch == null ? fetch(wanted) : await(prefetch);
+            } catch (RottenTomatoesException ex) {
+                morePages = false;
+                throw new PageException(wanted, ex);
+            } finally {
+                prefetch = null;
+            }
+
+            page = wanted;
+            List<T> list = itemsOf(wrapper);
+            morePages = hasNextPage(page, wrapper, list);
+            if (morePages) {
+                prefetch = fetchAsync(page + 1);
+            }
+            current = list.iterator();
+        }
+
+        @Override
+        public void close() {
+            morePages = false;
+            if (prefetch != null) {
+                prefetch.cancel(false);
+                prefetch = null;
+            }
+        }
+    }
+}
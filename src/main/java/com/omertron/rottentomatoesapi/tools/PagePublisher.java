@@ -0,0 +1,224 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import com.omertron.rottentomatoesapi.RottenTomatoesException;
+import com.omertron.rottentomatoesapi.wrapper.WrapperLists;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamj.api.common.exception.ApiExceptionType;
+
+/**
+ * Publish the items of all the pages of a paged list
+ *
+ * A page is only requested when the subscriber has asked for more items than
+ * are left from the previous page, so a slow subscriber holds back the calls
+ * to the API and at most one page is held in memory. The pages are fetched
+ * on the cursor's executor and the items are sent from that thread, or from
+ * the thread calling request if they are already available.
+ *
+ * Each subscriber starts a new walk from the first page. A failed page
+ * request is sent to onError as the RottenTomatoesException.
+ *
+ * @author Stuart
+ * @param <T> The type of the items in the list
+ */
+public class PagePublisher<T> implements Publisher<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PagePublisher.class);
+    private final PageCursor<T> cursor;
+
+    PagePublisher(PageCursor<T> cursor) {
+        this.cursor = cursor;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber can not be null");
+        }
+        PageSubscription subscription = new PageSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * The walk through the pages for one subscriber
+     *
+     * All the signals to the subscriber are sent from the drain loop, which
+     * only one thread runs at a time.
+     */
+    private final class PageSubscription implements Subscription {
+
+        private final AtomicLong requested = new AtomicLong(0);
+        private final AtomicInteger wip = new AtomicInteger(0);
+        private volatile boolean cancelled = false;
+        private volatile boolean invalidRequest = false;
+        private volatile long invalidCount;
+        /*
+         * Only used by the drain loop
+         */
+        private Subscriber<? super T> subscriber;
+        private final ArrayDeque<T> buffer = new ArrayDeque<T>();
+        private CompletableFuture<WrapperLists> pending;
+        private int page = 0;
+        private boolean morePages = true;
+
+        PageSubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidCount = n;
+                invalidRequest = true;
+            } else {
+                long current;
+                long next;
+                do {
+                    current = requested.get();
+                    if (current == Long.MAX_VALUE) {
+                        break;
+                    }
+                    next = current + n;
+                    if (next < 0) {
+                        next = Long.MAX_VALUE;
+                    }
+                } while (!requested.compareAndSet(current, next));
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        /**
+         * Send what can be sent and fetch the next page if it is needed
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+            do {
+                if (subscriber == null) {
+                    // Already finished
+                    return;
+                }
+                if (cancelled) {
+                    finish();
+                    return;
+                }
+                if (invalidRequest) {
+                    fail(new IllegalArgumentException("Rule 3.9: request must be positive, was " + invalidCount));
+                    return;
+                }
+
+                if (pending != null && pending.isDone()) {
+                    WrapperLists wrapper;
+                    try {
+                        wrapper = pending.join();
+                    } catch (CompletionException | CancellationException ex) {
+                        fail(ex.getCause() == null ? ex : ex.getCause());
+                        return;
+                    }
+                    pending = null;
+                    List<T> list = cursor.itemsOf(wrapper);
+                    buffer.addAll(list);
+                    morePages = PageCursor.hasNextPage(page, wrapper, list);
+                }
+
+                long demand = requested.get();
+                long sent = 0;
+                while (sent != demand && !buffer.isEmpty()) {
+                    subscriber.onNext(buffer.poll());
+                    sent++;
+                    if (cancelled) {
+                        finish();
+                        return;
+                    }
+                }
+                if (sent > 0 && demand != Long.MAX_VALUE) {
+                    demand = requested.addAndGet(-sent);
+                }
+
+                if (buffer.isEmpty() && pending == null) {
+                    if (!morePages) {
+                        Subscriber<? super T> done = subscriber;
+                        subscriber = null;
+                        done.onComplete();
+                        return;
+                    }
+                    if (demand > 0) {
+                        fetchNextPage();
+                        if (subscriber == null) {
+                            return;
+                        }
+                    }
+                }
+
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void fetchNextPage() {
+            page++;
+            LOG.trace("Fetching page {} for subscriber", page);
+            pending = cursor.fetchAsync(page);
+            if (pending == null) {
+                fail(new RottenTomatoesException(ApiExceptionType.UNKNOWN_CAUSE, "Page fetch rejected by executor", ""));
+                return;
+            }
+            pending.whenComplete((wrapper, ex) -> drain());
+        }
+
+        private void fail(Throwable ex) {
+            Subscriber<? super T> failed = subscriber;
+            finish();
+            failed.onError(ex);
+        }
+
+        /**
+         * Drop the subscriber and anything held for it
+         */
+        private void finish() {
+            subscriber = null;
+            buffer.clear();
+            if (pending != null) {
+                pending.cancel(false);
+                pending = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+/**
+ * A snapshot of the connection pool
+ *
+ * @author Stuart
+ */
+public class PoolStatistics {
+
+    private final int leased;
+    private final int pending;
+    private final int available;
+    private final int max;
+
+    public PoolStatistics(int leased, int pending, int available, int max) {
+        this.leased = leased;
+        this.pending = pending;
+        this.available = available;
+        this.max = max;
+    }
+
+    /**
+     * The connections in use by a request
+     *
+     * @return
+     */
+    public int getLeased() {
+        return leased;
+    }
+
+    /**
+     * The requests waiting for a connection
+     *
+     * @return
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * The idle connections ready to be reused
+     *
+     * @return
+     */
+    public int getAvailable() {
+        return available;
+    }
+
+    /**
+     * The most connections the pool will hold
+     *
+     * @return
+     */
+    public int getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStatistics{leased=" + leased + ", pending=" + pending + ", available=" + available + ", max=" + max + "}";
+    }
+}
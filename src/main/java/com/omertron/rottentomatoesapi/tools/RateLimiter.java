@@ -0,0 +1,201 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Token bucket rate limiter used to pace the calls to the API
+ *
+ * The bucket holds up to "burst" tokens and is refilled at the permitted rate.
+ * Each caller reserves the next token without locking and then waits until
+ * that token is due, so calls from any number of threads are spread evenly
+ * over time rather than being rejected by the server.
+ *
+ * @author Stuart
+ */
+public class RateLimiter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimiter.class);
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    /*
+     * Default limits for a standard API key
+     */
+    public static final double DEFAULT_QPS = 5.0;
+    public static final int DEFAULT_BURST = 1;
+    /*
+     * Bucket settings
+     */
+    private final double permitsPerSecond;
+    private final int burst;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    /*
+     * The time the bucket will next be empty, relative to the start time
+     */
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+    /*
+     * Statistics
+     */
+    private final AtomicLong acquireCount = new AtomicLong(0);
+    private final AtomicLong waitCount = new AtomicLong(0);
+    private final AtomicLong totalWaitNanos = new AtomicLong(0);
+    private final AtomicLong maxWaitNanos = new AtomicLong(0);
+
+    /**
+     * Create a rate limiter with the default burst size
+     *
+     * @param permitsPerSecond The number of calls allowed per second
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, DEFAULT_BURST);
+    }
+
+    /**
+     * Create a rate limiter
+     *
+     * @param permitsPerSecond The number of calls allowed per second
+     * @param burst The number of calls that can be made at once after a quiet
+     * period
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0.0) {
+            throw new IllegalArgumentException("Permits per second must be positive: " + permitsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("Burst must be at least 1: " + burst);
+        }
+
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.intervalNanos = (long) (NANOS_PER_SECOND / permitsPerSecond);
+        this.toleranceNanos = intervalNanos * (burst - 1);
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Reserve the next token and return how long the caller must wait for it
+     *
+     * @return the wait in nanoseconds, 0 if the token is available now
+     */
+    public long reserve() {
+        long now = System.nanoTime() - startNanos;
+        long waitNanos;
+        while (true) {
+            long current = theoreticalArrival.get();
+            long start = Math.max(current, now);
+            waitNanos = Math.max(0L, start - toleranceNanos - now);
+            if (theoreticalArrival.compareAndSet(current, start + intervalNanos)) {
+                break;
+            }
+        }
+
+        acquireCount.incrementAndGet();
+        if (waitNanos > 0) {
+            waitCount.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            updateMaxWait(waitNanos);
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Wait until a token is available
+     *
+     * If the thread is interrupted the wait is cut short and the interrupt
+     * flag is restored.
+     *
+     * @return the time waited in nanoseconds
+     */
+    public long acquire() {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            LOG.trace("Rate limit reached, waiting for {}ms", TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException ex) {
+                LOG.trace("Rate limit wait interrupted", ex);
+                Thread.currentThread().interrupt();
+            }
+        }
+        return waitNanos;
+    }
+
+    private void updateMaxWait(long waitNanos) {
+        long max = maxWaitNanos.get();
+        while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            max = maxWaitNanos.get();
+        }
+    }
+
+    /**
+     * The number of tokens handed out
+     *
+     * @return
+     */
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    /**
+     * The number of callers that had to wait for a token
+     *
+     * @return
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * The total time all callers have waited for tokens
+     *
+     * @return milliseconds
+     */
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+    }
+
+    /**
+     * The longest time a single caller waited for a token
+     *
+     * @return milliseconds
+     */
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiter{permitsPerSecond=" + permitsPerSecond + ", burst=" + burst
+                + ", acquired=" + getAcquireCount() + ", waited=" + getWaitCount()
+                + ", totalWaitMs=" + getTotalWaitMillis() + ", maxWaitMs=" + getMaxWaitMillis() + "}";
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The body of a response, decompressed as it is read
+ *
+ * Both the bytes read from the connection and the bytes returned are counted,
+ * and recorded in the metrics when the body is closed.
+ *
+ * @author Stuart
+ */
+final class ResponseBody extends FilterInputStream {
+
+    private static final String GZIP = "gzip";
+    private static final String X_GZIP = "x-gzip";
+    private static final String DEFLATE = "deflate";
+    private static final String IDENTITY = "identity";
+    private static final int BUFFER_SIZE = 8192;
+    private static final int ZLIB_METHOD_MASK = 0x0F;
+    private static final int ZLIB_DEFLATE = 0x08;
+    private static final int ZLIB_CHECK = 31;
+    private final CountingStream wire;
+    private final boolean compressed;
+    private final TransferMetrics metrics;
+    private long decoded = 0;
+    private boolean closed = false;
+
+    private ResponseBody(CountingStream wire, InputStream decoder, boolean compressed, TransferMetrics metrics) {
+        super(decoder);
+        this.wire = wire;
+        this.compressed = compressed;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Open the body for reading
+     *
+     * @param content the stream from the connection
+     * @param contentEncoding the Content-Encoding header, can be null
+     * @param metrics
+     * @return
+     * @throws IOException if the encoding is not supported or the header is
+     * invalid
+     */
+    static ResponseBody open(InputStream content, String contentEncoding, TransferMetrics metrics) throws IOException {
+        CountingStream wire = new CountingStream(content);
+        String encoding = StringUtils.trimToEmpty(contentEncoding);
+        if (encoding.isEmpty() || IDENTITY.equalsIgnoreCase(encoding)) {
+            return new ResponseBody(wire, wire, false, metrics);
+        } else if (GZIP.equalsIgnoreCase(encoding) || X_GZIP.equalsIgnoreCase(encoding)) {
+            return new ResponseBody(wire, new GZIPInputStream(wire, BUFFER_SIZE), true, metrics);
+        } else if (DEFLATE.equalsIgnoreCase(encoding)) {
+            return new ResponseBody(wire, inflate(wire), true, metrics);
+        }
+        throw new IOException("Unsupported content encoding: " + contentEncoding);
+    }
+
+    /**
+     * Servers send "deflate" either with the zlib wrapper, as the standard
+     * says, or as a raw deflate stream, so check for a valid zlib header in
+     * the first two bytes
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    private static InputStream inflate(InputStream in) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(in, 2);
+        int cmf = pushback.read();
+        int flg = cmf == -1 ? -1 : pushback.read();
+        if (flg != -1) {
+            pushback.unread(flg);
+        }
+        if (cmf != -1) {
+            pushback.unread(cmf);
+        }
+        boolean zlib = flg != -1 && (cmf & ZLIB_METHOD_MASK) == ZLIB_DEFLATE && ((cmf << 8) | flg) % ZLIB_CHECK == 0;
+        return new InflaterInputStream(pushback, new Inflater(!zlib), BUFFER_SIZE);
+    }
+
+    boolean isCompressed() {
+        return compressed;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            decoded++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int count = super.read(buffer, offset, length);
+        if (count > 0) {
+            decoded += count;
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        decoded += skipped;
+        return skipped;
+    }
+
+    /**
+     * Read the rest of the body, so a truncated body is detected
+     *
+     * @throws IOException
+     */
+    void drain() throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (read(buffer, 0, buffer.length) != -1) {
+            // Discard
+        }
+    }
+
+    /**
+     * Read the rest of the body
+     *
+     * @return
+     * @throws IOException
+     */
+    byte[] readAll() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = read(buffer, 0, buffer.length)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        // Not supported
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            metrics.record(compressed, wire.count, decoded);
+        }
+        super.close();
+    }
+
+    /**
+     * Count the bytes read from the connection
+     */
+    private static final class CountingStream extends FilterInputStream {
+
+        private long count = 0;
+
+        CountingStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void mark(int readlimit) {
+            // Not supported
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -19,19 +19,32 @@
  */
 package com.omertron.rottentomatoesapi.tools;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.omertron.rottentomatoesapi.RottenTomatoesException;
 import com.omertron.rottentomatoesapi.model.AbstractJsonMapping;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yamj.api.common.exception.ApiExceptionType;
-import org.yamj.api.common.http.DigestedResponse;
-import org.yamj.api.common.http.DigestedResponseReader;
 
 /**
  *
@@ -45,13 +58,16 @@ public class ResponseBuilder {
      */
     private static final int RETRY_DELAY_MS = 500;
     private static final int RETRY_DEFAULT_LIMIT = 5;
+    private static final long RETRY_MAX_DELAY_MS = 10000;
+    private static final String OVER_LIMIT_ERROR = "Account Over Queries Per Second Limit";
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
     private static final int HTTP_STATUS_300 = 300;
     private static final int HTTP_STATUS_500 = 500;
 
     /*
      * Jackson JSON configuration
      */
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private volatile JsonReaders readers = JsonReaders.standard();
     private static final String DEFAULT_CHARSET = "UTF-8";
     private final Charset charset = Charset.forName(DEFAULT_CHARSET);
     /*
@@ -59,25 +75,70 @@ public class ResponseBuilder {
      */
     private long retryDelay = RETRY_DELAY_MS;
     private int retryLimit = RETRY_DEFAULT_LIMIT;
+    private volatile RetryPolicy retryPolicy = createDefaultRetryPolicy(RETRY_DELAY_MS, RETRY_DEFAULT_LIMIT);
+    private final RetryMetrics retryMetrics = new RetryMetrics();
+    private final TransferMetrics transferMetrics = new TransferMetrics();
+    private volatile boolean compression = true;
+    /*
+     * Client side rate limit, shared by all threads using this builder
+     */
+    private volatile RateLimiter rateLimiter;
+    /*
+     * Optional cache of the responses
+     */
+    private volatile ResponseCache responseCache;
+    private volatile DiskCache diskCache;
+    /*
+     * Requests that are in progress, so that identical calls can share them
+     */
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<String, CompletableFuture<Object>>();
+    private volatile boolean coalescing = false;
+    private final AtomicLong coalescedCount = new AtomicLong(0);
+    /*
+     * Timer for the delays of the non-blocking calls
+     */
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "rt-retry-timer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
     /*
      * HTTP Client for web requests
      */
-    private final HttpClient httpClient;
+    private final HttpTransport transport;
 
     public ResponseBuilder(HttpClient httpClient) {
-        this.httpClient = httpClient;
+        this(new ApacheTransport(httpClient));
+    }
+
+    public ResponseBuilder(HttpTransport transport) {
+        if (transport == null) {
+            throw new IllegalArgumentException("Transport can not be null");
+        }
+        this.transport = transport;
+    }
+
+    public HttpTransport getTransport() {
+        return transport;
     }
 
     /**
      * Set the delay time between API retries when the account is over it's
      * limit
      *
+     * This is the shortest delay of the default retry policy and replaces any
+     * policy that has been set.
+     *
      * @param retryDelay milliseconds to delay for, default is 500ms
      */
-    public void setRetryDelay(long retryDelay) {
+    public synchronized void setRetryDelay(long retryDelay) {
         if (retryDelay > RETRY_DELAY_MS) {
             this.retryDelay = retryDelay;
         }
+        this.retryPolicy = createDefaultRetryPolicy(this.retryDelay, this.retryLimit);
     }
 
     /**
@@ -85,18 +146,168 @@ public class ResponseBuilder {
      *
      * Once this limit is hit an exception is thrown.
      *
+     * This is the retry limit of the default retry policy and replaces any
+     * policy that has been set.
+     *
      * @param retryLimit Number of retries, default is 5
      */
-    public void setRetryLimit(int retryLimit) {
+    public synchronized void setRetryLimit(int retryLimit) {
         if (retryLimit > 1) {
             this.retryLimit = retryLimit;
         }
+        this.retryPolicy = createDefaultRetryPolicy(this.retryDelay, this.retryLimit);
+    }
+
+    /**
+     * Set the policy used to retry failed calls
+     *
+     * @param retryPolicy
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        if (retryPolicy == null) {
+            throw new IllegalArgumentException("Retry policy can not be null");
+        }
+        this.retryPolicy = retryPolicy;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Counters for the attempts and retries made by the calls
+     *
+     * @return
+     */
+    public RetryMetrics getRetryMetrics() {
+        return retryMetrics;
+    }
+
+    /**
+     * Ask the server to compress the responses
+     *
+     * The responses are decompressed as they are parsed. This is on by
+     * default.
+     *
+     * @param compression
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * The sizes of the response bodies read
+     *
+     * @return
+     */
+    public TransferMetrics getTransferMetrics() {
+        return transferMetrics;
+    }
+
+    /**
+     * The default policy is an exponential backoff with jitter so that threads
+     * throttled at the same time do not all retry at the same time
+     *
+     * @param delay
+     * @param limit
+     * @return
+     */
+    private static RetryPolicy createDefaultRetryPolicy(long delay, int limit) {
+        return new DecorrelatedJitterPolicy(delay, Math.max(delay, RETRY_MAX_DELAY_MS), limit);
+    }
+
+    /**
+     * Set the rate limiter used to pace the calls to the API
+     *
+     * @param rateLimiter the limiter to use, or null to send calls without
+     * pacing
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Use generated bytecode rather than reflection to map the responses
+     *
+     * @param afterburner true to use the Afterburner readers
+     */
+    public void setAfterburner(boolean afterburner) {
+        this.readers = afterburner ? JsonReaders.afterburner() : JsonReaders.standard();
+    }
+
+    public boolean isAfterburner() {
+        return readers.isAfterburner();
+    }
+
+    /**
+     * Set the cache for the responses
+     *
+     * @param responseCache the cache to use, or null to not cache responses
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Set the persistent cache for the raw JSON responses
+     *
+     * This is checked after the in-memory cache and before calling the API
+     *
+     * @param diskCache the cache to use, or null to not persist responses
+     */
+    public void setDiskCache(DiskCache diskCache) {
+        this.diskCache = diskCache;
+    }
+
+    public DiskCache getDiskCache() {
+        return diskCache;
+    }
+
+    /**
+     * Let identical calls made at the same time share one request
+     *
+     * The callers then get the same wrapper, so should not change it. This is
+     * off by default.
+     *
+     * @param coalescing
+     */
+    public void setCoalescing(boolean coalescing) {
+        this.coalescing = coalescing;
+    }
+
+    public boolean isCoalescing() {
+        return coalescing;
+    }
+
+    /**
+     * The number of calls that were answered by sharing an identical request
+     * that was already in progress
+     *
+     * @return
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
     }
 
     /**
      * Get the wrapper for the passed properties
      *
-     * Will retry up to retry limit
+     * The response is taken from the in-memory cache or the disk cache if
+     * there are any, otherwise it is requested from the API. An expired
+     * in-memory response with validators is revalidated with a conditional
+     * request and reused if it has not changed.
      *
      * @param <T>
      * @param clazz
@@ -106,62 +317,666 @@ public class ResponseBuilder {
      */
     public <T extends AbstractJsonMapping> T getResponse(Class<T> clazz, Map<String, String> properties) throws RottenTomatoesException {
         String url = ApiBuilder.create(properties);
-        try {
-            T wrapper = clazz.cast(MAPPER.readValue(getContent(url), clazz));
-            int retry = 1;
 
-            while (!wrapper.isValid() && "Account Over Queries Per Second Limit".equalsIgnoreCase(wrapper.getError()) && retry <= retryLimit) {
-                LOG.trace("Account over queries limit, waiting for {}ms.", retryDelay * retry);
-                sleeper(retry++);
-                wrapper = MAPPER.readValue(getContent(url), clazz);
+        ResponseCache cache = responseCache;
+        DiskCache disk = diskCache;
+        if (cache == null && disk == null) {
+            return fetchShared(clazz, url, null);
+        }
+
+        EndpointFamily family = EndpointFamily.fromUrl(properties.get(ApiBuilder.PROPERTY_URL));
+        String cacheKey = ApiBuilder.createCacheKey(properties);
+        ResponseCache.CacheEntry stale = null;
+        if (cache != null && cache.isCached(family)) {
+            Object cached = cache.get(cacheKey);
+            if (clazz.isInstance(cached)) {
+                LOG.trace("Using cached response for {}", cacheKey);
+                return clazz.cast(cached);
             }
+            stale = cache.getRevalidatable(cacheKey);
+            if (stale != null && !clazz.isInstance(stale.getValue())) {
+                stale = null;
+            }
+        }
 
-            if (wrapper.isValid()) {
+        if (disk != null && disk.isCached(family)) {
+            T wrapper = readStored(clazz, disk.getBytes(cacheKey));
+            if (wrapper != null) {
+                LOG.trace("Using disk cached response for {}", cacheKey);
+                if (cache != null) {
+                    cache.put(cacheKey, family, wrapper);
+                }
                 return wrapper;
-            } else {
-                throw new RottenTomatoesException(ApiExceptionType.MAPPING_FAILED, wrapper.getError(), url);
             }
-        } catch (IOException ex) {
-            throw new RottenTomatoesException(ApiExceptionType.MAPPING_FAILED, "Failed to map response", url, ex);
         }
+
+        return fetchShared(clazz, url, new CacheTarget(cache, disk, cacheKey, family, stale));
     }
 
     /**
-     * Get the content from a string, decoding it if it is in GZIP format
+     * Request the wrapper from the API, sharing the result with any identical
+     * calls made while the request is in progress if coalescing is on
+     *
+     * The first caller for a URL makes the request and the others wait for
+     * its result or exception.
      *
-     * @param urlString
+     * @param <T>
+     * @param clazz
+     * @param url
+     * @param target where to cache a valid response, can be null
      * @return
      * @throws RottenTomatoesException
      */
-    private String getContent(String url) throws RottenTomatoesException {
-        LOG.trace("Requesting: {}", url);
+    private <T extends AbstractJsonMapping> T fetchShared(Class<T> clazz, String url, CacheTarget target) throws RottenTomatoesException {
+        if (!coalescing) {
+            return fetchResponse(clazz, url, target);
+        }
+
+        CompletableFuture<Object> flight = new CompletableFuture<Object>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(url, flight);
+        if (existing != null) {
+            Object shared = awaitShared(existing, url);
+            if (clazz.isInstance(shared)) {
+                coalescedCount.incrementAndGet();
+                LOG.trace("Shared in-flight response for {}", url);
+                return clazz.cast(shared);
+            }
+            // Same URL mapped to a different class, make the call separately
+            return fetchResponse(clazz, url, target);
+        }
+
         try {
-            final HttpGet httpGet = new HttpGet(url);
-            httpGet.addHeader("accept", "application/json");
-            final DigestedResponse response = DigestedResponseReader.requestContent(httpClient, httpGet, charset);
+            T wrapper = fetchResponse(clazz, url, target);
+            flight.complete(wrapper);
+            return wrapper;
+        } catch (RottenTomatoesException | RuntimeException ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(url, flight);
+            if (!flight.isDone()) {
+                // Do not leave the other callers waiting after an error
+                flight.completeExceptionally(new RottenTomatoesException(ApiExceptionType.UNKNOWN_CAUSE, "Shared request failed", url));
+            }
+        }
+    }
 
-            if (response.getStatusCode() >= HTTP_STATUS_500) {
-                throw new RottenTomatoesException(ApiExceptionType.HTTP_503_ERROR, response.getContent(), response.getStatusCode(), url);
-            } else if (response.getStatusCode() >= HTTP_STATUS_300) {
-                throw new RottenTomatoesException(ApiExceptionType.HTTP_404_ERROR, response.getContent(), response.getStatusCode(), url);
+    /**
+     * Wait for the result of a request made by another caller
+     *
+     * @param flight
+     * @param url
+     * @return
+     * @throws RottenTomatoesException
+     */
+    private Object awaitShared(CompletableFuture<Object> flight, String url) throws RottenTomatoesException {
+        try {
+            return flight.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RottenTomatoesException(ApiExceptionType.UNKNOWN_CAUSE, "Interrupted waiting for response", url, ex);
+        } catch (ExecutionException ex) {
+            coalescedCount.incrementAndGet();
+            if (ex.getCause() instanceof RottenTomatoesException) {
+                throw (RottenTomatoesException) ex.getCause();
+            } else if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new RottenTomatoesException(ApiExceptionType.UNKNOWN_CAUSE, "Shared request failed", url, ex.getCause());
+        }
+    }
+
+    /**
+     * Map the JSON stored in the disk cache
+     *
+     * @param <T>
+     * @param clazz
+     * @param json the UTF-8 JSON
+     * @return the wrapper, or null if there was no usable JSON
+     */
+    private <T extends AbstractJsonMapping> T readStored(Class<T> clazz, byte[] json) {
+        if (json == null) {
+            return null;
+        }
+
+        try {
+            T wrapper = clazz.cast(readers.forType(clazz).readValue(json));
+            return wrapper.isValid() ? wrapper : null;
+        } catch (IOException ex) {
+            LOG.trace("Ignoring unreadable cached response", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Request the wrapper from the API
+     *
+     * Failures are retried as the retry policy allows
+     *
+     * @param <T>
+     * @param clazz
+     * @param url
+     * @param target where to cache a valid response, can be null
+     * @return
+     * @throws RottenTomatoesException
+     */
+    private <T extends AbstractJsonMapping> T fetchResponse(Class<T> clazz, String url, CacheTarget target) throws RottenTomatoesException {
+        RetryPolicy policy = retryPolicy;
+        int attempt = 1;
+        long delay = 0;
+
+        while (true) {
+            try {
+                return accept(clazz, url, target, readResponse(clazz, url, target), attempt);
+            } catch (RottenTomatoesException ex) {
+                delay = nextDelay(policy, ex, url, attempt, delay);
+                if (delay < 0) {
+                    throw ex;
+                }
+                if (!sleeper(delay)) {
+                    retryMetrics.recordOutcome(attempt, false);
+                    throw ex;
+                }
             }
+            attempt++;
+        }
+    }
+
+    /**
+     * Check the mapped response is valid and cache it
+     *
+     * @param <T>
+     * @param clazz
+     * @param url
+     * @param target where to cache a valid response, can be null
+     * @param response
+     * @param attempt
+     * @return
+     * @throws RottenTomatoesException if the API returned an error
+     */
+    private <T extends AbstractJsonMapping> T accept(Class<T> clazz, String url, CacheTarget target, ParsedResponse response, int attempt) throws RottenTomatoesException {
+        if (response.isNotModified()) {
+            LOG.trace("Response for {} has not changed", url);
+            retryMetrics.recordOutcome(attempt, true);
+            return clazz.cast(target.revalidated(response));
+        }
+
+        T wrapper = clazz.cast(response.wrapper);
+        if (!wrapper.isValid()) {
+            throw new RottenTomatoesException(ApiExceptionType.MAPPING_FAILED, wrapper.getError(), url);
+        }
+        retryMetrics.recordOutcome(attempt, true);
+        if (target != null) {
+            target.store(wrapper, response);
+        }
+        return wrapper;
+    }
+
+    /**
+     * Work out how long to wait before retrying a failed attempt
+     *
+     * @param policy
+     * @param failure
+     * @param url
+     * @param attempt
+     * @param previousDelay
+     * @return the delay in milliseconds, or -1 if the call should not be
+     * retried
+     */
+    private long nextDelay(RetryPolicy policy, RottenTomatoesException failure, String url, int attempt, long previousDelay) {
+        RetryReason reason = getRetryReason(failure);
+        if (reason == null || !policy.isRetryable(reason)) {
+            retryMetrics.recordOutcome(attempt, false);
+            return -1;
+        }
+
+        if (attempt > policy.getRetryLimit()) {
+            LOG.trace("Retry limit reached for {}", url);
+            retryMetrics.recordExhausted(attempt);
+            return -1;
+        }
+
+        long delay = policy.getDelay(attempt, previousDelay);
+        LOG.trace("{} for {}, retry #{} in {}ms", reason, url, attempt, delay);
+        retryMetrics.recordRetry(reason, delay);
+        return delay;
+    }
+
+    /**
+     * Work out if the exception is one that can be retried
+     *
+     * @param ex
+     * @return the reason to retry, or null if it should not be retried
+     */
+    private static RetryReason getRetryReason(RottenTomatoesException ex) {
+        if (ex.getExceptionType() == ApiExceptionType.HTTP_503_ERROR) {
+            return RetryReason.SERVER_ERROR;
+        } else if (ex.getExceptionType() == ApiExceptionType.CONNECTION_ERROR) {
+            return RetryReason.CONNECTION_ERROR;
+        } else if (ex.getExceptionType() == ApiExceptionType.MAPPING_FAILED && OVER_LIMIT_ERROR.equalsIgnoreCase(ex.getResponse())) {
+            return RetryReason.OVER_LIMIT;
+        }
+        return null;
+    }
 
-            return response.getContent();
+    /**
+     * Request the URL and map the response
+     *
+     * If there is a cached response to revalidate its validators are sent
+     * with the request and a "304 Not Modified" response is accepted.
+     *
+     * @param clazz
+     * @param url
+     * @param target the cache target for the response, can be null
+     * @return
+     * @throws RottenTomatoesException
+     */
+    private ParsedResponse readResponse(Class<?> clazz, String url, CacheTarget target) throws RottenTomatoesException {
+        LOG.trace("Requesting: {}", url);
+        RateLimiter limiter = rateLimiter;
+        if (limiter != null) {
+            limiter.acquire();
+        }
+
+        try (HttpTransport.Response httpResponse = transport.get(url, requestHeaders(target))) {
+            return parseResponse(clazz, url, target, httpResponse);
         } catch (IOException ex) {
             throw new RottenTomatoesException(ApiExceptionType.CONNECTION_ERROR, "Error retrieving URL", url, ex);
         }
     }
 
+    /**
+     * The headers to send with a request
+     *
+     * @param target the cache target for the response, can be null
+     * @return
+     */
+    private Map<String, String> requestHeaders(CacheTarget target) {
+        final Map<String, String> headers = new LinkedHashMap<String, String>();
+        headers.put(HttpHeaders.ACCEPT, "application/json");
+        if (compression) {
+            headers.put(HttpHeaders.ACCEPT_ENCODING, ACCEPT_ENCODING);
+        }
+        if (target != null) {
+            target.addValidators(headers);
+        }
+        return headers;
+    }
+
+    /**
+     * Map the response
+     *
+     * The JSON is parsed straight from the response stream. It is only read
+     * into a buffer when the raw JSON is needed for the disk cache, or as a
+     * String for the exception when the call fails.
+     *
+     * @param clazz
+     * @param url
+     * @param target the cache target for the response, can be null
+     * @param httpResponse
+     * @return
+     * @throws RottenTomatoesException
+     * @throws IOException if the response could not be read
+     */
+    private ParsedResponse parseResponse(Class<?> clazz, String url, CacheTarget target, HttpTransport.Response httpResponse) throws RottenTomatoesException, IOException {
+        try {
+            final int statusCode = httpResponse.getStatusCode();
+            final ParsedResponse response = new ParsedResponse(statusCode,
+                    httpResponse.getHeader(HttpHeaders.ETAG), httpResponse.getHeader(HttpHeaders.LAST_MODIFIED));
+            final InputStream content = httpResponse.getBody();
+
+            if (statusCode >= HTTP_STATUS_500) {
+                throw new RottenTomatoesException(ApiExceptionType.HTTP_503_ERROR, readError(httpResponse, content), statusCode, url);
+            } else if (response.isNotModified() && target != null && target.canRevalidate()) {
+                return response;
+            } else if (statusCode >= HTTP_STATUS_300 || content == null) {
+                throw new RottenTomatoesException(ApiExceptionType.HTTP_404_ERROR, readError(httpResponse, content), statusCode, url);
+            }
+
+            final ObjectReader reader = readers.forType(clazz);
+            try (ResponseBody body = openBody(httpResponse, content)) {
+                if (target != null && target.needsBody()) {
+                    response.body = body.readAll();
+                    response.wrapper = reader.readValue(response.body);
+                } else {
+                    response.wrapper = reader.readValue(body);
+                    // Read to the end so a truncated response is not accepted
+                    body.drain();
+                }
+            }
+            return response;
+        } catch (JsonProcessingException ex) {
+            throw new RottenTomatoesException(ApiExceptionType.MAPPING_FAILED, "Failed to map response", url, ex);
+        }
+    }
+
+    /**
+     * Get the wrapper for the passed properties without blocking a thread
+     *
+     * The transport must be an AsyncHttpTransport. The caches are used and
+     * identical calls in progress are shared if coalescing is on, as with the
+     * blocking calls. The disk cache is read on the caller's thread, before
+     * the request is made. Each caller gets its own future, so cancelling it
+     * does not affect a shared request. Rate limit and retry delays are waited
+     * for on a timer and the JSON is mapped on the thread that completes the
+     * response.
+     *
+     * @param <T>
+     * @param clazz
+     * @param properties
+     * @return a future that completes with the wrapper or the
+     * RottenTomatoesException
+     */
+    public <T extends AbstractJsonMapping> CompletableFuture<T> getResponseAsync(final Class<T> clazz, Map<String, String> properties) {
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+        if (!(transport instanceof AsyncHttpTransport)) {
+            result.completeExceptionally(new RottenTomatoesException(ApiExceptionType.UNKNOWN_CAUSE,
+                    "Transport does not support non-blocking calls: " + transport.getClass().getSimpleName(), ""));
+            return result;
+        }
+
+        final String url;
+        final String cacheKey;
+        try {
+            url = ApiBuilder.create(properties);
+            cacheKey = ApiBuilder.createCacheKey(properties);
+        } catch (RottenTomatoesException ex) {
+            result.completeExceptionally(ex);
+            return result;
+        }
+
+        ResponseCache cache = responseCache;
+        DiskCache disk = diskCache;
+        CacheTarget target = null;
+        if (cache != null || disk != null) {
+            EndpointFamily family = EndpointFamily.fromUrl(properties.get(ApiBuilder.PROPERTY_URL));
+            ResponseCache.CacheEntry stale = null;
+            if (cache != null && cache.isCached(family)) {
+                Object cached = cache.get(cacheKey);
+                if (clazz.isInstance(cached)) {
+                    LOG.trace("Using cached response for {}", cacheKey);
+                    result.complete(clazz.cast(cached));
+                    return result;
+                }
+                stale = cache.getRevalidatable(cacheKey);
+                if (stale != null && !clazz.isInstance(stale.getValue())) {
+                    stale = null;
+                }
+            }
+
+            if (disk != null && disk.isCached(family)) {
+                T wrapper = readStored(clazz, disk.getBytes(cacheKey));
+                if (wrapper != null) {
+                    LOG.trace("Using disk cached response for {}", cacheKey);
+                    if (cache != null) {
+                        cache.put(cacheKey, family, wrapper);
+                    }
+                    result.complete(wrapper);
+                    return result;
+                }
+            }
+            target = new CacheTarget(cache, disk, cacheKey, family, stale);
+        }
+
+        if (!coalescing) {
+            fetchAsync(clazz, url, target, retryPolicy, 1, 0, result);
+            return result;
+        }
+
+        final CompletableFuture<Object> flight = new CompletableFuture<Object>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(url, flight);
+        if (existing != null) {
+            final CacheTarget separate = target;
+            existing.whenComplete((shared, error) -> {
+                if (error == null && !clazz.isInstance(shared)) {
+                    // Same URL mapped to a different class, make the call separately
+                    fetchAsync(clazz, url, separate, retryPolicy, 1, 0, result);
+                    return;
+                }
+                coalescedCount.incrementAndGet();
+                if (error == null) {
+                    result.complete(clazz.cast(shared));
+                } else {
+                    result.completeExceptionally(error);
+                }
+            });
+            return result;
+        }
+
+        // The shared request is not driven by the caller's future, so that
+        // cancelling it does not fail the other callers or stop the retries
+        final CompletableFuture<T> request = new CompletableFuture<T>();
+        request.whenComplete((wrapper, error) -> {
+            inFlight.remove(url, flight);
+            if (error == null) {
+                flight.complete(wrapper);
+                result.complete(wrapper);
+            } else {
+                flight.completeExceptionally(error);
+                result.completeExceptionally(error);
+            }
+        });
+        fetchAsync(clazz, url, target, retryPolicy, 1, 0, request);
+        return result;
+    }
+
+    /**
+     * Make an attempt to request the wrapper, scheduling the next attempt on
+     * the timer if it fails and can be retried
+     *
+     * @param <T>
+     * @param clazz
+     * @param url
+     * @param target where to cache a valid response, can be null
+     * @param policy
+     * @param attempt
+     * @param previousDelay
+     * @param result
+     */
+    private <T extends AbstractJsonMapping> void fetchAsync(final Class<T> clazz, final String url, final CacheTarget target,
+            final RetryPolicy policy, final int attempt, long previousDelay, final CompletableFuture<T> result) {
+        if (result.isDone()) {
+            // Cancelled by the caller
+            return;
+        }
+
+        LOG.trace("Requesting: {}", url);
+        sendAsync(url, requestHeaders(target)).whenComplete((httpResponse, error) -> {
+            try {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    throw new RottenTomatoesException(ApiExceptionType.CONNECTION_ERROR, "Error retrieving URL", url, cause);
+                }
+
+                ParsedResponse response;
+                try (HttpTransport.Response buffered = httpResponse) {
+                    response = parseResponse(clazz, url, target, buffered);
+                } catch (IOException ex) {
+                    throw new RottenTomatoesException(ApiExceptionType.CONNECTION_ERROR, "Error retrieving URL", url, ex);
+                }
+                result.complete(accept(clazz, url, target, response, attempt));
+            } catch (RottenTomatoesException ex) {
+                final long delay = nextDelay(policy, ex, url, attempt, previousDelay);
+                if (delay < 0) {
+                    result.completeExceptionally(ex);
+                } else {
+                    schedule(() -> fetchAsync(clazz, url, target, policy, attempt + 1, delay, result), TimeUnit.MILLISECONDS.toNanos(delay), result);
+                }
+            } catch (RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+    }
+
+    /**
+     * Send the request once the rate limiter allows it
+     *
+     * @param url
+     * @param headers
+     * @return
+     */
+    private CompletableFuture<HttpTransport.Response> sendAsync(final String url, final Map<String, String> headers) {
+        final AsyncHttpTransport async = (AsyncHttpTransport) transport;
+        RateLimiter limiter = rateLimiter;
+        long waitNanos = limiter == null ? 0 : limiter.reserve();
+        if (waitNanos <= 0) {
+            return send(async, url, headers);
+        }
+
+        final CompletableFuture<HttpTransport.Response> delayed = new CompletableFuture<HttpTransport.Response>();
+        schedule(() -> send(async, url, headers).whenComplete((response, error) -> {
+            if (error == null) {
+                delayed.complete(response);
+            } else {
+                delayed.completeExceptionally(error);
+            }
+        }), waitNanos, delayed);
+        return delayed;
+    }
+
+    private static CompletableFuture<HttpTransport.Response> send(AsyncHttpTransport async, String url, Map<String, String> headers) {
+        try {
+            return async.getAsync(url, headers);
+        } catch (RuntimeException ex) {
+            CompletableFuture<HttpTransport.Response> failed = new CompletableFuture<HttpTransport.Response>();
+            failed.completeExceptionally(ex);
+            return failed;
+        }
+    }
+
+    /**
+     * Run the task on the timer after the delay
+     *
+     * @param task
+     * @param delayNanos
+     * @param future failed if the timer can not run the task
+     */
+    private static void schedule(Runnable task, long delayNanos, CompletableFuture<?> future) {
+        try {
+            TIMER.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(new RottenTomatoesException(ApiExceptionType.UNKNOWN_CAUSE, "Delay rejected by timer", "", ex));
+        }
+    }
+
+    /**
+     * Read the body of a failed response for the exception
+     *
+     * @param httpResponse
+     * @param content
+     * @return
+     * @throws IOException
+     */
+    private String readError(HttpTransport.Response httpResponse, InputStream content) throws IOException {
+        if (content == null) {
+            return "";
+        }
+        try (ResponseBody body = openBody(httpResponse, content)) {
+            return new String(body.readAll(), charset);
+        }
+    }
+
+    /**
+     * Open the response body, decompressing it if the server compressed it
+     *
+     * @param httpResponse
+     * @param content
+     * @return
+     * @throws IOException
+     */
+    private ResponseBody openBody(HttpTransport.Response httpResponse, InputStream content) throws IOException {
+        return ResponseBody.open(content, httpResponse.getHeader(HttpHeaders.CONTENT_ENCODING), transferMetrics);
+    }
+
+    /**
+     * The mapped response and the parts of the HTTP response that are used
+     */
+    private static final class ParsedResponse {
+
+        private final int statusCode;
+        private final String etag;
+        private final String lastModified;
+        private Object wrapper;
+        private byte[] body;
+
+        ParsedResponse(int statusCode, String etag, String lastModified) {
+            this.statusCode = statusCode;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        boolean isNotModified() {
+            return statusCode == HttpStatus.SC_NOT_MODIFIED;
+        }
+    }
+
+    /**
+     * Where to cache a response, and the cached response to revalidate
+     */
+    private static final class CacheTarget {
+
+        private final ResponseCache cache;
+        private final DiskCache disk;
+        private final String key;
+        private final EndpointFamily family;
+        private final ResponseCache.CacheEntry stale;
+
+        CacheTarget(ResponseCache cache, DiskCache disk, String key, EndpointFamily family, ResponseCache.CacheEntry stale) {
+            this.cache = cache;
+            this.disk = disk;
+            this.key = key;
+            this.family = family;
+            this.stale = stale;
+        }
+
+        boolean canRevalidate() {
+            return stale != null;
+        }
+
+        boolean needsBody() {
+            return disk != null && disk.isCached(family);
+        }
+
+        void addValidators(Map<String, String> headers) {
+            if (stale != null) {
+                if (stale.getEtag() != null) {
+                    headers.put(HttpHeaders.IF_NONE_MATCH, stale.getEtag());
+                }
+                if (stale.getLastModified() != null) {
+                    headers.put(HttpHeaders.IF_MODIFIED_SINCE, stale.getLastModified());
+                }
+            }
+        }
+
+        void store(Object wrapper, ParsedResponse response) {
+            if (cache != null) {
+                cache.put(key, family, wrapper, response.etag, response.lastModified);
+            }
+            if (disk != null && response.body != null) {
+                disk.put(key, family, response.body);
+            }
+        }
+
+        Object revalidated(ParsedResponse response) {
+            cache.revalidate(key, family, stale, response.etag, response.lastModified);
+            return stale.getValue();
+        }
+    }
+
     /**
      * Sleep for a short period
      *
-     * @param count
+     * @param delay milliseconds to sleep for
+     * @return false if the sleep was interrupted
      */
-    private void sleeper(int count) {
+    private boolean sleeper(long delay) {
         try {
-            Thread.sleep(retryDelay * (long) count);
+            Thread.sleep(delay);
+            return true;
         } catch (InterruptedException ex) {
             LOG.trace("Sleep interrupted", ex);
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
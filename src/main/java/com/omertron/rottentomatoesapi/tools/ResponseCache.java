@@ -0,0 +1,351 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory cache of the responses from the API
+ *
+ * Responses are kept for a time set per endpoint family. When the cache is
+ * full the entries are evicted in "second chance" order: an entry that has
+ * been read since it was last checked is kept and the next one is tried.
+ *
+ * Expired entries are not removed when they are read, they are replaced by
+ * the next response for the same key or are the first to be evicted.
+ *
+ * Any ETag or Last-Modified validators sent with a response are kept with it,
+ * so that an expired entry can be revalidated with a conditional request and
+ * reused if the server reports that it has not changed.
+ *
+ * The cached objects are shared between all callers and should be treated as
+ * read only.
+ *
+ * @author Stuart
+ */
+public class ResponseCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCache.class);
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    private final int maxEntries;
+    private final ConcurrentMap<String, CacheEntry> entries;
+    private final Queue<String> evictionQueue = new ConcurrentLinkedQueue<String>();
+    private final AtomicLongArray ttls = new AtomicLongArray(EndpointFamily.values().length);
+    /*
+     * Statistics
+     */
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+    private final AtomicLong expirations = new AtomicLong(0);
+    private final AtomicLong revalidations = new AtomicLong(0);
+
+    public ResponseCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Create the cache
+     *
+     * @param maxEntries The maximum number of responses to keep
+     */
+    public ResponseCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache must hold at least one entry: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new ConcurrentHashMap<String, CacheEntry>(Math.min(maxEntries, DEFAULT_MAX_ENTRIES));
+        for (EndpointFamily family : EndpointFamily.values()) {
+            ttls.set(family.ordinal(), family.getDefaultTtl());
+        }
+    }
+
+    /**
+     * Set how long responses from the endpoint family are cached
+     *
+     * @param family
+     * @param duration The time to cache for, 0 to not cache the family
+     * @param unit
+     */
+    public void setTtl(EndpointFamily family, long duration, TimeUnit unit) {
+        ttls.set(family.ordinal(), Math.max(0L, unit.toMillis(duration)));
+    }
+
+    /**
+     * How long responses from the endpoint family are cached
+     *
+     * @param family
+     * @return milliseconds
+     */
+    public long getTtl(EndpointFamily family) {
+        return ttls.get(family.ordinal());
+    }
+
+    /**
+     * Check if responses from the endpoint family are cached
+     *
+     * @param family
+     * @return
+     */
+    public boolean isCached(EndpointFamily family) {
+        return getTtl(family) > 0;
+    }
+
+    /**
+     * Get a response from the cache
+     *
+     * @param key
+     * @return the response, or null if it is not cached or has expired
+     */
+    public Object get(String key) {
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        if (entry.isExpired(System.nanoTime())) {
+            // Expired entries stay until they are replaced or evicted
+            expirations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+
+        entry.referenced = true;
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Add a response to the cache
+     *
+     * @param key
+     * @param family The endpoint family that the response came from
+     * @param value
+     */
+    public void put(String key, EndpointFamily family, Object value) {
+        put(key, family, value, null, null);
+    }
+
+    /**
+     * Add a response to the cache with the validators sent by the server
+     *
+     * @param key
+     * @param family The endpoint family that the response came from
+     * @param value
+     * @param etag The ETag header of the response, can be null
+     * @param lastModified The Last-Modified header of the response, can be
+     * null
+     */
+    public void put(String key, EndpointFamily family, Object value, String etag, String lastModified) {
+        long ttl = getTtl(family);
+        if (ttl <= 0) {
+            return;
+        }
+
+        CacheEntry entry = new CacheEntry(value, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttl), etag, lastModified);
+        if (entries.put(key, entry) == null) {
+            evictionQueue.offer(key);
+            evictIfFull();
+        }
+    }
+
+    /**
+     * Get an entry that can be revalidated with the server
+     *
+     * @param key
+     * @return the entry, expired or not, or null if there is no entry with
+     * validators
+     */
+    CacheEntry getRevalidatable(String key) {
+        CacheEntry entry = entries.get(key);
+        return entry != null && entry.hasValidators() ? entry : null;
+    }
+
+    /**
+     * Renew an entry after the server reported that it has not changed
+     *
+     * @param key
+     * @param family
+     * @param entry The entry that was revalidated
+     * @param etag The new ETag, or null to keep the old one
+     * @param lastModified The new Last-Modified, or null to keep the old one
+     */
+    void revalidate(String key, EndpointFamily family, CacheEntry entry, String etag, String lastModified) {
+        revalidations.incrementAndGet();
+        put(key, family, entry.value,
+                etag == null ? entry.etag : etag,
+                lastModified == null ? entry.lastModified : lastModified);
+    }
+
+    /**
+     * Remove a response from the cache
+     *
+     * @param key
+     */
+    public void invalidate(String key) {
+        if (entries.remove(key) != null) {
+            // A later put queues the key again, so do not leave it queued twice
+            evictionQueue.remove(key);
+        }
+    }
+
+    /**
+     * Remove all the responses from the cache
+     */
+    public void clear() {
+        entries.clear();
+        evictionQueue.clear();
+    }
+
+    /**
+     * Remove entries until the cache is within its size
+     */
+    private void evictIfFull() {
+        // Every entry gets at most one second chance, so this will finish
+        int attempts = 2 * entries.size() + 1;
+        while (entries.size() > maxEntries && attempts-- > 0) {
+            String key = evictionQueue.poll();
+            if (key == null) {
+                return;
+            }
+
+            CacheEntry entry = entries.get(key);
+            if (entry == null) {
+                // Already removed or expired
+                continue;
+            }
+
+            if (entry.referenced && !entry.isExpired(System.nanoTime())) {
+                entry.referenced = false;
+                evictionQueue.offer(key);
+            } else if (entries.remove(key, entry)) {
+                LOG.trace("Evicted '{}' from the cache", key);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * The number of responses in the cache
+     *
+     * @return
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * The number of keys waiting in the eviction queue
+     *
+     * @return
+     */
+    int getQueueLength() {
+        return evictionQueue.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * The number of lookups that found an expired response
+     *
+     * @return
+     */
+    public long getExpiredCount() {
+        return expirations.get();
+    }
+
+    /**
+     * The number of expired responses that the server reported as unchanged
+     *
+     * @return
+     */
+    public long getRevalidatedCount() {
+        return revalidations.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCache{size=" + size() + ", maxEntries=" + maxEntries + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + ", expired=" + getExpiredCount()
+                + ", revalidated=" + getRevalidatedCount() + "}";
+    }
+
+    /**
+     * A cached response
+     */
+    static final class CacheEntry {
+
+        private final Object value;
+        private final long expiresAt;
+        private final String etag;
+        private final String lastModified;
+        private volatile boolean referenced;
+
+        CacheEntry(Object value, long expiresAt, String etag, String lastModified) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        Object getValue() {
+            return value;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+
+        String getLastModified() {
+            return lastModified;
+        }
+
+        boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
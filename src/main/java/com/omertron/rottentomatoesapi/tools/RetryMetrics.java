@@ -0,0 +1,161 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters for the attempts and retries made by the API calls
+ *
+ * @author Stuart
+ */
+public class RetryMetrics {
+
+    /*
+     * Calls that took more attempts than this are counted in the last bucket
+     */
+    private static final int MAX_TRACKED_ATTEMPTS = 16;
+    private final AtomicLongArray succeededOnAttempt = new AtomicLongArray(MAX_TRACKED_ATTEMPTS + 1);
+    private final AtomicLongArray failedOnAttempt = new AtomicLongArray(MAX_TRACKED_ATTEMPTS + 1);
+    private final Map<RetryReason, AtomicLong> retries = new EnumMap<RetryReason, AtomicLong>(RetryReason.class);
+    private final AtomicLong exhausted = new AtomicLong(0);
+    private final AtomicLong totalDelay = new AtomicLong(0);
+
+    public RetryMetrics() {
+        for (RetryReason reason : RetryReason.values()) {
+            retries.put(reason, new AtomicLong(0));
+        }
+    }
+
+    /**
+     * Record a retry
+     *
+     * @param reason why the call is retried
+     * @param delay milliseconds waited before the retry
+     */
+    public void recordRetry(RetryReason reason, long delay) {
+        retries.get(reason).incrementAndGet();
+        totalDelay.addAndGet(delay);
+    }
+
+    /**
+     * Record the end of a call
+     *
+     * @param attempts the number of attempts made, including the first
+     * @param success true if the call succeeded
+     */
+    public void recordOutcome(int attempts, boolean success) {
+        int bucket = Math.min(Math.max(attempts, 1), MAX_TRACKED_ATTEMPTS);
+        if (success) {
+            succeededOnAttempt.incrementAndGet(bucket);
+        } else {
+            failedOnAttempt.incrementAndGet(bucket);
+        }
+    }
+
+    /**
+     * Record a call that failed because it ran out of retries
+     *
+     * @param attempts the number of attempts made, including the first
+     */
+    public void recordExhausted(int attempts) {
+        exhausted.incrementAndGet();
+        recordOutcome(attempts, false);
+    }
+
+    /**
+     * The number of calls that succeeded on the attempt
+     *
+     * @param attempt the attempt, 1 for the first try
+     * @return
+     */
+    public long getSucceededOnAttempt(int attempt) {
+        return succeededOnAttempt.get(Math.min(Math.max(attempt, 1), MAX_TRACKED_ATTEMPTS));
+    }
+
+    /**
+     * The number of calls that failed on the attempt
+     *
+     * @param attempt the attempt, 1 for the first try
+     * @return
+     */
+    public long getFailedOnAttempt(int attempt) {
+        return failedOnAttempt.get(Math.min(Math.max(attempt, 1), MAX_TRACKED_ATTEMPTS));
+    }
+
+    /**
+     * The number of retries for the reason
+     *
+     * @param reason
+     * @return
+     */
+    public long getRetries(RetryReason reason) {
+        return retries.get(reason).get();
+    }
+
+    /**
+     * The total number of retries for all reasons
+     *
+     * @return
+     */
+    public long getTotalRetries() {
+        long total = 0;
+        for (AtomicLong count : retries.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    /**
+     * The number of calls that failed after using all their retries
+     *
+     * @return
+     */
+    public long getExhaustedCount() {
+        return exhausted.get();
+    }
+
+    /**
+     * The total time spent waiting between retries
+     *
+     * @return milliseconds
+     */
+    public long getTotalDelayMillis() {
+        return totalDelay.get();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("RetryMetrics{retries=");
+        sb.append(retries).append(", exhausted=").append(exhausted.get());
+        sb.append(", totalDelayMs=").append(totalDelay.get()).append(", succeededOnAttempt=[");
+        for (int attempt = 1; attempt <= MAX_TRACKED_ATTEMPTS; attempt++) {
+            if (attempt > 1) {
+                sb.append(",");
+            }
+            sb.append(succeededOnAttempt.get(attempt));
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+/**
+ * Decides if, and after how long, a failed call to the API is retried
+ *
+ * All the API calls are idempotent GETs, so they are safe to repeat.
+ *
+ * @author Stuart
+ */
+public interface RetryPolicy {
+
+    /**
+     * The maximum number of retries for a single call
+     *
+     * @return
+     */
+    int getRetryLimit();
+
+    /**
+     * Check if a failure for the reason should be retried
+     *
+     * @param reason
+     * @return
+     */
+    boolean isRetryable(RetryReason reason);
+
+    /**
+     * Get the time to wait before the retry
+     *
+     * @param retry The number of the retry, starting at 1
+     * @param previousDelay The delay used before the previous retry, 0 for the
+     * first retry
+     * @return milliseconds to wait
+     */
+    long getDelay(int retry, long previousDelay);
+}
@@ -0,0 +1,41 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+/**
+ * The reasons a call to the API can be retried
+ *
+ * @author Stuart
+ */
+public enum RetryReason {
+
+    /**
+     * The account is over its queries per second limit
+     */
+    OVER_LIMIT,
+    /**
+     * The server returned a 5xx status
+     */
+    SERVER_ERROR,
+    /**
+     * The connection failed or was dropped
+     */
+    CONNECTION_ERROR
+}
@@ -0,0 +1,89 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the response bodies read from the API
+ *
+ * The wire bytes are the bytes read from the connection and the decoded bytes
+ * are the JSON passed to the parser. They differ for compressed responses.
+ * If the HTTP client decodes a response itself the compressed size is not
+ * known, so both counts hold the decoded size.
+ *
+ * @author Stuart
+ */
+public class TransferMetrics {
+
+    private final AtomicLong responses = new AtomicLong(0);
+    private final AtomicLong compressedResponses = new AtomicLong(0);
+    private final AtomicLong wireBytes = new AtomicLong(0);
+    private final AtomicLong decodedBytes = new AtomicLong(0);
+
+    /**
+     * Record a response body
+     *
+     * @param compressed true if the body was decompressed
+     * @param wire the bytes read from the connection
+     * @param decoded the bytes after decompression
+     */
+    public void record(boolean compressed, long wire, long decoded) {
+        responses.incrementAndGet();
+        if (compressed) {
+            compressedResponses.incrementAndGet();
+        }
+        wireBytes.addAndGet(wire);
+        decodedBytes.addAndGet(decoded);
+    }
+
+    public long getResponses() {
+        return responses.get();
+    }
+
+    public long getCompressedResponses() {
+        return compressedResponses.get();
+    }
+
+    public long getWireBytes() {
+        return wireBytes.get();
+    }
+
+    public long getDecodedBytes() {
+        return decodedBytes.get();
+    }
+
+    /**
+     * The decoded size divided by the wire size
+     *
+     * @return the ratio, 1.0 if nothing has been read
+     */
+    public double getCompressionRatio() {
+        long wire = wireBytes.get();
+        return wire == 0 ? 1.0 : (double) decodedBytes.get() / wire;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferMetrics{responses=" + responses.get() + ", compressed=" + compressedResponses.get()
+                + ", wireBytes=" + wireBytes.get() + ", decodedBytes=" + decodedBytes.get()
+                + ", ratio=" + String.format("%.2f", getCompressionRatio()) + "}";
+    }
+}
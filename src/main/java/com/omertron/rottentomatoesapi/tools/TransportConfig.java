@@ -0,0 +1,251 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings for the pooled HTTP connections used to call the API
+ *
+ * The setters return the config so they can be chained:
+ * <pre>
+ * new TransportConfig().setMaxPerRoute(32).setKeepAlive(60, TimeUnit.SECONDS)
+ * </pre>
+ *
+ * All the calls go to a single host, so the per route limit is the number of
+ * requests that can be in flight at once.
+ *
+ * @author Stuart
+ */
+public class TransportConfig {
+
+    /*
+     * Defaults
+     */
+    public static final int DEFAULT_MAX_TOTAL = 64;
+    public static final int DEFAULT_MAX_PER_ROUTE = 32;
+    public static final long DEFAULT_KEEP_ALIVE_MS = TimeUnit.SECONDS.toMillis(30);
+    public static final long DEFAULT_IDLE_EVICT_MS = TimeUnit.SECONDS.toMillis(60);
+    public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY_MS = 2000;
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = 25000;
+    public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS = 15000;
+    public static final int DEFAULT_SOCKET_TIMEOUT_MS = 90000;
+    /*
+     * Pool
+     */
+    private int maxTotal = DEFAULT_MAX_TOTAL;
+    private int maxPerRoute = DEFAULT_MAX_PER_ROUTE;
+    private long keepAliveMillis = DEFAULT_KEEP_ALIVE_MS;
+    private long idleEvictMillis = DEFAULT_IDLE_EVICT_MS;
+    private int validateAfterInactivityMillis = DEFAULT_VALIDATE_AFTER_INACTIVITY_MS;
+    /*
+     * Timeouts
+     */
+    private int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MS;
+    private int connectionRequestTimeoutMillis = DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS;
+    private int socketTimeoutMillis = DEFAULT_SOCKET_TIMEOUT_MS;
+    /*
+     * TCP
+     */
+    private boolean tcpNoDelay = true;
+    private boolean soKeepAlive = true;
+    /*
+     * Proxy
+     */
+    private String proxyHost;
+    private int proxyPort;
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * The most connections the pool will hold
+     *
+     * @param maxTotal
+     * @return
+     */
+    public TransportConfig setMaxTotal(int maxTotal) {
+        this.maxTotal = checkPositive("maxTotal", maxTotal);
+        return this;
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    /**
+     * The most connections the pool will hold to one host
+     *
+     * @param maxPerRoute
+     * @return
+     */
+    public TransportConfig setMaxPerRoute(int maxPerRoute) {
+        this.maxPerRoute = checkPositive("maxPerRoute", maxPerRoute);
+        return this;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    /**
+     * How long to keep an idle connection open when the server does not say
+     *
+     * @param duration
+     * @param unit
+     * @return
+     */
+    public TransportConfig setKeepAlive(long duration, TimeUnit unit) {
+        this.keepAliveMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    public long getIdleEvictMillis() {
+        return idleEvictMillis;
+    }
+
+    /**
+     * Close connections that have been idle for this long, 0 to leave them
+     * open until they are next used
+     *
+     * @param duration
+     * @param unit
+     * @return
+     */
+    public TransportConfig setIdleEvict(long duration, TimeUnit unit) {
+        this.idleEvictMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    public int getValidateAfterInactivityMillis() {
+        return validateAfterInactivityMillis;
+    }
+
+    /**
+     * Check that a pooled connection is still open before it is reused, if it
+     * has been idle for longer than this
+     *
+     * @param duration
+     * @param unit
+     * @return
+     */
+    public TransportConfig setValidateAfterInactivity(long duration, TimeUnit unit) {
+        this.validateAfterInactivityMillis = checkMillis("validateAfterInactivity", duration, unit);
+        return this;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public TransportConfig setConnectTimeout(long duration, TimeUnit unit) {
+        this.connectTimeoutMillis = checkMillis("connectTimeout", duration, unit);
+        return this;
+    }
+
+    public int getConnectionRequestTimeoutMillis() {
+        return connectionRequestTimeoutMillis;
+    }
+
+    /**
+     * How long to wait for a connection from the pool
+     *
+     * @param duration
+     * @param unit
+     * @return
+     */
+    public TransportConfig setConnectionRequestTimeout(long duration, TimeUnit unit) {
+        this.connectionRequestTimeoutMillis = checkMillis("connectionRequestTimeout", duration, unit);
+        return this;
+    }
+
+    public int getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
+    public TransportConfig setSocketTimeout(long duration, TimeUnit unit) {
+        this.socketTimeoutMillis = checkMillis("socketTimeout", duration, unit);
+        return this;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public TransportConfig setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+        return this;
+    }
+
+    public boolean isSoKeepAlive() {
+        return soKeepAlive;
+    }
+
+    public TransportConfig setSoKeepAlive(boolean soKeepAlive) {
+        this.soKeepAlive = soKeepAlive;
+        return this;
+    }
+
+    public String getProxyHost() {
+        return proxyHost;
+    }
+
+    public int getProxyPort() {
+        return proxyPort;
+    }
+
+    /**
+     * Send the requests through a HTTP proxy
+     *
+     * @param proxyHost
+     * @param proxyPort
+     * @return
+     */
+    public TransportConfig setProxy(String proxyHost, int proxyPort) {
+        this.proxyHost = proxyHost;
+        this.proxyPort = proxyPort;
+        return this;
+    }
+
+    private static int checkPositive(String name, int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " must be at least 1: " + value);
+        }
+        return value;
+    }
+
+    private static int checkMillis(String name, long duration, TimeUnit unit) {
+        long millis = unit.toMillis(duration);
+        if (millis > Integer.MAX_VALUE || millis < Integer.MIN_VALUE) {
+            throw new IllegalArgumentException(name + " must be within " + Integer.MAX_VALUE + "ms: " + duration + " " + unit);
+        }
+        return (int) millis;
+    }
+
+    @Override
+    public String toString() {
+        return "TransportConfig{maxTotal=" + maxTotal + ", maxPerRoute=" + maxPerRoute + ", keepAliveMs=" + keepAliveMillis
+                + ", idleEvictMs=" + idleEvictMillis + ", validateAfterInactivityMs=" + validateAfterInactivityMillis
+                + ", connectTimeoutMs=" + connectTimeoutMillis + ", connectionRequestTimeoutMs=" + connectionRequestTimeoutMillis
+                + ", socketTimeoutMs=" + socketTimeoutMillis + ", tcpNoDelay=" + tcpNoDelay + ", soKeepAlive=" + soKeepAlive
+                + ", proxy=" + proxyHost + ":" + proxyPort + "}";
+    }
+}
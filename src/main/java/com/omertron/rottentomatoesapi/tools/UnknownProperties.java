@@ -0,0 +1,151 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.DeserializationProblemHandler;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handling of JSON properties that are not mapped by the model classes
+ *
+ * Unknown properties are skipped without reading their values. Optionally
+ * the number of times each unknown property is seen can be counted for each
+ * model class, which shows when the API has started sending new fields.
+ *
+ * @author Stuart
+ */
+public final class UnknownProperties {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UnknownProperties.class);
+    private static final DeserializationProblemHandler HANDLER = new SkippingHandler();
+    private static volatile boolean telemetryEnabled = false;
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<String, AtomicLong>> COUNTS = new ConcurrentHashMap<Class<?>, ConcurrentMap<String, AtomicLong>>();
+
+    private UnknownProperties() {
+        throw new UnsupportedOperationException("Class can not be instantiated");
+    }
+
+    /**
+     * The handler to add to the ObjectMapper
+     *
+     * @return
+     */
+    public static DeserializationProblemHandler handler() {
+        return HANDLER;
+    }
+
+    /**
+     * Count the unknown properties for each model class
+     *
+     * @param enabled
+     */
+    public static void setTelemetryEnabled(boolean enabled) {
+        telemetryEnabled = enabled;
+    }
+
+    public static boolean isTelemetryEnabled() {
+        return telemetryEnabled;
+    }
+
+    /**
+     * Get the counts of the unknown properties seen for a model class
+     *
+     * @param clazz
+     * @return the number of times each property has been seen
+     */
+    public static Map<String, Long> getCounts(Class<?> clazz) {
+        ConcurrentMap<String, AtomicLong> counts = COUNTS.get(clazz);
+        if (counts == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Long> snapshot = new HashMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : counts.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().get());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Get the counts of the unknown properties for all the model classes
+     *
+     * @return
+     */
+    public static Map<Class<?>, Map<String, Long>> getAllCounts() {
+        Map<Class<?>, Map<String, Long>> snapshot = new HashMap<Class<?>, Map<String, Long>>();
+        for (Class<?> clazz : COUNTS.keySet()) {
+            snapshot.put(clazz, getCounts(clazz));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Clear the counts
+     */
+    public static void reset() {
+        COUNTS.clear();
+    }
+
+    private static void record(Class<?> clazz, String propertyName) {
+        ConcurrentMap<String, AtomicLong> counts = COUNTS.get(clazz);
+        if (counts == null) {
+            COUNTS.putIfAbsent(clazz, new ConcurrentHashMap<String, AtomicLong>());
+            counts = COUNTS.get(clazz);
+        }
+
+        AtomicLong count = counts.get(propertyName);
+        if (count == null) {
+            counts.putIfAbsent(propertyName, new AtomicLong());
+            count = counts.get(propertyName);
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * Skip the value of an unknown property
+     */
+    private static final class SkippingHandler extends DeserializationProblemHandler {
+
+        @Override
+        public boolean handleUnknownProperty(DeserializationContext ctxt, JsonParser p, JsonDeserializer<?> deserializer,
+                Object beanOrClass, String propertyName) throws IOException {
+            if (telemetryEnabled || LOG.isTraceEnabled()) {
+                Class<?> clazz = beanOrClass instanceof Class ? (Class<?>) beanOrClass : beanOrClass.getClass();
+                if (telemetryEnabled) {
+                    record(clazz, propertyName);
+                }
+                LOG.trace("{}: Unknown property='{}'", clazz.getSimpleName(), propertyName);
+            }
+            p.skipChildren();
+            return true;
+        }
+    }
+}
@@ -21,12 +21,12 @@ package com.omertron.rottentomatoesapi.wrapper;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.omertron.rottentomatoesapi.model.AbstractJsonMapping;
+import com.omertron.rottentomatoesapi.model.CompactCollections;
 import com.omertron.rottentomatoesapi.model.RTCast;
 import com.omertron.rottentomatoesapi.model.RTClip;
 import com.omertron.rottentomatoesapi.model.RTMovie;
 import com.omertron.rottentomatoesapi.model.Review;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -38,15 +38,15 @@ public class WrapperLists extends AbstractJsonMapping {
     @JsonProperty("total")
     private int total;
     @JsonProperty("movies")
-    private List<RTMovie> movies = new ArrayList<RTMovie>();
+    private List<RTMovie> movies = Collections.emptyList();
     @JsonProperty("links")
-    private Map<String, String> links = new HashMap<String, String>();
+    private Map<String, String> links = Collections.emptyMap();
     @JsonProperty("cast")
-    private List<RTCast> cast = new ArrayList<RTCast>();
+    private List<RTCast> cast = Collections.emptyList();
     @JsonProperty("clips")
-    private List<RTClip> clips = new ArrayList<RTClip>();
+    private List<RTClip> clips = Collections.emptyList();
     @JsonProperty("reviews")
-    private List<Review> reviews = new ArrayList<Review>();
+    private List<Review> reviews = Collections.emptyList();
     @JsonProperty("link_template")
     private String linkTemplate;
 
@@ -55,7 +55,7 @@ public class WrapperLists extends AbstractJsonMapping {
     }
 
     public void setMovies(List<RTMovie> movies) {
-        this.movies = movies;
+        this.movies = CompactCollections.compactList(movies);
     }
 
     public int getTotal() {
@@ -79,7 +79,7 @@ public class WrapperLists extends AbstractJsonMapping {
     }
 
     public void setLinks(Map<String, String> links) {
-        this.links = links;
+        this.links = CompactCollections.compactMap(links);
     }
 
     public List<RTCast> getCast() {
@@ -87,7 +87,7 @@ public class WrapperLists extends AbstractJsonMapping {
     }
 
     public void setCast(List<RTCast> cast) {
-        this.cast = cast;
+        this.cast = CompactCollections.compactList(cast);
     }
 
     public List<RTClip> getClips() {
@@ -95,7 +95,7 @@ public class WrapperLists extends AbstractJsonMapping {
     }
 
     public void setClips(List<RTClip> clips) {
-        this.clips = clips;
+        this.clips = CompactCollections.compactList(clips);
     }
 
     public List<Review> getReviews() {
@@ -103,7 +103,7 @@ public class WrapperLists extends AbstractJsonMapping {
     }
 
     public void setReviews(List<Review> reviews) {
-        this.reviews = reviews;
+        this.reviews = CompactCollections.compactList(reviews);
     }
 
 }
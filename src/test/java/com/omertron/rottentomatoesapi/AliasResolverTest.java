@@ -0,0 +1,187 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.tools.AliasStore;
+import com.omertron.rottentomatoesapi.tools.BulkResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Resolve IMDb IDs in bulk, keeping the results in an alias store
+ *
+ * @author Stuart
+ */
+public class AliasResolverTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AliasResolverTest.class);
+    private static final String API_KEY = "alias-test-key";
+    private static final Pattern ALIAS_ID = Pattern.compile("[?&]id=(\\d+)");
+    private static final int RT_OFFSET = 770000000;
+    private static final int MATCHED = 150;
+    private static final int UNMATCHED = 50;
+    private static final int NOT_FOUND_ID = 9999999;
+    private StandInServer server;
+    private CloseableHttpClient httpClient;
+    private ExecutorService executor;
+    private RottenTomatoesAsyncApi rt;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestLogger.configure("INFO");
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StandInServer(new AliasHandler());
+        httpClient = server.createHttpClient();
+        executor = Executors.newCachedThreadPool();
+        rt = new RottenTomatoesAsyncApi(API_KEY, httpClient, executor);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        httpClient.close();
+        server.stop();
+    }
+
+    /**
+     * A second resolution, even after reopening the store, should make no calls
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testResolve() throws Exception {
+        LOG.info("testResolve");
+        List<String> imdbIds = new ArrayList<String>();
+        for (int i = 1; i <= MATCHED; i++) {
+            imdbIds.add(AliasStore.formatImdbId(i));
+        }
+        for (int i = 1; i <= UNMATCHED; i++) {
+            imdbIds.add("tt" + (NOT_FOUND_ID - i));
+        }
+        // Duplicates and IDs that are not IMDb IDs
+        imdbIds.add("tt0000001");
+        imdbIds.add("1");
+        imdbIds.add("nm0000001");
+        imdbIds.add(null);
+
+        File file = new File(folder.getRoot(), "aliases.dat");
+        try (AliasStore store = new AliasStore(file)) {
+            BulkResult result = rt.resolveImdbIds(imdbIds, 8, store).get(30, TimeUnit.SECONDS);
+            LOG.info("First pass: {} with {} requests", result, server.getRequestCount());
+            assertEquals("Wrong number of lookups", MATCHED + UNMATCHED, result.getUnique());
+            assertEquals("Wrong number of requests", MATCHED + UNMATCHED, server.getRequestCount());
+            assertEquals("Wrong number stored", MATCHED + UNMATCHED, store.size());
+            assertEquals("Wrong number matched", MATCHED, store.getMatchCount());
+            assertEquals("Wrong alias", RT_OFFSET + 42, store.get(42));
+            assertEquals("Miss should be stored", AliasStore.NO_MATCH, store.get(NOT_FOUND_ID - 1));
+
+            result = rt.resolveImdbIds(imdbIds, 8, store).get(30, TimeUnit.SECONDS);
+            assertEquals("Nothing should be looked up again", 0, result.getUnique());
+        }
+
+        try (AliasStore store = new AliasStore(file)) {
+            BulkResult result = rt.resolveImdbIds(imdbIds, 8, store).get(30, TimeUnit.SECONDS);
+            assertEquals("Nothing should be looked up after reopening", 0, result.getUnique());
+            assertEquals("Wrong alias after reopening", RT_OFFSET + 150, store.get(150));
+        }
+        assertEquals("Wrong total requests", MATCHED + UNMATCHED, server.getRequestCount());
+    }
+
+    /**
+     * A result that can not be stored should fail the resolution, after the
+     * rest of the batch is stored
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStoreFailure() throws Exception {
+        LOG.info("testStoreFailure");
+        List<String> imdbIds = new ArrayList<String>();
+        for (int i = 1; i <= MATCHED; i++) {
+            imdbIds.add(AliasStore.formatImdbId(i));
+        }
+
+        AliasStore store = new AliasStore() {
+            @Override
+            public synchronized void put(int imdbId, int rtId) throws IOException {
+                if (imdbId == 42) {
+                    throw new IOException("Disk full");
+                }
+                super.put(imdbId, rtId);
+            }
+        };
+        try {
+            rt.resolveImdbIds(imdbIds, 8, store).get(30, TimeUnit.SECONDS);
+            fail("The store failure should fail the resolution");
+        } catch (ExecutionException ex) {
+            assertTrue("Wrong failure: " + ex.getCause(), ex.getCause() instanceof UncheckedIOException);
+            assertEquals("Wrong cause", "Disk full", ex.getCause().getCause().getMessage());
+        }
+        assertEquals("The other results should be stored", MATCHED - 1, store.size());
+        assertFalse("The failed result should not be stored", store.contains(42));
+    }
+
+    /**
+     * Match IDs below the not found range, as the API does for a known movie
+     */
+    private static class AliasHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            Matcher matcher = ALIAS_ID.matcher(exchange.getRequestURI().getRawQuery());
+            int imdbId = matcher.find() ? Integer.parseInt(matcher.group(1)) : NOT_FOUND_ID;
+            if (imdbId >= NOT_FOUND_ID - UNMATCHED) {
+                StandInServer.sendJson(exchange, 200, "{\"error\":\"Could not find a movie with the specified id\"}");
+            } else {
+                StandInServer.sendJson(exchange, 200, "{\"id\":" + (RT_OFFSET + imdbId) + ",\"title\":\"Movie " + imdbId + "\"}");
+            }
+        }
+    }
+}
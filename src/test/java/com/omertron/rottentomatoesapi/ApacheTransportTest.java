@@ -0,0 +1,46 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.tools.ApacheTransport;
+import com.omertron.rottentomatoesapi.tools.ConnectionPool;
+import com.omertron.rottentomatoesapi.tools.HttpTransport;
+import com.omertron.rottentomatoesapi.tools.TransportConfig;
+
+/**
+ * Run the transport checks with the pooled Apache client
+ *
+ * @author Stuart
+ */
+public class ApacheTransportTest extends TransportContract {
+
+    private ConnectionPool pool;
+
+    @Override
+    protected HttpTransport createTransport(TransportConfig config) {
+        pool = new ConnectionPool(config);
+        return new ApacheTransport(pool.getHttpClient());
+    }
+
+    @Override
+    protected void closeTransport() throws Exception {
+        pool.close();
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.omertron.rottentomatoesapi.tools.BulkCallback;
+import com.omertron.rottentomatoesapi.tools.BulkResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamj.api.common.exception.ApiExceptionType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Look up batches of movies with the bulk detailed info call
+ *
+ * @author Stuart
+ */
+public class BulkDetailedInfoTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkDetailedInfoTest.class);
+    private static final String API_KEY = "bulk-test-key";
+    private static final Pattern MOVIE_PATH = Pattern.compile("/movies/(\\d+)\\.json");
+    private static final int MISSING_FROM = 9000;
+    private static final long SERVER_DELAY_MS = 100;
+    private static final int BATCH = 16;
+    private StandInServer server;
+    private MovieHandler handler;
+    private CloseableHttpClient httpClient;
+    private ExecutorService executor;
+    private RottenTomatoesAsyncApi rt;
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestLogger.configure("INFO");
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        handler = new MovieHandler();
+        server = new StandInServer(handler);
+        httpClient = server.createHttpClient();
+        executor = Executors.newCachedThreadPool();
+        rt = new RottenTomatoesAsyncApi(API_KEY, httpClient, executor);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        httpClient.close();
+        server.stop();
+    }
+
+    /**
+     * Every ID should be reported once, with the failures kept apart
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBulk() throws Exception {
+        LOG.info("testBulk");
+        int[] ids = IntStream.concat(IntStream.rangeClosed(1, 40), IntStream.of(5, 10, 40, MISSING_FROM + 1, MISSING_FROM + 2, MISSING_FROM + 1)).toArray();
+        CountingCallback callback = new CountingCallback();
+        BulkResult result = rt.getDetailedInfo(ids, 8, callback).get(30, TimeUnit.SECONDS);
+        LOG.info("{}", result);
+
+        assertEquals("Wrong requested count", ids.length, result.getRequested());
+        assertEquals("Wrong unique count", 42, result.getUnique());
+        assertEquals("Wrong success count", 40, result.getSucceeded());
+        assertEquals("Wrong failure count", 2, result.getFailed());
+        assertEquals("Wrong skipped count", 0, result.getSkipped());
+        assertEquals("Duplicates should only be fetched once", 42, server.getRequestCount());
+        assertEquals("Wrong number of results", 40, callback.results.size());
+        assertEquals("Wrong number of failures", 2, callback.failures.size());
+        assertEquals("Results should only be reported once", 0, callback.repeats.get());
+        for (int id = 1; id <= 40; id++) {
+            assertEquals("Wrong movie for " + id, id, callback.results.get(id).getId());
+        }
+        assertEquals("Wrong failure", ApiExceptionType.HTTP_404_ERROR, callback.failures.get(MISSING_FROM + 1).getExceptionType());
+    }
+
+    /**
+     * The batch should get faster with more concurrency, until the rate
+     * limiter holds it back
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrency() throws Exception {
+        LOG.info("testConcurrency");
+        int[] ids = IntStream.rangeClosed(1, BATCH).toArray();
+        long single = rt.getDetailedInfo(ids, 1, new CountingCallback()).get(30, TimeUnit.SECONDS).getElapsedMillis();
+        long parallel = rt.getDetailedInfo(IntStream.rangeClosed(101, 100 + BATCH).toArray(), 8, new CountingCallback()).get(30, TimeUnit.SECONDS).getElapsedMillis();
+
+        double qps = 10.0;
+        rt.getApi().setRateLimit(qps);
+        long limited = rt.getDetailedInfo(IntStream.rangeClosed(201, 200 + BATCH).toArray(), 8, new CountingCallback()).get(30, TimeUnit.SECONDS).getElapsedMillis();
+        LOG.info("{} lookups: concurrency 1 {}ms, concurrency 8 {}ms, concurrency 8 at {}qps {}ms", BATCH, single, parallel, qps, limited);
+
+        assertTrue("Concurrency did not help: " + single + "ms vs " + parallel + "ms", parallel * 3 < single);
+        assertTrue("Rate limit was not applied: " + limited + "ms", limited >= (long) ((BATCH - 1) * 1000 / qps) - 20);
+        assertTrue("Concurrency was not bounded", handler.maxActive.get() <= 8);
+    }
+
+    /**
+     * A collection of IDs should be accepted, skipping nulls
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCollection() throws Exception {
+        LOG.info("testCollection");
+        CountingCallback callback = new CountingCallback();
+        BulkResult result = rt.getDetailedInfo(Arrays.asList(1, null, 2, 2, 3), 2, callback).get(30, TimeUnit.SECONDS);
+        assertEquals("Wrong unique count", 3, result.getUnique());
+        assertEquals("Wrong number of results", 3, callback.results.size());
+
+        result = rt.getDetailedInfo(new int[0], 2, callback).get(30, TimeUnit.SECONDS);
+        assertEquals("Empty batch should do nothing", 0, result.getUnique());
+    }
+
+    /**
+     * A batch rejected by the executor should fail with the API's exception
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRejected() throws Exception {
+        LOG.info("testRejected");
+        executor.shutdown();
+        try {
+            rt.getDetailedInfo(new int[]{1, 2}, 2, new CountingCallback()).get(30, TimeUnit.SECONDS);
+            fail("The rejected batch should fail");
+        } catch (ExecutionException ex) {
+            assertTrue("Wrong failure: " + ex.getCause(), ex.getCause() instanceof RottenTomatoesException);
+            assertEquals("Wrong exception type", ApiExceptionType.UNKNOWN_CAUSE, ((RottenTomatoesException) ex.getCause()).getExceptionType());
+        }
+    }
+
+    private static class CountingCallback implements BulkCallback<RTMovie> {
+
+        private final ConcurrentMap<Integer, RTMovie> results = new ConcurrentHashMap<Integer, RTMovie>();
+        private final ConcurrentMap<Integer, RottenTomatoesException> failures = new ConcurrentHashMap<Integer, RottenTomatoesException>();
+        private final AtomicInteger repeats = new AtomicInteger(0);
+
+        @Override
+        public void onResult(int id, RTMovie result) {
+            if (results.put(id, result) != null) {
+                repeats.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void onFailure(int id, RottenTomatoesException ex) {
+            failures.put(id, ex);
+        }
+    }
+
+    /**
+     * Return a movie with the requested ID after a short delay
+     */
+    private static class MovieHandler implements HttpHandler {
+
+        private final AtomicInteger active = new AtomicInteger(0);
+        private final AtomicInteger maxActive = new AtomicInteger(0);
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(SERVER_DELAY_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                active.decrementAndGet();
+            }
+
+            Matcher matcher = MOVIE_PATH.matcher(exchange.getRequestURI().getPath());
+            if (!matcher.find() || Integer.parseInt(matcher.group(1)) > MISSING_FROM) {
+                StandInServer.sendJson(exchange, 404, "{\"error\":\"Could not find a movie with the specified id\"}");
+            } else {
+                StandInServer.sendJson(exchange, 200, "{\"id\":" + matcher.group(1) + ",\"title\":\"Movie " + matcher.group(1) + "\"}");
+            }
+        }
+    }
+}
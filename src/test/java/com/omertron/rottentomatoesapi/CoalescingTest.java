@@ -0,0 +1,205 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamj.api.common.exception.ApiExceptionType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Check that identical calls made at the same time share a single request
+ *
+ * @author Stuart
+ */
+public class CoalescingTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CoalescingTest.class);
+    private static final String API_KEY = "coalescing-test-key";
+    private static final int THREADS = 20;
+    private static final int MISSING_ID = 404;
+    private static final long SERVER_DELAY_MS = 500;
+    private StandInServer server;
+    private CloseableHttpClient httpClient;
+    private ExecutorService executor;
+    private RottenTomatoesApi rt;
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestLogger.configure("INFO");
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StandInServer(new SlowHandler());
+        httpClient = server.createHttpClient();
+        executor = Executors.newFixedThreadPool(THREADS);
+        rt = new RottenTomatoesApi(API_KEY, httpClient);
+        rt.setCoalescing(true);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        httpClient.close();
+        server.stop();
+    }
+
+    @Test
+    public void testSharedResult() throws Exception {
+        LOG.info("testSharedResult");
+        List<Future<RTMovie>> results = callTogether(1);
+
+        RTMovie first = results.get(0).get();
+        for (Future<RTMovie> result : results) {
+            assertSame("Callers should share the response", first, result.get());
+        }
+        assertEquals("Wrong number of requests", 1, server.getRequestCount());
+        assertEquals("Wrong coalesced count", THREADS - 1, rt.getCoalescedCount());
+    }
+
+    /**
+     * Without coalescing each caller makes its own request and gets its own
+     * object
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testOffByDefault() throws Exception {
+        LOG.info("testOffByDefault");
+        rt = new RottenTomatoesApi(API_KEY, httpClient);
+        List<Future<RTMovie>> results = callTogether(1);
+
+        RTMovie first = results.get(0).get();
+        for (Future<RTMovie> result : results.subList(1, results.size())) {
+            assertNotSame("Callers should not share the response", first, result.get());
+        }
+        assertEquals("Wrong number of requests", THREADS, server.getRequestCount());
+        assertEquals("Wrong coalesced count", 0, rt.getCoalescedCount());
+    }
+
+    @Test
+    public void testSharedException() throws Exception {
+        LOG.info("testSharedException");
+        List<Future<RTMovie>> results = callTogether(MISSING_ID);
+
+        for (Future<RTMovie> result : results) {
+            try {
+                result.get();
+                fail("Missing movie should fail");
+            } catch (ExecutionException ex) {
+                assertTrue("Wrong exception class", ex.getCause() instanceof RottenTomatoesException);
+                assertEquals("Wrong exception type", ApiExceptionType.HTTP_404_ERROR, ((RottenTomatoesException) ex.getCause()).getExceptionType());
+            }
+        }
+        assertEquals("Wrong number of requests", 1, server.getRequestCount());
+        assertEquals("Wrong coalesced count", THREADS - 1, rt.getCoalescedCount());
+    }
+
+    /**
+     * Calls through the async API share requests with the sync calls
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAsync() throws Exception {
+        LOG.info("testAsync");
+        RottenTomatoesAsyncApi async = new RottenTomatoesAsyncApi(rt, executor);
+        List<CompletableFuture<RTMovie>> futures = new ArrayList<CompletableFuture<RTMovie>>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(async.getDetailedInfo(2));
+        }
+        RTMovie direct = rt.getDetailedInfo(2);
+
+        for (CompletableFuture<RTMovie> future : futures) {
+            assertSame("Callers should share the response", direct, future.get(30, TimeUnit.SECONDS));
+        }
+        assertEquals("Wrong number of requests", 1, server.getRequestCount());
+        assertEquals("Wrong coalesced count", THREADS, rt.getCoalescedCount());
+    }
+
+    /**
+     * Look up the same movie from all the threads at once
+     *
+     * @param movieId
+     * @return
+     */
+    private List<Future<RTMovie>> callTogether(final int movieId) {
+        final CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<RTMovie>> results = new ArrayList<Future<RTMovie>>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(new Callable<RTMovie>() {
+                @Override
+                public RTMovie call() throws Exception {
+                    startGate.await();
+                    return rt.getDetailedInfo(movieId);
+                }
+            }));
+        }
+        startGate.countDown();
+        return results;
+    }
+
+    /**
+     * Return the requested movie slowly enough for the calls to overlap
+     */
+    private static class SlowHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                Thread.sleep(SERVER_DELAY_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            String id = path.substring(path.lastIndexOf('/') + 1, path.indexOf(".json"));
+            if (Integer.parseInt(id) == MISSING_ID) {
+                StandInServer.sendJson(exchange, 404, "{\"error\":\"Could not find a movie with the specified id\"}");
+            } else {
+                StandInServer.sendJson(exchange, 200, "{\"id\":" + id + ",\"title\":\"Movie " + id + "\"}");
+            }
+        }
+    }
+}
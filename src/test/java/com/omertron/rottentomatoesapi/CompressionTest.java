@@ -0,0 +1,221 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.omertron.rottentomatoesapi.tools.ExponentialBackoffPolicy;
+import com.omertron.rottentomatoesapi.tools.TransferMetrics;
+import com.omertron.rottentomatoesapi.tools.TransportConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamj.api.common.exception.ApiExceptionType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Check the compressed responses are decoded against a stand-in server that
+ * compresses its responses when asked
+ *
+ * @author Stuart
+ */
+public class CompressionTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompressionTest.class);
+    private static final String API_KEY = "compression-test-key";
+    private static final String LOCALHOST = "127.0.0.1";
+    private static final String GZIP = "gzip";
+    private static final String DEFLATE = "deflate";
+    private static byte[] json;
+    private StandInServer server;
+    private EncodingHandler handler;
+    private final List<RottenTomatoesApi> apis = new ArrayList<RottenTomatoesApi>();
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        TestLogger.configure("INFO");
+        json = Fixtures.load(Fixtures.IN_THEATERS);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        handler = new EncodingHandler();
+        server = new StandInServer(handler);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (RottenTomatoesApi api : apis) {
+            api.close();
+        }
+        server.stop();
+    }
+
+    private RottenTomatoesApi createApi() throws RottenTomatoesException {
+        RottenTomatoesApi api = new RottenTomatoesApi(API_KEY, new TransportConfig().setProxy(LOCALHOST, server.getPort()));
+        apis.add(api);
+        return api;
+    }
+
+    /**
+     * A gzip response should be decoded and give the same movies as a plain
+     * one
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGzip() throws Exception {
+        LOG.info("testGzip");
+        RottenTomatoesApi plain = createApi();
+        plain.setCompression(false);
+        List<RTMovie> expected = plain.getInTheaters();
+        assertNull("Compression should not be requested", handler.acceptEncoding);
+        assertEquals("Plain response should not be compressed", 0, plain.getTransferMetrics().getCompressedResponses());
+
+        RottenTomatoesApi rt = createApi();
+        List<RTMovie> movies = rt.getInTheaters();
+        assertEquals("Wrong encodings requested", "gzip, deflate", handler.acceptEncoding);
+        assertMovies(expected, movies);
+
+        TransferMetrics metrics = rt.getTransferMetrics();
+        LOG.info("{}", metrics);
+        assertEquals("Wrong compressed count", 1, metrics.getCompressedResponses());
+        assertEquals("Wrong decoded size", json.length, metrics.getDecodedBytes());
+        assertEquals("Wrong wire size", handler.sent, metrics.getWireBytes());
+        assertTrue("Response was not compressed", metrics.getCompressionRatio() > 4.0);
+    }
+
+    /**
+     * A deflate response should be decoded
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDeflate() throws Exception {
+        LOG.info("testDeflate");
+        handler.encoding = DEFLATE;
+        RottenTomatoesApi rt = createApi();
+        List<RTMovie> movies = rt.getInTheaters();
+        assertEquals("Wrong number of movies", 50, movies.size());
+        assertEquals("Wrong compressed count", 1, rt.getTransferMetrics().getCompressedResponses());
+        assertEquals("Wrong decoded size", json.length, rt.getTransferMetrics().getDecodedBytes());
+    }
+
+    /**
+     * A truncated gzip response should fail even though the JSON is complete
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testTruncated() throws Exception {
+        LOG.info("testTruncated");
+        handler.truncate = true;
+        RottenTomatoesApi rt = createApi();
+        rt.setRetryPolicy(new ExponentialBackoffPolicy(10, 50, 0));
+        try {
+            rt.getInTheaters();
+            fail("Truncated response should fail");
+        } catch (RottenTomatoesException ex) {
+            assertEquals("Wrong exception type", ApiExceptionType.CONNECTION_ERROR, ex.getExceptionType());
+        }
+    }
+
+    /**
+     * A client that decompresses the responses itself should still work
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testClientDecoding() throws Exception {
+        LOG.info("testClientDecoding");
+        try (CloseableHttpClient httpClient = server.createHttpClient()) {
+            RottenTomatoesApi rt = new RottenTomatoesApi(API_KEY, httpClient);
+            List<RTMovie> movies = rt.getInTheaters();
+            assertEquals("Wrong number of movies", 50, movies.size());
+            assertEquals("Client should have decoded the response", 0, rt.getTransferMetrics().getCompressedResponses());
+            assertEquals("Wrong decoded size", json.length, rt.getTransferMetrics().getDecodedBytes());
+        }
+    }
+
+    private static void assertMovies(List<RTMovie> expected, List<RTMovie> actual) {
+        assertEquals("Wrong number of movies", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("Wrong movie ID", expected.get(i).getId(), actual.get(i).getId());
+            assertEquals("Wrong movie title", expected.get(i).getTitle(), actual.get(i).getTitle());
+            assertEquals("Wrong critics score", expected.get(i).getCriticsScore(), actual.get(i).getCriticsScore());
+        }
+    }
+
+    /**
+     * Return the in theaters fixture, compressed if the client accepts it
+     */
+    private static class EncodingHandler implements HttpHandler {
+
+        private volatile String encoding = GZIP;
+        private volatile boolean truncate = false;
+        private volatile String acceptEncoding;
+        private volatile long sent;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            byte[] body = json;
+            if (acceptEncoding != null && acceptEncoding.contains(encoding)) {
+                body = compress(encoding, json);
+                if (truncate) {
+                    // Cut off the end of the gzip trailer
+                    body = Arrays.copyOf(body, body.length - 4);
+                }
+                exchange.getResponseHeaders().set("Content-Encoding", encoding);
+            }
+
+            sent = body.length;
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+
+        private static byte[] compress(String encoding, byte[] data) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (OutputStream out = GZIP.equals(encoding) ? new GZIPOutputStream(bytes) : new DeflaterOutputStream(bytes)) {
+                out.write(data);
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
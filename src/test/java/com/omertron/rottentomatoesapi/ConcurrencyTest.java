@@ -0,0 +1,279 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Hammer every endpoint of a single shared API instance from many threads and
+ * check that each call received the response for the URL it asked for
+ *
+ * @author Stuart
+ */
+public class ConcurrencyTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyTest.class);
+    private static final String API_KEY = "concurrency-test-key";
+    private static final int THREADS = 32;
+    private static final int CALLS_PER_THREAD = 100;
+    private static final int ENDPOINTS = 18;
+    private static StandInServer server;
+    private static CloseableHttpClient httpClient;
+    private static RottenTomatoesApi rt;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        TestLogger.configure("INFO");
+        server = new StandInServer(new EchoHandler());
+        httpClient = server.createHttpClient();
+        rt = new RottenTomatoesApi(API_KEY, httpClient);
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws IOException {
+        httpClient.close();
+        server.stop();
+    }
+
+    @Test
+    public void testConcurrentCalls() throws Exception {
+        LOG.info("testConcurrentCalls");
+        final CountDownLatch startGate = new CountDownLatch(1);
+        final Queue<String> failures = new ConcurrentLinkedQueue<String>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            results.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    startGate.await();
+                    int completed = 0;
+                    for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                        int n = thread * CALLS_PER_THREAD + i;
+                        Expectation expected = invoke(n % ENDPOINTS, n);
+                        String problem = expected.verify();
+                        if (problem != null) {
+                            failures.add(problem);
+                        }
+                        completed++;
+                    }
+                    return completed;
+                }
+            }));
+        }
+
+        startGate.countDown();
+        int total = 0;
+        for (Future<Integer> result : results) {
+            total += result.get();
+        }
+        executor.shutdown();
+
+        for (String failure : failures) {
+            LOG.info("Mixed up call: {}", failure);
+        }
+        assertEquals("Wrong number of calls completed", THREADS * CALLS_PER_THREAD, total);
+        assertTrue("Calls received the wrong responses: " + failures.size(), failures.isEmpty());
+        // The directory calls have the same URL and can share a request
+        assertEquals("Wrong number of requests sent", THREADS * CALLS_PER_THREAD, server.getRequestCount() + rt.getCoalescedCount());
+    }
+
+    /**
+     * Call one of the endpoints with parameters that are unique to this call
+     *
+     * @param endpoint
+     * @param n
+     * @return
+     * @throws RottenTomatoesException
+     */
+    private static Expectation invoke(int endpoint, int n) throws RottenTomatoesException {
+        Expectation exp = new Expectation();
+        int movieId = 100000 + n;
+        int page = n + 1;
+        int limit = 1 + n % 50;
+        String country = String.valueOf(new char[]{(char) ('a' + n % 26), (char) ('a' + (n / 26) % 26)});
+
+        switch (endpoint) {
+            case 0:
+                exp.path("/lists/movies/box_office").param("limit", limit).param("country", country);
+                exp.echoed = rt.getBoxOffice(country, limit).get(0).getTitle();
+                break;
+            case 1:
+                exp.path("/lists/movies/in_theaters").param("country", country).param("page", page).param("page_limit", limit);
+                exp.echoed = rt.getInTheaters(country, page, limit).get(0).getTitle();
+                break;
+            case 2:
+                exp.path("/lists/movies/opening").param("limit", limit).param("country", country);
+                exp.echoed = rt.getOpeningMovies(country, limit).get(0).getTitle();
+                break;
+            case 3:
+                exp.path("/lists/movies/upcoming").param("country", country).param("page", page).param("page_limit", limit);
+                exp.echoed = rt.getUpcomingMovies(country, page, limit).get(0).getTitle();
+                break;
+            case 4:
+                exp.path("/lists/dvds/top_rentals").param("limit", limit).param("country", country);
+                exp.echoed = rt.getTopRentals(country, limit).get(0).getTitle();
+                break;
+            case 5:
+                exp.path("/lists/dvds/current_releases").param("country", country).param("page", page).param("page_limit", limit);
+                exp.echoed = rt.getCurrentReleaseDvds(country, page, limit).get(0).getTitle();
+                break;
+            case 6:
+                exp.path("/lists/dvds/new_releases").param("country", country).param("page", page).param("page_limit", limit);
+                exp.echoed = rt.getNewReleaseDvds(country, page, limit).get(0).getTitle();
+                break;
+            case 7:
+                exp.path("/lists/dvds/upcoming").param("country", country).param("page", page).param("page_limit", limit);
+                exp.echoed = rt.getUpcomingDvds(country, page, limit).get(0).getTitle();
+                break;
+            case 8:
+                exp.path("/movies/" + movieId);
+                exp.echoed = rt.getDetailedInfo(movieId).getTitle();
+                break;
+            case 9:
+                exp.path("/movies/" + movieId + "/cast");
+                exp.echoed = rt.getCastInfo(movieId).get(0).getCastName();
+                break;
+            case 10:
+                exp.path("/movies/" + movieId + "/clips");
+                exp.echoed = rt.getMovieClips(movieId).get(0).getTitle();
+                break;
+            case 11:
+                exp.path("/movies/" + movieId + "/reviews").param("review_type", "all").param("page_limit", limit).param("page", page).param("country", country);
+                exp.echoed = rt.getMoviesReviews(movieId, "all", limit, page, country).get(0).getQuote();
+                break;
+            case 12:
+                exp.path("/movies/" + movieId + "/similar").param("limit", limit);
+                exp.echoed = rt.getMoviesSimilar(movieId, limit).get(0).getTitle();
+                break;
+            case 13:
+                exp.path("/movie_alias").param("id", n).param("type", "imdb");
+                exp.echoed = rt.getMoviesAlias("tt" + n, "imdb").getTitle();
+                break;
+            case 14:
+                exp.path("/movies").param("q", "query" + n).param("page_limit", limit).param("page", page);
+                exp.echoed = rt.getMoviesSearch("query" + n, limit, page).get(0).getTitle();
+                break;
+            case 15:
+                exp.path("/lists");
+                exp.echoed = rt.getListsDirectory().get("self");
+                break;
+            case 16:
+                exp.path("/lists/movies");
+                exp.echoed = rt.getMovieListsDirectory().get("self");
+                break;
+            default:
+                exp.path("/lists/dvds");
+                exp.echoed = rt.getDvdListsDirectory().get("self");
+                break;
+        }
+        return exp;
+    }
+
+    /**
+     * The URL a call should have requested and the URL that the server echoed
+     * back to it
+     */
+    private static class Expectation {
+
+        private static final String PREFIX = "/api/public/v1.0";
+        private String path;
+        private final Map<String, String> query = new HashMap<String, String>();
+        private String echoed;
+
+        Expectation() {
+            query.put("apikey", API_KEY);
+        }
+
+        Expectation path(String path) {
+            this.path = PREFIX + path + ".json";
+            return this;
+        }
+
+        Expectation param(String key, Object value) {
+            query.put(key, String.valueOf(value));
+            return this;
+        }
+
+        /**
+         * Check the echoed URL against the expected one
+         *
+         * @return null if they match, otherwise a description of the problem
+         */
+        String verify() {
+            String[] parts = echoed.split("\\?", 2);
+            Map<String, String> actual = new HashMap<String, String>();
+            if (parts.length > 1) {
+                for (String pair : parts[1].split("&")) {
+                    String[] kv = pair.split("=", 2);
+                    actual.put(kv[0], kv.length > 1 ? kv[1] : "");
+                }
+            }
+
+            if (path.equals(parts[0]) && query.equals(actual)) {
+                return null;
+            }
+            return "expected " + path + query + " but got " + echoed;
+        }
+    }
+
+    /**
+     * Echo the request URI back in every field the API reads from a response
+     */
+    private static class EchoHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String uri = exchange.getRequestURI().toString().replace("\\", "\\\\").replace("\"", "\\\"");
+            StringBuilder json = new StringBuilder("{");
+            json.append("\"id\":1,\"title\":\"").append(uri).append("\",");
+            json.append("\"movies\":[{\"id\":1,\"title\":\"").append(uri).append("\"}],");
+            json.append("\"cast\":[{\"id\":1,\"name\":\"").append(uri).append("\"}],");
+            json.append("\"clips\":[{\"title\":\"").append(uri).append("\"}],");
+            json.append("\"reviews\":[{\"quote\":\"").append(uri).append("\"}],");
+            json.append("\"links\":{\"self\":\"").append(uri).append("\"}");
+            json.append("}");
+            StandInServer.sendJson(exchange, 200, json.toString());
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.tools.PoolStatistics;
+import com.omertron.rottentomatoesapi.tools.TransportConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamj.api.common.http.SimpleHttpClientBuilder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Check the pooled transport against the stand-in server, which is used as a
+ * proxy so the requests keep their real host
+ *
+ * @author Stuart
+ */
+public class ConnectionPoolTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConnectionPoolTest.class);
+    private static final String API_KEY = "pool-test-key";
+    private static final String LOCALHOST = "127.0.0.1";
+    private static final Pattern MOVIE_PATH = Pattern.compile("/movies/(\\d+)\\.json");
+    private static final int THREADS = 16;
+    private static final int CALLS = 96;
+    private static final long SERVER_DELAY_MS = 10;
+    private StandInServer server;
+    private MovieHandler handler;
+    private ExecutorService executor;
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestLogger.configure("INFO");
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        handler = new MovieHandler();
+        server = new StandInServer(handler);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        server.stop();
+    }
+
+    /**
+     * The statistics should show the connections in use and waiting
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStatistics() throws Exception {
+        LOG.info("testStatistics");
+        int perRoute = 4;
+        try (RottenTomatoesApi rt = new RottenTomatoesApi(API_KEY, new TransportConfig()
+                .setMaxPerRoute(perRoute)
+                .setProxy(LOCALHOST, server.getPort()))) {
+            handler.hold = new CountDownLatch(1);
+            List<Future<?>> calls = new ArrayList<Future<?>>();
+            for (int i = 1; i <= THREADS; i++) {
+                final int id = i;
+                calls.add(executor.submit(() -> rt.getDetailedInfo(id)));
+            }
+
+            PoolStatistics busy = waitForLeased(rt, perRoute);
+            LOG.info("While busy: {}", busy);
+            assertEquals("Wrong number leased", perRoute, busy.getLeased());
+            assertTrue("Requests should be waiting", busy.getPending() > 0);
+
+            handler.hold.countDown();
+            for (Future<?> call : calls) {
+                call.get(30, TimeUnit.SECONDS);
+            }
+            PoolStatistics idle = rt.getPoolStatistics();
+            LOG.info("When idle: {}", idle);
+            assertEquals("Nothing should be leased", 0, idle.getLeased());
+            assertEquals("Nothing should be waiting", 0, idle.getPending());
+            assertEquals("Connections should be kept for reuse", perRoute, idle.getAvailable());
+            assertEquals("Only the pool's connections should be opened", perRoute, handler.connections.size());
+        }
+
+        assertNull("A given client has no statistics", new RottenTomatoesApi(API_KEY, server.createHttpClient()).getPoolStatistics());
+    }
+
+    /**
+     * A timeout too long to hold in milliseconds should be rejected, not
+     * wrapped
+     */
+    @Test
+    public void testTimeoutOverflow() {
+        LOG.info("testTimeoutOverflow");
+        TransportConfig config = new TransportConfig().setSocketTimeout(24, TimeUnit.DAYS);
+        assertEquals("Wrong timeout", TimeUnit.DAYS.toMillis(24), config.getSocketTimeoutMillis());
+        try {
+            config.setConnectTimeout(30, TimeUnit.DAYS);
+            fail("The overflowing timeout should be rejected");
+        } catch (IllegalArgumentException ex) {
+            LOG.info("Rejected: {}", ex.getMessage());
+        }
+        assertEquals("Rejected timeout should not be set", TransportConfig.DEFAULT_CONNECT_TIMEOUT_MS, config.getConnectTimeoutMillis());
+    }
+
+    /**
+     * Closing the API should close the pool it created but not a client it
+     * was given
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testClose() throws Exception {
+        LOG.info("testClose");
+        RottenTomatoesApi pooled = new RottenTomatoesApi(API_KEY, new TransportConfig().setProxy(LOCALHOST, server.getPort()));
+        assertEquals("Wrong movie", 1, pooled.getDetailedInfo(1).getId());
+        pooled.close();
+        try {
+            pooled.getDetailedInfo(2);
+            fail("The pool should be closed");
+        } catch (IllegalStateException ex) {
+            LOG.info("Call after close failed: {}", ex.getMessage());
+        }
+
+        try (CloseableHttpClient httpClient = server.createHttpClient()) {
+            RottenTomatoesApi given = new RottenTomatoesApi(API_KEY, httpClient);
+            given.close();
+            assertEquals("The given client should still work", 3, given.getDetailedInfo(3).getId());
+        }
+    }
+
+    /**
+     * Compare the pooled transport with the previous default client, which
+     * allowed few connections per host
+     *
+     * The timings are only logged, the check is on how many requests the
+     * server was handling at once.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBenchmark() throws Exception {
+        LOG.info("testBenchmark");
+        try (CloseableHttpClient simpleClient = new SimpleHttpClientBuilder().setProxyHost(LOCALHOST).setProxyPort(server.getPort()).build();
+                RottenTomatoesApi pooledApi = new RottenTomatoesApi(API_KEY, new TransportConfig().setProxy(LOCALHOST, server.getPort()))) {
+            long simple = timeCalls(new RottenTomatoesApi(API_KEY, simpleClient));
+            int simpleActive = server.getMaxActive();
+            server.resetMaxActive();
+            long pooled = timeCalls(pooledApi);
+            int pooledActive = server.getMaxActive();
+            LOG.info("{} calls from {} threads: previous default {}ms with {} at once, pooled {}ms with {} at once",
+                    CALLS, THREADS, simple, simpleActive, pooled, pooledActive);
+            assertTrue("Pooled transport did not make more calls at once: " + pooledActive + " vs " + simpleActive, pooledActive > simpleActive);
+        }
+    }
+
+    private long timeCalls(final RottenTomatoesApi rt) throws Exception {
+        List<Future<?>> calls = new ArrayList<Future<?>>(CALLS);
+        long start = System.nanoTime();
+        for (int i = 1; i <= CALLS; i++) {
+            final int id = i;
+            calls.add(executor.submit(() -> rt.getDetailedInfo(id)));
+        }
+        for (Future<?> call : calls) {
+            call.get(60, TimeUnit.SECONDS);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static PoolStatistics waitForLeased(RottenTomatoesApi rt, int leased) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        PoolStatistics stats = rt.getPoolStatistics();
+        while (stats.getLeased() < leased && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            stats = rt.getPoolStatistics();
+        }
+        return stats;
+    }
+
+    /**
+     * Return a movie, recording each client connection
+     */
+    private static class MovieHandler implements HttpHandler {
+
+        private final Set<String> connections = ConcurrentHashMap.newKeySet();
+        private volatile CountDownLatch hold;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            connections.add(exchange.getRemoteAddress().toString());
+            try {
+                if (hold != null) {
+                    hold.await(10, TimeUnit.SECONDS);
+                }
+                Thread.sleep(SERVER_DELAY_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            Matcher matcher = MOVIE_PATH.matcher(exchange.getRequestURI().getPath());
+            String id = matcher.find() ? matcher.group(1) : "0";
+            StandInServer.sendJson(exchange, 200, "{\"id\":" + id + ",\"title\":\"Movie " + id + "\"}");
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.omertron.rottentomatoesapi.tools.PageCursor;
+import com.omertron.rottentomatoesapi.wrapper.WrapperLists;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamj.api.common.exception.ApiExceptionType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Fetch complete lists with the pages requested in parallel
+ *
+ * @author Stuart
+ */
+public class FetchAllTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FetchAllTest.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String API_KEY = "fetch-all-test-key";
+    private static final int TOTAL = 230;
+    private static final int PAGES = 5;
+    private static final int PARALLELISM = 2;
+    private static final int FAILING_PAGE = 3;
+    private static final String FAILING_QUERY = "broken";
+    private static final String SHIFTING_QUERY = "shifting";
+    private static final long SERVER_DELAY_MS = 200;
+    private static List<JsonNode> catalog;
+    private StandInServer server;
+    private PagedFixtureHandler handler;
+    private CloseableHttpClient httpClient;
+    private RottenTomatoesApi rt;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        TestLogger.configure("INFO");
+        // Number the fixture movies 1 to TOTAL, repeating them as needed
+        List<JsonNode> fixtureMovies = new ArrayList<JsonNode>();
+        for (String name : new String[]{Fixtures.IN_THEATERS, Fixtures.CATALOG}) {
+            for (JsonNode movie : MAPPER.readTree(Fixtures.load(name)).get("movies")) {
+                fixtureMovies.add(movie);
+            }
+        }
+        catalog = new ArrayList<JsonNode>(TOTAL);
+        for (int i = 0; i < TOTAL; i++) {
+            ObjectNode movie = fixtureMovies.get(i % fixtureMovies.size()).deepCopy();
+            movie.put("id", String.valueOf(i + 1));
+            catalog.add(movie);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        handler = new PagedFixtureHandler();
+        server = new StandInServer(handler);
+        httpClient = server.createHttpClient();
+        rt = new RottenTomatoesApi(API_KEY, httpClient);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        httpClient.close();
+        server.stop();
+    }
+
+    /**
+     * Every movie should be returned in order, with the pages fetched in
+     * parallel but no more than the parallelism at once
+     *
+     * @throws RottenTomatoesException
+     */
+    @Test
+    public void testFetchAll() throws RottenTomatoesException {
+        LOG.info("testFetchAll");
+        long start = System.nanoTime();
+        List<RTMovie> movies = rt.getNewReleaseDvdsCursor().fetchAll(PARALLELISM);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOG.info("Fetched {} movies in {}ms with {} requests, at most {} at once", movies.size(), elapsed, server.getRequestCount(), handler.maxActive.get());
+
+        assertEquals("Wrong number of movies", TOTAL, movies.size());
+        for (int i = 0; i < TOTAL; i++) {
+            assertEquals("Wrong order", i + 1, movies.get(i).getId());
+        }
+        assertEquals("Wrong number of requests", PAGES, server.getRequestCount());
+        assertEquals("Wrong number of requests at once", PARALLELISM, handler.maxActive.get());
+        // Page 1, then pages 2-5 two at a time
+        assertTrue("Pages were not fetched in parallel: " + elapsed + "ms", elapsed < (PAGES - 1) * SERVER_DELAY_MS);
+    }
+
+    /**
+     * A movie that moves to the next page during the fetch should only be
+     * returned once
+     *
+     * @throws RottenTomatoesException
+     */
+    @Test
+    public void testMovedMovies() throws RottenTomatoesException {
+        LOG.info("testMovedMovies");
+        List<RTMovie> movies = rt.getMoviesSearchCursor(SHIFTING_QUERY).fetchAll(PARALLELISM);
+        Set<Integer> ids = new HashSet<Integer>();
+        for (RTMovie movie : movies) {
+            assertTrue("Repeated movie " + movie.getId(), ids.add(movie.getId()));
+        }
+        // The movie at the end of page 1 is served again at the start of page 2
+        assertEquals("Wrong number of movies", TOTAL, movies.size());
+    }
+
+    /**
+     * The rate limit should still hold when the pages are fetched in parallel
+     *
+     * @throws RottenTomatoesException
+     */
+    @Test
+    public void testRateLimit() throws RottenTomatoesException {
+        LOG.info("testRateLimit");
+        double qps = 10.0;
+        rt.setRateLimit(qps);
+        long start = System.nanoTime();
+        List<RTMovie> movies = rt.getInTheatersCursor().fetchAll(PAGES);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOG.info("{} took {}ms", rt.getRateLimiter(), elapsed);
+
+        assertEquals("Wrong number of movies", TOTAL, movies.size());
+        long minimum = (long) ((PAGES - 1) * 1000 / qps);
+        assertTrue("Rate limit was not applied: " + elapsed + "ms", elapsed >= minimum - 20);
+    }
+
+    /**
+     * A failed page should fail the whole fetch
+     */
+    @Test
+    public void testFailedPage() {
+        LOG.info("testFailedPage");
+        try {
+            rt.getMoviesSearchCursor(FAILING_QUERY).fetchAll(PARALLELISM);
+            fail("The failed page should be thrown");
+        } catch (RottenTomatoesException ex) {
+            assertEquals("Wrong exception type", ApiExceptionType.HTTP_404_ERROR, ex.getExceptionType());
+        }
+    }
+
+    /**
+     * An error on a worker should fail the fetch with that error, not leave
+     * its page missing
+     *
+     * @throws RottenTomatoesException
+     */
+    @Test
+    public void testErrorOnPage() throws RottenTomatoesException {
+        LOG.info("testErrorOnPage");
+        PageCursor<RTMovie> cursor = new PageCursor<RTMovie>((page, pageLimit) -> {
+            if (page == FAILING_PAGE) {
+                throw new StackOverflowError("Page " + page);
+            }
+            return numberedPage(page, pageLimit);
+        }, WrapperLists::getMovies, RTMovie::getId, null);
+        try {
+            cursor.fetchAll(PARALLELISM);
+            fail("The error should be thrown");
+        } catch (StackOverflowError ex) {
+            assertEquals("Wrong error", "Page " + FAILING_PAGE, ex.getMessage());
+        }
+    }
+
+    /**
+     * A single page should be returned as the same kind of list as many pages
+     *
+     * @throws RottenTomatoesException
+     */
+    @Test
+    public void testSinglePage() throws RottenTomatoesException {
+        LOG.info("testSinglePage");
+        PageCursor<RTMovie> cursor = new PageCursor<RTMovie>((page, pageLimit) -> {
+            WrapperLists wrapper = numberedPage(page, pageLimit);
+            wrapper.setTotal(wrapper.getMovies().size());
+            wrapper.setMovies(Collections.unmodifiableList(wrapper.getMovies()));
+            return wrapper;
+        }, WrapperLists::getMovies, RTMovie::getId, null);
+        List<RTMovie> movies = cursor.fetchAll(PARALLELISM);
+        assertEquals("Wrong first movie", 1, movies.get(0).getId());
+        assertEquals("Wrong list", ArrayList.class, movies.getClass());
+    }
+
+    /**
+     * A page of movies numbered from 1 to TOTAL
+     *
+     * @param page
+     * @param pageLimit
+     * @return
+     */
+    private static WrapperLists numberedPage(int page, int pageLimit) {
+        WrapperLists wrapper = new WrapperLists();
+        List<RTMovie> movies = new ArrayList<RTMovie>(pageLimit);
+        for (int id = (page - 1) * pageLimit + 1; id <= Math.min(TOTAL, page * pageLimit); id++) {
+            RTMovie movie = new RTMovie();
+            movie.setId(id);
+            movies.add(movie);
+        }
+        wrapper.setMovies(movies);
+        wrapper.setTotal(TOTAL);
+        return wrapper;
+    }
+
+    /**
+     * Serve pages of the numbered catalog
+     */
+    private static class PagedFixtureHandler implements HttpHandler {
+
+        private final AtomicInteger active = new AtomicInteger(0);
+        private final AtomicInteger maxActive = new AtomicInteger(0);
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            int now = active.incrementAndGet();
+            maxActive.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(SERVER_DELAY_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // Before the response, so the client's next request is not counted with this one
+                active.decrementAndGet();
+            }
+            send(exchange);
+        }
+
+        private void send(HttpExchange exchange) throws IOException {
+            Map<String, String> query = new HashMap<String, String>();
+            for (String pair : exchange.getRequestURI().getRawQuery().split("&")) {
+                String[] parts = pair.split("=", 2);
+                query.put(parts[0], parts.length > 1 ? parts[1] : "");
+            }
+
+            int page = Integer.parseInt(query.get("page"));
+            int pageLimit = Integer.parseInt(query.get("page_limit"));
+            if (FAILING_QUERY.equals(query.get("q")) && page == FAILING_PAGE) {
+                StandInServer.sendJson(exchange, 404, "{\"error\":\"Page not found\"}");
+                return;
+            }
+
+            // A new movie added to the top of the list after the first page pushes the rest down one
+            int shift = SHIFTING_QUERY.equals(query.get("q")) && page > 1 ? 1 : 0;
+            ObjectNode wrapper = MAPPER.createObjectNode();
+            wrapper.put("total", TOTAL);
+            ArrayNode movies = wrapper.putArray("movies");
+            int first = Math.max(0, (page - 1) * pageLimit - shift);
+            int last = Math.min(TOTAL, page * pageLimit - shift);
+            for (int i = first; i < last; i++) {
+                movies.add(catalog.get(i));
+            }
+            StandInServer.sendJson(exchange, 200, MAPPER.writeValueAsString(wrapper));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Sample API responses used by the offline tests and benchmarks
+ *
+ * @author Stuart
+ */
+public final class Fixtures {
+
+    /**
+     * A 50 movie page of the in theaters list
+     */
+    public static final String IN_THEATERS = "in_theaters.json";
+    /**
+     * A 50 review page of movie reviews
+     */
+    public static final String REVIEWS = "reviews.json";
+    /**
+     * 50 movies with the full details returned by the movie info call
+     */
+    public static final String CATALOG = "catalog.json";
+
+    private Fixtures() {
+        throw new UnsupportedOperationException("Class cannot be instantiated");
+    }
+
+    /**
+     * Load a fixture
+     *
+     * @param name
+     * @return the UTF-8 JSON
+     * @throws IOException
+     */
+    public static byte[] load(String name) throws IOException {
+        InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name);
+        if (in == null) {
+            throw new IOException("Missing fixture " + name);
+        }
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamj.api.common.exception.ApiExceptionType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fetch the parts of a movie in parallel
+ *
+ * @author Stuart
+ */
+public class FullMovieTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FullMovieTest.class);
+    private static final String API_KEY = "full-movie-test-key";
+    private static final Pattern MOVIE_PATH = Pattern.compile("/movies/(\\d+)(/\\w+)?\\.json");
+    private static final int MOVIE_ID = 10;
+    private static final int MISSING_ID = 404;
+    private static final int SLOW_ID = 500;
+    private static final long SLOW_DELAY_MS = 3000;
+    private static final long PART_TIMEOUT_MS = 500;
+    private StandInServer server;
+    private CloseableHttpClient httpClient;
+    private ExecutorService executor;
+    private RottenTomatoesAsyncApi rt;
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestLogger.configure("INFO");
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StandInServer(new PartHandler());
+        httpClient = server.createHttpClient();
+        executor = Executors.newCachedThreadPool();
+        rt = new RottenTomatoesAsyncApi(API_KEY, httpClient, executor);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        httpClient.close();
+        server.stop();
+    }
+
+    /**
+     * All the parts should be fetched in about the time of the slowest
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAllParts() throws Exception {
+        LOG.info("testAllParts");
+        long start = System.nanoTime();
+        FullMovie full = rt.getFullMovie(MOVIE_ID).get(30, TimeUnit.SECONDS);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOG.info("{} took {}ms, the parts take {}ms one after another", full, elapsed, totalDelay());
+
+        assertTrue("Not all parts were fetched", full.isComplete());
+        for (MoviePart part : MoviePart.values()) {
+            assertEquals("Wrong status for " + part, FullMovie.Status.OK, full.getStatus(part));
+        }
+        assertEquals("Wrong movie", MOVIE_ID, full.getMovie().getId());
+        assertEquals("Wrong cast", 1, full.getCast().size());
+        assertEquals("Wrong clips", 1, full.getClips().size());
+        assertEquals("Wrong reviews", 1, full.getReviews().size());
+        assertEquals("Wrong similar", 1, full.getSimilar().size());
+        assertTrue("Parts were not fetched in parallel: " + elapsed + "ms", elapsed < delay(MoviePart.SIMILAR) + 250);
+    }
+
+    /**
+     * Only the chosen parts should be fetched
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testChosenParts() throws Exception {
+        LOG.info("testChosenParts");
+        FullMovie full = rt.getFullMovie(MOVIE_ID, EnumSet.of(MoviePart.CAST, MoviePart.REVIEWS), 5, TimeUnit.SECONDS).get(30, TimeUnit.SECONDS);
+        assertEquals("Wrong number of requests", 2, server.getRequestCount());
+        assertTrue("Requested parts were not fetched", full.isComplete());
+        assertEquals("Wrong status", FullMovie.Status.OK, full.getStatus(MoviePart.CAST));
+        assertEquals("Wrong status", FullMovie.Status.NOT_REQUESTED, full.getStatus(MoviePart.INFO));
+        assertNull("Movie was not requested", full.getMovie());
+        assertTrue("Clips were not requested", full.getClips().isEmpty());
+    }
+
+    /**
+     * A slow or failed part should not hold up or fail the others
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFailedParts() throws Exception {
+        LOG.info("testFailedParts");
+        long start = System.nanoTime();
+        FullMovie full = rt.getFullMovie(SLOW_ID, MoviePart.ALL, PART_TIMEOUT_MS, TimeUnit.MILLISECONDS).get(30, TimeUnit.SECONDS);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOG.info("{} took {}ms", full, elapsed);
+
+        assertFalse("Movie should not be complete", full.isComplete());
+        assertEquals("Slow part should time out", FullMovie.Status.TIMED_OUT, full.getStatus(MoviePart.SIMILAR));
+        assertEquals("Wrong status", FullMovie.Status.OK, full.getStatus(MoviePart.CAST));
+        assertTrue("Slow part held up the result: " + elapsed + "ms", elapsed < SLOW_DELAY_MS - 1000);
+
+        full = rt.getFullMovie(MISSING_ID).get(30, TimeUnit.SECONDS);
+        assertEquals("Missing movie should fail", FullMovie.Status.FAILED, full.getStatus(MoviePart.INFO));
+        assertEquals("Wrong failure", ApiExceptionType.HTTP_404_ERROR, full.getFailure(MoviePart.INFO).getExceptionType());
+        assertEquals("Other parts should succeed", FullMovie.Status.OK, full.getStatus(MoviePart.CLIPS));
+    }
+
+    private static long delay(MoviePart part) {
+        return 100 + 50L * part.ordinal();
+    }
+
+    private static long totalDelay() {
+        long total = 0;
+        for (MoviePart part : MoviePart.values()) {
+            total += delay(part);
+        }
+        return total;
+    }
+
+    /**
+     * Return each part after its own delay
+     */
+    private static class PartHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            Matcher matcher = MOVIE_PATH.matcher(exchange.getRequestURI().getPath());
+            if (!matcher.find()) {
+                StandInServer.sendJson(exchange, 404, "{\"error\":\"Not found\"}");
+                return;
+            }
+
+            int id = Integer.parseInt(matcher.group(1));
+            MoviePart part = matcher.group(2) == null ? MoviePart.INFO : MoviePart.valueOf(matcher.group(2).substring(1).toUpperCase());
+            try {
+                Thread.sleep(id == SLOW_ID && part == MoviePart.SIMILAR ? SLOW_DELAY_MS : delay(part));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            switch (part) {
+                case INFO:
+                    if (id == MISSING_ID) {
+                        StandInServer.sendJson(exchange, 404, "{\"error\":\"Could not find a movie with the specified id\"}");
+                    } else {
+                        StandInServer.sendJson(exchange, 200, "{\"id\":" + id + ",\"title\":\"Movie " + id + "\"}");
+                    }
+                    break;
+                case CAST:
+                    StandInServer.sendJson(exchange, 200, "{\"cast\":[{\"id\":\"1\",\"name\":\"Actor\"}]}");
+                    break;
+                case CLIPS:
+                    StandInServer.sendJson(exchange, 200, "{\"clips\":[{\"title\":\"Trailer\"}]}");
+                    break;
+                case REVIEWS:
+                    StandInServer.sendJson(exchange, 200, "{\"total\":1,\"reviews\":[{\"critic\":\"Critic\"}]}");
+                    break;
+                default:
+                    StandInServer.sendJson(exchange, 200, "{\"movies\":[{\"id\":1,\"title\":\"Similar\"}]}");
+                    break;
+            }
+        }
+    }
+}
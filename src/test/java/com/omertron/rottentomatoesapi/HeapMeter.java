@@ -0,0 +1,76 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * Rough measurement of the heap retained by objects, for footprint tests
+ *
+ * @author Stuart
+ */
+public final class HeapMeter {
+
+    /**
+     * Creates the objects to measure
+     */
+    public interface Factory {
+
+        Object create(int index) throws Exception;
+    }
+
+    private static final int GC_PASSES = 4;
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private HeapMeter() {
+        throw new UnsupportedOperationException("Class cannot be instantiated");
+    }
+
+    /**
+     * Work out the average heap retained by each object created
+     *
+     * @param count The number of objects to create, more gives a steadier
+     * result
+     * @param factory
+     * @return bytes per object
+     * @throws Exception
+     */
+    public static long bytesPerObject(int count, Factory factory) throws Exception {
+        Object[] holder = new Object[count];
+        long before = usedHeap();
+        for (int i = 0; i < count; i++) {
+            holder[i] = factory.create(i);
+        }
+        long after = usedHeap();
+        if (holder[count - 1] == null) {
+            throw new IllegalStateException("Factory returned null");
+        }
+        return (after - before) / count;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < GC_PASSES; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.tools.HttpTransport;
+import com.omertron.rottentomatoesapi.tools.JdkTransport;
+import com.omertron.rottentomatoesapi.tools.TransportConfig;
+
+/**
+ * Run the transport checks with the JDK HTTP client
+ *
+ * @author Stuart
+ */
+public class JdkTransportTest extends TransportContract {
+
+    @Override
+    protected HttpTransport createTransport(TransportConfig config) {
+        return new JdkTransport(config);
+    }
+
+    @Override
+    protected void closeTransport() {
+        // The JDK client is released when it is no longer used
+    }
+}
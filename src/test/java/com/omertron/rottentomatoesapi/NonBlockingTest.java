@@ -0,0 +1,384 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.omertron.rottentomatoesapi.tools.AliasStore;
+import com.omertron.rottentomatoesapi.tools.BulkCallback;
+import com.omertron.rottentomatoesapi.tools.BulkResult;
+import com.omertron.rottentomatoesapi.tools.DiskCache;
+import com.omertron.rottentomatoesapi.tools.ExponentialBackoffPolicy;
+import com.omertron.rottentomatoesapi.tools.JdkTransport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check the non-blocking calls keep many requests in progress with only a
+ * couple of client threads
+ *
+ * @author Stuart
+ */
+public class NonBlockingTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NonBlockingTest.class);
+    private static final String API_KEY = "non-blocking-test-key";
+    private static final String LOCALHOST = "127.0.0.1";
+    private static final String CLIENT_THREAD = "rt-client-";
+    private static final Pattern MOVIE_PATH = Pattern.compile("/movies/(\\d+)\\.json");
+    private static final int MOVIE_ID = 10;
+    private static final int FAILING_ID = 503;
+    private static final int CLIENT_THREADS = 2;
+    private static final int IN_FLIGHT = 1000;
+    private static final long SERVER_DELAY_MS = 500;
+    private static final long RETRY_DELAY_MS = 200;
+    private static final String LIST_JSON = "{\"movies\":[{\"id\":1,\"title\":\"Movie 1\"}],\"links\":{\"movies\":\"http://localhost/movies.json\"}}";
+    private static final int BATCH = 24;
+    private static final int CONCURRENCY = 4;
+    private StandInServer server;
+    private DelayHandler handler;
+    private ExecutorService clientExecutor;
+    private RottenTomatoesAsyncApi rt;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestLogger.configure("INFO");
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        handler = new DelayHandler();
+        server = new StandInServer(handler);
+        final AtomicInteger count = new AtomicInteger(0);
+        clientExecutor = Executors.newFixedThreadPool(CLIENT_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, CLIENT_THREAD + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        HttpClient httpClient = HttpClient.newBuilder()
+                .executor(clientExecutor)
+                .proxy(ProxySelector.of(new InetSocketAddress(LOCALHOST, server.getPort())))
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        rt = new RottenTomatoesAsyncApi(API_KEY, new JdkTransport(httpClient, Duration.ofSeconds(60)));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        rt.close();
+        clientExecutor.shutdownNow();
+        server.stop();
+    }
+
+    /**
+     * All the calls should be in progress at the same time without a thread
+     * for each
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testManyInFlight() throws Exception {
+        LOG.info("testManyInFlight");
+        assertTrue("Should be non-blocking", rt.isNonBlocking());
+        long start = System.nanoTime();
+        List<CompletableFuture<RTMovie>> futures = new ArrayList<CompletableFuture<RTMovie>>(IN_FLIGHT);
+        for (int id = 1; id <= IN_FLIGHT; id++) {
+            futures.add(rt.getDetailedInfo(id));
+        }
+        long submitted = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Count the client threads while the server is holding the calls
+        long deadline = System.currentTimeMillis() + 30000;
+        while (handler.active.get() < IN_FLIGHT / 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        int clientThreads = countClientThreads();
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).get(60, TimeUnit.SECONDS);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOG.info("{} calls submitted in {}ms, completed in {}ms, {} at once on the server, {} client threads",
+                IN_FLIGHT, submitted, elapsed, handler.maxActive.get(), clientThreads);
+
+        for (int id = 1; id <= IN_FLIGHT; id++) {
+            assertEquals("Wrong movie returned", id, futures.get(id - 1).get().getId());
+        }
+        assertTrue("Calls were not in progress together: " + handler.maxActive.get(), handler.maxActive.get() > IN_FLIGHT / 2);
+        assertTrue("Too many client threads: " + clientThreads, clientThreads <= CLIENT_THREADS);
+        assertTrue("Calls did not overlap: " + elapsed + "ms", elapsed < IN_FLIGHT * SERVER_DELAY_MS / CLIENT_THREADS / 10);
+    }
+
+    /**
+     * A retry should wait on the timer, not on the calling thread
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRetryOnTimer() throws Exception {
+        LOG.info("testRetryOnTimer");
+        rt.getApi().setRetryPolicy(new ExponentialBackoffPolicy(RETRY_DELAY_MS, RETRY_DELAY_MS, 2));
+        long start = System.nanoTime();
+        CompletableFuture<RTMovie> future = rt.getDetailedInfo(FAILING_ID);
+        long returned = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertFalse("Call should still be in progress", future.isDone());
+        assertTrue("Call blocked the caller: " + returned + "ms", returned < SERVER_DELAY_MS);
+
+        assertEquals("Wrong movie returned", FAILING_ID, future.get(30, TimeUnit.SECONDS).getId());
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals("Server error was not retried", 2, server.getRequestCount());
+        assertEquals("Retry was not recorded", 1, rt.getApi().getRetryMetrics().getTotalRetries());
+        assertTrue("Retry did not wait: " + elapsed + "ms", elapsed >= 2 * SERVER_DELAY_MS + RETRY_DELAY_MS);
+    }
+
+    /**
+     * Cancelling the first caller's future should not fail a caller sharing
+     * its request, or stop the retry
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCancelSharedCall() throws Exception {
+        LOG.info("testCancelSharedCall");
+        rt.getApi().setCoalescing(true);
+        rt.getApi().setRetryPolicy(new ExponentialBackoffPolicy(RETRY_DELAY_MS, RETRY_DELAY_MS, 2));
+        CompletableFuture<RTMovie> first = rt.getDetailedInfo(FAILING_ID);
+        CompletableFuture<RTMovie> second = rt.getDetailedInfo(FAILING_ID);
+        assertTrue("Cancel failed", first.cancel(true));
+
+        assertEquals("Wrong movie returned", FAILING_ID, second.get(30, TimeUnit.SECONDS).getId());
+        assertEquals("Server error was not retried", 2, server.getRequestCount());
+        assertEquals("Wrong coalesced count", 1, rt.getApi().getCoalescedCount());
+    }
+
+    /**
+     * A part that times out in a full movie should not fail another caller
+     * sharing its request
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testTimeoutSharedCall() throws Exception {
+        LOG.info("testTimeoutSharedCall");
+        rt.getApi().setCoalescing(true);
+        CompletableFuture<FullMovie> full = rt.getFullMovie(MOVIE_ID, EnumSet.of(MoviePart.INFO), SERVER_DELAY_MS / 5, TimeUnit.MILLISECONDS);
+        CompletableFuture<RTMovie> direct = rt.getDetailedInfo(MOVIE_ID);
+
+        assertEquals("Part should time out", FullMovie.Status.TIMED_OUT, full.get(30, TimeUnit.SECONDS).getStatus(MoviePart.INFO));
+        assertEquals("Wrong movie returned", MOVIE_ID, direct.get(30, TimeUnit.SECONDS).getId());
+        assertEquals("Wrong number of requests", 1, server.getRequestCount());
+    }
+
+    /**
+     * Every call should be made without the executor
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testEveryCall() throws Exception {
+        LOG.info("testEveryCall");
+        RottenTomatoesAsyncApi direct = withoutExecutor();
+        List<CompletableFuture<List<RTMovie>>> lists = new ArrayList<CompletableFuture<List<RTMovie>>>();
+        lists.add(direct.getBoxOffice());
+        lists.add(direct.getOpeningMovies());
+        lists.add(direct.getUpcomingMovies());
+        lists.add(direct.getTopRentals());
+        lists.add(direct.getCurrentReleaseDvds());
+        lists.add(direct.getNewReleaseDvds());
+        lists.add(direct.getUpcomingDvds());
+        lists.add(direct.getMoviesSearch("Toy Story"));
+        List<CompletableFuture<Map<String, String>>> directories = new ArrayList<CompletableFuture<Map<String, String>>>();
+        directories.add(direct.getListsDirectory());
+        directories.add(direct.getMovieListsDirectory());
+        directories.add(direct.getDvdListsDirectory());
+        CompletableFuture<RTMovie> alias = direct.getMoviesAlias("tt0114709", "imdb");
+
+        for (CompletableFuture<List<RTMovie>> list : lists) {
+            assertEquals("Wrong list", 1, list.get(30, TimeUnit.SECONDS).size());
+        }
+        for (CompletableFuture<Map<String, String>> directory : directories) {
+            assertEquals("Wrong directory", 1, directory.get(30, TimeUnit.SECONDS).size());
+        }
+        assertNotNull("No alias", alias.get(30, TimeUnit.SECONDS));
+        assertEquals("Wrong number of requests", lists.size() + directories.size() + 1, server.getRequestCount());
+        assertTrue("Calls were not in progress together: " + handler.maxActive.get(), handler.maxActive.get() > 1);
+    }
+
+    /**
+     * The bulk lookups should keep no more than the concurrency outstanding,
+     * without the executor
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBulk() throws Exception {
+        LOG.info("testBulk");
+        RottenTomatoesAsyncApi direct = withoutExecutor();
+        final Set<Integer> found = ConcurrentHashMap.newKeySet();
+        long start = System.nanoTime();
+        BulkResult result = direct.getDetailedInfo(IntStream.rangeClosed(1, BATCH).toArray(), CONCURRENCY, new BulkCallback<RTMovie>() {
+            @Override
+            public void onResult(int id, RTMovie movie) {
+                found.add(movie.getId());
+            }
+
+            @Override
+            public void onFailure(int id, RottenTomatoesException ex) {
+                LOG.warn("Failed {}: {}", id, ex.getMessage());
+            }
+        }).get(60, TimeUnit.SECONDS);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOG.info("{}, at most {} at once on the server", result, handler.maxActive.get());
+
+        assertEquals("Wrong success count", BATCH, result.getSucceeded());
+        assertEquals("Wrong movies", BATCH, found.size());
+        assertEquals("Concurrency was not kept", CONCURRENCY, handler.maxActive.get());
+        assertTrue("Lookups did not overlap: " + elapsed + "ms", elapsed < BATCH * SERVER_DELAY_MS / 2);
+
+        List<String> imdbIds = new ArrayList<String>();
+        for (int id = 1; id <= CONCURRENCY * 2; id++) {
+            imdbIds.add(AliasStore.formatImdbId(id));
+        }
+        AliasStore store = new AliasStore();
+        result = direct.resolveImdbIds(imdbIds, CONCURRENCY, store).get(60, TimeUnit.SECONDS);
+        assertEquals("Wrong alias count", imdbIds.size(), result.getSucceeded());
+        assertEquals("Aliases were not stored", imdbIds.size(), store.size());
+    }
+
+    /**
+     * A response in the disk cache should be used without a request
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDiskCache() throws Exception {
+        LOG.info("testDiskCache");
+        try (DiskCache disk = new DiskCache(folder.newFolder("cache"))) {
+            rt.getApi().setDiskCache(disk);
+            assertEquals("Wrong movie returned", MOVIE_ID, rt.getDetailedInfo(MOVIE_ID).get(30, TimeUnit.SECONDS).getId());
+            CompletableFuture<RTMovie> cached = rt.getDetailedInfo(MOVIE_ID);
+            assertTrue("Cached movie should be returned straight away", cached.isDone());
+            assertEquals("Wrong cached movie", MOVIE_ID, cached.get().getId());
+            assertEquals("Wrong number of requests", 1, server.getRequestCount());
+        }
+    }
+
+    /**
+     * An asynchronous API on the same API whose executor rejects every call
+     *
+     * @return
+     */
+    private RottenTomatoesAsyncApi withoutExecutor() {
+        return new RottenTomatoesAsyncApi(rt.getApi(), runnable -> {
+            throw new RejectedExecutionException("The executor should not be used");
+        });
+    }
+
+    /**
+     * An API using the Apache client should keep running the calls on the
+     * executor
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBlockingTransport() throws Exception {
+        LOG.info("testBlockingTransport");
+        RottenTomatoesAsyncApi blocking = new RottenTomatoesAsyncApi(new RottenTomatoesApi(API_KEY, server.createHttpClient()), clientExecutor);
+        assertFalse("Apache transport should block", blocking.isNonBlocking());
+        assertFalse("Apache transport should block", blocking.getApi().isNonBlocking());
+    }
+
+    private static int countClientThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(CLIENT_THREAD)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Return a movie after a delay, counting the requests in progress
+     */
+    private static class DelayHandler implements HttpHandler {
+
+        private final AtomicInteger active = new AtomicInteger(0);
+        private final AtomicInteger maxActive = new AtomicInteger(0);
+        private final AtomicInteger failures = new AtomicInteger(0);
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            int now = active.incrementAndGet();
+            maxActive.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(SERVER_DELAY_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                active.decrementAndGet();
+            }
+
+            Matcher matcher = MOVIE_PATH.matcher(exchange.getRequestURI().getPath());
+            if (!matcher.find()) {
+                StandInServer.sendJson(exchange, 200, LIST_JSON);
+                return;
+            }
+            String id = matcher.group(1);
+            if (Integer.parseInt(id) == FAILING_ID && failures.getAndIncrement() == 0) {
+                StandInServer.sendJson(exchange, 503, "{\"error\":\"Service unavailable\"}");
+            } else {
+                StandInServer.sendJson(exchange, 200, "{\"id\":" + id + ",\"title\":\"Movie " + id + "\"}");
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.omertron.rottentomatoesapi.model.Review;
+import com.omertron.rottentomatoesapi.tools.PageCursor;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamj.api.common.exception.ApiExceptionType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Walk the paged lists through a cursor
+ *
+ * @author Stuart
+ */
+public class PageCursorTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PageCursorTest.class);
+    private static final String API_KEY = "cursor-test-key";
+    private static final int TOTAL = 230;
+    private static final int PAGES = 5;
+    private static final int FAILING_PAGE = 3;
+    private static final String FAILING_QUERY = "broken";
+    private static final long SERVER_DELAY_MS = 200;
+    private static final long ITEM_DELAY_MS = 4;
+    private StandInServer server;
+    private PagedHandler handler;
+    private CloseableHttpClient httpClient;
+    private RottenTomatoesApi rt;
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestLogger.configure("INFO");
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        handler = new PagedHandler();
+        server = new StandInServer(handler);
+        httpClient = server.createHttpClient();
+        rt = new RottenTomatoesApi(API_KEY, httpClient);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        httpClient.close();
+        server.stop();
+    }
+
+    /**
+     * The cursor should return every movie, in order, using full pages
+     */
+    @Test
+    public void testWalkAllPages() {
+        LOG.info("testWalkAllPages");
+        List<Integer> ids = new ArrayList<Integer>();
+        for (RTMovie movie : rt.getUpcomingDvdsCursor()) {
+            ids.add(movie.getId());
+        }
+
+        assertEquals("Wrong number of movies", TOTAL, ids.size());
+        for (int i = 0; i < TOTAL; i++) {
+            assertEquals("Wrong order", i + 1, ids.get(i).intValue());
+        }
+        assertEquals("Wrong number of requests", PAGES, server.getRequestCount());
+        assertEquals("Should always ask for the largest page", 1, handler.pageLimits.size());
+        assertTrue("Should always ask for the largest page", handler.pageLimits.contains(String.valueOf(PageCursor.PAGE_LIMIT)));
+    }
+
+    /**
+     * The next page should be fetched while the current one is processed
+     */
+    @Test
+    public void testPrefetch() {
+        LOG.info("testPrefetch");
+        long start = System.nanoTime();
+        long processingNanos = 0;
+        int count = 0;
+        for (RTMovie movie : rt.getInTheatersCursor()) {
+            count++;
+            long itemStart = System.nanoTime();
+            sleep(ITEM_DELAY_MS);
+            processingNanos += System.nanoTime() - itemStart;
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        long sequential = PAGES * SERVER_DELAY_MS + TimeUnit.NANOSECONDS.toMillis(processingNanos);
+        LOG.info("Walked {} movies in {}ms, {}ms without prefetch", count, elapsed, sequential);
+        assertEquals("Wrong number of movies", TOTAL, count);
+        assertTrue("Pages were not prefetched: " + elapsed + "ms", elapsed < sequential - 2 * SERVER_DELAY_MS);
+    }
+
+    /**
+     * The stream should be lazy and stop fetching when it is short circuited
+     */
+    @Test
+    public void testStream() {
+        LOG.info("testStream");
+        try (Stream<Review> reviews = rt.getMoviesReviewsCursor(1).stream()) {
+            List<Review> first = reviews.limit(10).collect(Collectors.toList());
+            assertEquals("Wrong number of reviews", 10, first.size());
+        }
+        assertTrue("Should not fetch every page", server.getRequestCount() <= 2);
+
+        Set<String> quotes = rt.getMoviesReviewsCursor(1).stream().map(Review::getQuote).collect(Collectors.toSet());
+        assertEquals("Wrong number of reviews", TOTAL, quotes.size());
+    }
+
+    /**
+     * A failed page should be thrown from the iterator
+     *
+     * @throws RottenTomatoesException
+     */
+    @Test
+    public void testFailedPage() throws RottenTomatoesException {
+        LOG.info("testFailedPage");
+        Iterator<RTMovie> iterator = rt.getMoviesSearchCursor(FAILING_QUERY).iterator();
+        int count = 0;
+        try {
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+            fail("The failed page should be thrown");
+        } catch (PageCursor.PageException ex) {
+            assertEquals("Wrong page", FAILING_PAGE, ex.getPage());
+            assertEquals("Wrong exception type", ApiExceptionType.HTTP_404_ERROR, ex.getCause().getExceptionType());
+        }
+        assertEquals("Earlier pages should be returned", (FAILING_PAGE - 1) * PageCursor.PAGE_LIMIT, count);
+        assertFalse("Iterator should stop after a failure", iterator.hasNext());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Return a page of numbered movies or reviews from a list of TOTAL items
+     */
+    private static class PagedHandler implements HttpHandler {
+
+        private final Set<String> pageLimits = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            sleep(SERVER_DELAY_MS);
+            Map<String, String> query = new HashMap<String, String>();
+            for (String pair : exchange.getRequestURI().getRawQuery().split("&")) {
+                String[] parts = pair.split("=", 2);
+                query.put(parts[0], parts.length > 1 ? parts[1] : "");
+            }
+
+            int page = Integer.parseInt(query.get("page"));
+            int pageLimit = Integer.parseInt(query.get("page_limit"));
+            pageLimits.add(query.get("page_limit"));
+            if (FAILING_QUERY.equals(query.get("q")) && page == FAILING_PAGE) {
+                StandInServer.sendJson(exchange, 404, "{\"error\":\"Page not found\"}");
+                return;
+            }
+
+            boolean reviews = exchange.getRequestURI().getPath().endsWith("/reviews.json");
+            StringBuilder json = new StringBuilder("{\"total\":").append(TOTAL);
+            json.append(reviews ? ",\"reviews\":[" : ",\"movies\":[");
+            int first = (page - 1) * pageLimit + 1;
+            int last = Math.min(TOTAL, page * pageLimit);
+            for (int id = first; id <= last; id++) {
+                if (id > first) {
+                    json.append(',');
+                }
+                if (reviews) {
+                    json.append("{\"critic\":\"Critic\",\"quote\":\"Quote ").append(id).append("\"}");
+                } else {
+                    json.append("{\"id\":").append(id).append(",\"title\":\"Movie ").append(id).append("\"}");
+                }
+            }
+            json.append("]}");
+            StandInServer.sendJson(exchange, 200, json.toString());
+        }
+    }
+}
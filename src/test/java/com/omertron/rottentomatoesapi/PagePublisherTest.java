@@ -0,0 +1,277 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.omertron.rottentomatoesapi.model.Review;
+import com.omertron.rottentomatoesapi.tools.ExponentialBackoffPolicy;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.ITestNGListener;
+import org.testng.ITestResult;
+import org.testng.TestListenerAdapter;
+import org.testng.TestNG;
+import org.yamj.api.common.exception.ApiExceptionType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Check the paged lists published as Reactive Streams
+ *
+ * @author Stuart
+ */
+public class PagePublisherTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PagePublisherTest.class);
+    private static final String API_KEY = "publisher-test-key";
+    private static final int TOTAL = 230;
+    private static final int PAGES = 5;
+    private static final int PAGE_LIMIT = 50;
+    private static final int FAILING_PAGE = 3;
+    private static final String FAILING_QUERY = "broken";
+    private static final long SETTLE_MS = 200;
+    private StandInServer server;
+    private CloseableHttpClient httpClient;
+    private RottenTomatoesApi rt;
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestLogger.configure("INFO");
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StandInServer(new PagedHandler());
+        httpClient = server.createHttpClient();
+        rt = new RottenTomatoesApi(API_KEY, httpClient);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        httpClient.close();
+        server.stop();
+    }
+
+    /**
+     * Pages should only be fetched when the subscriber asks for their items
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDemandDrivesPages() throws Exception {
+        LOG.info("testDemandDrivesPages");
+        RecordingSubscriber<RTMovie> subscriber = new RecordingSubscriber<RTMovie>();
+        rt.getInTheatersCursor().publisher().subscribe(subscriber);
+        Thread.sleep(SETTLE_MS);
+        assertEquals("Nothing should be fetched without demand", 0, server.getRequestCount());
+
+        subscriber.request(10);
+        subscriber.awaitItems(10);
+        Thread.sleep(SETTLE_MS);
+        assertEquals("Wrong number of items", 10, subscriber.items.size());
+        assertEquals("Only the first page should be fetched", 1, server.getRequestCount());
+
+        subscriber.request(PAGE_LIMIT);
+        subscriber.awaitItems(10 + PAGE_LIMIT);
+        Thread.sleep(SETTLE_MS);
+        assertEquals("Wrong number of items", 10 + PAGE_LIMIT, subscriber.items.size());
+        assertEquals("Only two pages should be fetched", 2, server.getRequestCount());
+        for (int i = 0; i < subscriber.items.size(); i++) {
+            assertEquals("Wrong order", i + 1, subscriber.items.get(i).getId());
+        }
+
+        subscriber.subscription.cancel();
+        subscriber.request(PAGE_LIMIT);
+        Thread.sleep(SETTLE_MS);
+        assertEquals("Nothing should be fetched after cancel", 2, server.getRequestCount());
+        assertFalse("Cancelled stream should not complete", subscriber.isTerminated());
+    }
+
+    /**
+     * Unbounded demand should publish the whole list then complete
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testComplete() throws Exception {
+        LOG.info("testComplete");
+        RecordingSubscriber<Review> subscriber = new RecordingSubscriber<Review>();
+        rt.getMoviesReviewsCursor(1).publisher().subscribe(subscriber);
+        subscriber.request(Long.MAX_VALUE);
+        assertTrue("Stream did not finish", subscriber.awaitTerminated());
+        assertEquals("Wrong number of reviews", TOTAL, subscriber.items.size());
+        assertEquals("Wrong number of requests", PAGES, server.getRequestCount());
+        assertEquals("Stream should complete without error", null, subscriber.error);
+    }
+
+    /**
+     * A failed page should end the stream with the API exception
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFailedPage() throws Exception {
+        LOG.info("testFailedPage");
+        rt.setRetryPolicy(new ExponentialBackoffPolicy(10, 50, 0));
+        RecordingSubscriber<RTMovie> subscriber = new RecordingSubscriber<RTMovie>();
+        Publisher<RTMovie> publisher = rt.getMoviesSearchCursor(FAILING_QUERY).publisher();
+        publisher.subscribe(subscriber);
+        subscriber.request(Long.MAX_VALUE);
+        assertTrue("Stream did not finish", subscriber.awaitTerminated());
+        assertEquals("Wrong number of movies before the failure", (FAILING_PAGE - 1) * PAGE_LIMIT, subscriber.items.size());
+        assertTrue("Wrong exception class", subscriber.error instanceof RottenTomatoesException);
+        assertEquals("Wrong exception type", ApiExceptionType.HTTP_404_ERROR, ((RottenTomatoesException) subscriber.error).getExceptionType());
+    }
+
+    /**
+     * Run the Reactive Streams TCK publisher checks
+     */
+    @Test
+    public void testReactiveStreamsTck() {
+        LOG.info("testReactiveStreamsTck");
+        TestListenerAdapter results = new TestListenerAdapter();
+        TestNG testng = new TestNG();
+        testng.setUseDefaultListeners(false);
+        testng.setVerbose(0);
+        testng.setTestClasses(new Class<?>[]{PagePublisherVerification.class});
+        testng.addListener((ITestNGListener) results);
+        testng.run();
+
+        List<String> failures = new ArrayList<String>();
+        for (ITestResult result : results.getFailedTests()) {
+            failures.add(result.getName() + ": " + result.getThrowable());
+        }
+        LOG.info("TCK: {} passed, {} failed, {} skipped", results.getPassedTests().size(), failures.size(), results.getSkippedTests().size());
+        assertTrue("TCK failures: " + failures, failures.isEmpty());
+        assertTrue("TCK did not run", results.getPassedTests().size() > 0);
+    }
+
+    /**
+     * Record the signals and request on demand from the test
+     *
+     * @param <T>
+     */
+    private static class RecordingSubscriber<T> implements Subscriber<T> {
+
+        private final List<T> items = new CopyOnWriteArrayList<T>();
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private volatile Subscription subscription;
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            terminated.countDown();
+        }
+
+        void request(long n) {
+            subscription.request(n);
+        }
+
+        void awaitItems(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10000;
+            while (items.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+        }
+
+        boolean awaitTerminated() throws InterruptedException {
+            return terminated.await(10, TimeUnit.SECONDS);
+        }
+
+        boolean isTerminated() {
+            return terminated.getCount() == 0;
+        }
+    }
+
+    /**
+     * Serve pages of movies or reviews, failing one page of a search
+     */
+    private static class PagedHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            Map<String, String> query = new HashMap<String, String>();
+            for (String pair : exchange.getRequestURI().getRawQuery().split("&")) {
+                String[] parts = pair.split("=", 2);
+                query.put(parts[0], parts.length > 1 ? parts[1] : "");
+            }
+
+            int page = Integer.parseInt(query.get("page"));
+            int pageLimit = Integer.parseInt(query.get("page_limit"));
+            if (FAILING_QUERY.equals(query.get("q")) && page == FAILING_PAGE) {
+                StandInServer.sendJson(exchange, 404, "{\"error\":\"Page not found\"}");
+                return;
+            }
+
+            boolean reviews = exchange.getRequestURI().getPath().endsWith("/reviews.json");
+            StringBuilder json = new StringBuilder("{\"total\":").append(TOTAL);
+            json.append(reviews ? ",\"reviews\":[" : ",\"movies\":[");
+            int first = (page - 1) * pageLimit + 1;
+            int last = Math.min(TOTAL, page * pageLimit);
+            for (int id = first; id <= last; id++) {
+                if (id > first) {
+                    json.append(',');
+                }
+                if (reviews) {
+                    json.append("{\"critic\":\"Critic\",\"quote\":\"Quote ").append(id).append("\"}");
+                } else {
+                    json.append("{\"id\":").append(id).append(",\"title\":\"Movie ").append(id).append("\"}");
+                }
+            }
+            json.append("]}");
+            StandInServer.sendJson(exchange, 200, json.toString());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.omertron.rottentomatoesapi.tools.PageCursor;
+import com.omertron.rottentomatoesapi.wrapper.WrapperLists;
+import java.util.ArrayList;
+import java.util.List;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.tck.PublisherVerification;
+import org.reactivestreams.tck.TestEnvironment;
+
+/**
+ * The Reactive Streams TCK checks for the page publisher, over an in-memory
+ * list of movies
+ *
+ * This is a TestNG class, run by {@link PagePublisherTest}.
+ *
+ * @author Stuart
+ */
+public class PagePublisherVerification extends PublisherVerification<RTMovie> {
+
+    private static final long TIMEOUT_MS = 500;
+    private static final long MAX_ELEMENTS = 4096;
+
+    public PagePublisherVerification() {
+        super(new TestEnvironment(TIMEOUT_MS));
+    }
+
+    @Override
+    public Publisher<RTMovie> createPublisher(final long elements) {
+        final int total = (int) elements;
+        return new PageCursor<RTMovie>((page, pageLimit) -> {
+            WrapperLists wrapper = new WrapperLists();
+            List<RTMovie> movies = new ArrayList<RTMovie>(pageLimit);
+            for (int id = (page - 1) * pageLimit + 1; id <= Math.min(total, page * pageLimit); id++) {
+                RTMovie movie = new RTMovie();
+                movie.setId(id);
+                movies.add(movie);
+            }
+            wrapper.setMovies(movies);
+            wrapper.setTotal(total);
+            return wrapper;
+        }, WrapperLists::getMovies).publisher();
+    }
+
+    /**
+     * A page is not requested until there is demand, so a failure can not be
+     * signalled to a subscriber that has not requested anything and the
+     * checks that need it are skipped. The failure after a request is checked
+     * by {@link PagePublisherTest#testFailedPage()}.
+     *
+     * @return
+     */
+    @Override
+    public Publisher<RTMovie> createFailedPublisher() {
+        return null;
+    }
+
+    @Override
+    public long maxElementsFromPublisher() {
+        return MAX_ELEMENTS;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omertron.rottentomatoesapi.wrapper.WrapperLists;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compare the memory allocated by mapping a response from a String with
+ * mapping it straight from the response stream
+ *
+ * @author Stuart
+ */
+public class ParseAllocationTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParseAllocationTest.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int WARM_UP = 200;
+    private static final int ITERATIONS = 200;
+    private static com.sun.management.ThreadMXBean threadBean;
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestLogger.configure("INFO");
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            threadBean = (com.sun.management.ThreadMXBean) bean;
+        }
+    }
+
+    @Test
+    public void testMovieList() throws IOException {
+        LOG.info("testMovieList");
+        compare(Fixtures.IN_THEATERS);
+    }
+
+    @Test
+    public void testReviews() throws IOException {
+        LOG.info("testReviews");
+        compare(Fixtures.REVIEWS);
+    }
+
+    private void compare(String fixture) throws IOException {
+        Assume.assumeTrue("Thread allocation counting is not supported", threadBean != null && threadBean.isThreadAllocatedMemorySupported());
+        byte[] json = Fixtures.load(fixture);
+        WrapperLists fromString = parseString(json);
+        WrapperLists fromStream = parseStream(json);
+        assertEquals("Parsers disagree on the movies", fromString.getMovies().size(), fromStream.getMovies().size());
+        assertEquals("Parsers disagree on the reviews", fromString.getReviews().size(), fromStream.getReviews().size());
+
+        long stringBytes = measure(json, false);
+        long streamBytes = measure(json, true);
+        LOG.info("{} ({} bytes): String path allocates {} bytes per call, stream path allocates {} bytes per call",
+                fixture, json.length, stringBytes, streamBytes);
+        assertTrue("Streaming should allocate less than the String path", streamBytes < stringBytes);
+    }
+
+    /**
+     * Measure the bytes allocated per call
+     *
+     * @param json
+     * @param stream
+     * @return
+     * @throws IOException
+     */
+    private long measure(byte[] json, boolean stream) throws IOException {
+        for (int i = 0; i < WARM_UP; i++) {
+            parse(json, stream);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            parse(json, stream);
+        }
+        return (threadBean.getThreadAllocatedBytes(threadId) - before) / ITERATIONS;
+    }
+
+    private static WrapperLists parse(byte[] json, boolean stream) throws IOException {
+        return stream ? parseStream(json) : parseString(json);
+    }
+
+    /**
+     * The old path: decode the body to a String and then map the String
+     */
+    private static WrapperLists parseString(byte[] json) throws IOException {
+        HttpEntity entity = new ByteArrayEntity(json, ContentType.APPLICATION_JSON);
+        return MAPPER.readValue(EntityUtils.toString(entity, UTF8), WrapperLists.class);
+    }
+
+    /**
+     * The new path: map the bytes straight from the entity's stream
+     */
+    private static WrapperLists parseStream(byte[] json) throws IOException {
+        HttpEntity entity = new ByteArrayEntity(json, ContentType.APPLICATION_JSON);
+        return MAPPER.readValue(entity.getContent(), WrapperLists.class);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.omertron.rottentomatoesapi.tools.JsonReaders;
+import com.omertron.rottentomatoesapi.wrapper.WrapperLists;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compare the parsing throughput of the ObjectMapper, the cached readers and
+ * the Afterburner readers over the recorded fixtures
+ *
+ * @author Stuart
+ */
+public class ParseBenchmarkTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParseBenchmarkTest.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int WARM_UP = 500;
+    private static final int ITERATIONS = 1000;
+    private static byte[] movies;
+    private static byte[] reviews;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        TestLogger.configure("INFO");
+        movies = Fixtures.load(Fixtures.IN_THEATERS);
+        reviews = Fixtures.load(Fixtures.REVIEWS);
+    }
+
+    /**
+     * The Afterburner readers should map exactly the same values
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testAfterburnerMatches() throws IOException {
+        LOG.info("testAfterburnerMatches");
+        WrapperLists standard = JsonReaders.standard().forType(WrapperLists.class).readValue(movies);
+        WrapperLists afterburner = JsonReaders.afterburner().forType(WrapperLists.class).readValue(movies);
+
+        assertEquals("Wrong number of movies", standard.getMovies().size(), afterburner.getMovies().size());
+        for (int i = 0; i < standard.getMovies().size(); i++) {
+            RTMovie expected = standard.getMovies().get(i);
+            RTMovie actual = afterburner.getMovies().get(i);
+            assertEquals("Wrong ID", expected.getId(), actual.getId());
+            assertEquals("Wrong title", expected.getTitle(), actual.getTitle());
+            assertEquals("Wrong runtime", expected.getRuntime(), actual.getRuntime());
+            assertEquals("Wrong ratings", expected.getRatings(), actual.getRatings());
+            assertEquals("Wrong release dates", expected.getReleaseDates(), actual.getReleaseDates());
+            assertEquals("Wrong cast size", expected.getCast().size(), actual.getCast().size());
+        }
+        assertEquals("Wrong total", standard.getTotal(), afterburner.getTotal());
+    }
+
+    @Test
+    public void testThroughput() throws IOException {
+        LOG.info("testThroughput");
+        ObjectReader standard = JsonReaders.standard().forType(WrapperLists.class);
+        ObjectReader afterburner = JsonReaders.afterburner().forType(WrapperLists.class);
+
+        double mapperRate = measure("ObjectMapper.readValue", null);
+        double standardRate = measure("Cached reader", standard);
+        double afterburnerRate = measure("Afterburner reader", afterburner);
+        LOG.info("Cached reader is {}x, Afterburner is {}x the ObjectMapper throughput",
+                String.format("%.2f", standardRate / mapperRate), String.format("%.2f", afterburnerRate / mapperRate));
+        assertTrue("No throughput measured", mapperRate > 0 && standardRate > 0 && afterburnerRate > 0);
+    }
+
+    /**
+     * Measure the pages parsed per second
+     *
+     * @param name
+     * @param reader the reader to use, or null to use the ObjectMapper
+     * @return pages per second
+     * @throws IOException
+     */
+    private double measure(String name, ObjectReader reader) throws IOException {
+        for (int i = 0; i < WARM_UP; i++) {
+            parse(reader);
+        }
+
+        long start = System.nanoTime();
+        int count = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            count += parse(reader);
+        }
+        long elapsed = System.nanoTime() - start;
+        double rate = ITERATIONS * 2 * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        double mbPerSecond = ITERATIONS * (double) (movies.length + reviews.length) / (1024 * 1024) / (elapsed / (double) TimeUnit.SECONDS.toNanos(1));
+        LOG.info("{}: {} pages/s, {} MB/s ({} items)", name, String.format("%.0f", rate), String.format("%.1f", mbPerSecond), count);
+        return rate;
+    }
+
+    private static int parse(ObjectReader reader) throws IOException {
+        WrapperLists movieList;
+        WrapperLists reviewList;
+        if (reader == null) {
+            movieList = MAPPER.readValue(movies, WrapperLists.class);
+            reviewList = MAPPER.readValue(reviews, WrapperLists.class);
+        } else {
+            movieList = reader.readValue(movies);
+            reviewList = reader.readValue(reviews);
+        }
+        return movieList.getMovies().size() + reviewList.getReviews().size();
+    }
+}
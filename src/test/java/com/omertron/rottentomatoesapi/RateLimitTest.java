@@ -19,6 +19,9 @@
  */
 package com.omertron.rottentomatoesapi;
 
+import com.omertron.rottentomatoesapi.tools.RateLimiter;
+import java.io.IOException;
+import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -38,6 +41,12 @@ public class RateLimitTest {
     public static void setUpClass() throws RottenTomatoesException {
         TestLogger.configure("INFO");
         rt = new RottenTomatoesApi(API_KEY);
+        rt.setRateLimit(RateLimiter.DEFAULT_QPS);
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws IOException {
+        rt.close();
     }
 
     @Test
@@ -47,5 +56,6 @@ public class RateLimitTest {
             LOG.info("Test #{}", i);
             rt.getBoxOffice("us", 5);
         }
+        LOG.info("Rate limiter: {}", rt.getRateLimiter());
     }
 }
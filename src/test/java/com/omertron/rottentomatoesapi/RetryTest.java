@@ -0,0 +1,173 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.tools.ExponentialBackoffPolicy;
+import com.omertron.rottentomatoesapi.tools.RetryMetrics;
+import com.omertron.rottentomatoesapi.tools.RetryReason;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamj.api.common.exception.ApiExceptionType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Check which failures are retried, using a local stand-in server that fails
+ * the first few requests for each movie
+ *
+ * @author Stuart
+ */
+public class RetryTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RetryTest.class);
+    private static final String API_KEY = "retry-test-key";
+    private static final int RETRY_LIMIT = 2;
+    // Movie IDs for each of the failure types
+    private static final int SERVER_ERROR_ID = 1;
+    private static final int OVER_LIMIT_ID = 2;
+    private static final int DROPPED_ID = 3;
+    private static final int ALWAYS_FAILS_ID = 4;
+    private static final int NOT_FOUND_ID = 5;
+    private static final ConcurrentMap<String, AtomicInteger> REQUESTS = new ConcurrentHashMap<String, AtomicInteger>();
+    private static StandInServer server;
+    private static CloseableHttpClient httpClient;
+    private static RottenTomatoesApi rt;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        TestLogger.configure("INFO");
+        server = new StandInServer(new FailingHandler());
+        httpClient = server.createHttpClient();
+        rt = new RottenTomatoesApi(API_KEY, httpClient);
+        rt.setRetryPolicy(new ExponentialBackoffPolicy(10, 50, RETRY_LIMIT));
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws IOException {
+        LOG.info("{}", rt.getRetryMetrics());
+        httpClient.close();
+        server.stop();
+    }
+
+    @Test
+    public void testServerErrorRetried() throws RottenTomatoesException {
+        LOG.info("testServerErrorRetried");
+        long before = rt.getRetryMetrics().getRetries(RetryReason.SERVER_ERROR);
+        assertEquals("Wrong movie", SERVER_ERROR_ID, rt.getDetailedInfo(SERVER_ERROR_ID).getId());
+        assertEquals("Wrong number of requests", 3, requests(SERVER_ERROR_ID));
+        assertEquals("Wrong number of retries", 2, rt.getRetryMetrics().getRetries(RetryReason.SERVER_ERROR) - before);
+    }
+
+    @Test
+    public void testOverLimitRetried() throws RottenTomatoesException {
+        LOG.info("testOverLimitRetried");
+        assertEquals("Wrong movie", OVER_LIMIT_ID, rt.getDetailedInfo(OVER_LIMIT_ID).getId());
+        assertEquals("Wrong number of requests", 2, requests(OVER_LIMIT_ID));
+    }
+
+    @Test
+    public void testDroppedConnectionRetried() throws RottenTomatoesException {
+        LOG.info("testDroppedConnectionRetried");
+        long before = rt.getRetryMetrics().getRetries(RetryReason.CONNECTION_ERROR);
+        assertEquals("Wrong movie", DROPPED_ID, rt.getDetailedInfo(DROPPED_ID).getId());
+        assertEquals("Wrong number of requests", 2, requests(DROPPED_ID));
+        assertEquals("Wrong number of retries", 1, rt.getRetryMetrics().getRetries(RetryReason.CONNECTION_ERROR) - before);
+    }
+
+    @Test
+    public void testRetryLimit() {
+        LOG.info("testRetryLimit");
+        RetryMetrics metrics = rt.getRetryMetrics();
+        long before = metrics.getExhaustedCount();
+        try {
+            rt.getDetailedInfo(ALWAYS_FAILS_ID);
+            fail("Call should fail once the retries are used up");
+        } catch (RottenTomatoesException ex) {
+            assertEquals("Wrong exception type", ApiExceptionType.HTTP_503_ERROR, ex.getExceptionType());
+        }
+        assertEquals("Wrong number of requests", RETRY_LIMIT + 1, requests(ALWAYS_FAILS_ID));
+        assertEquals("Call not counted as exhausted", 1, metrics.getExhaustedCount() - before);
+    }
+
+    @Test
+    public void testNotFoundNotRetried() {
+        LOG.info("testNotFoundNotRetried");
+        try {
+            rt.getDetailedInfo(NOT_FOUND_ID);
+            fail("Call should fail");
+        } catch (RottenTomatoesException ex) {
+            assertEquals("Wrong exception type", ApiExceptionType.HTTP_404_ERROR, ex.getExceptionType());
+        }
+        assertEquals("Wrong number of requests", 1, requests(NOT_FOUND_ID));
+    }
+
+    private static int requests(int movieId) {
+        AtomicInteger count = REQUESTS.get(path(movieId));
+        return count == null ? 0 : count.get();
+    }
+
+    private static String path(int movieId) {
+        return "/api/public/v1.0/movies/" + movieId + ".json";
+    }
+
+    /**
+     * Fail the first requests for a movie in different ways
+     */
+    private static class FailingHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            REQUESTS.putIfAbsent(path, new AtomicInteger(0));
+            int request = REQUESTS.get(path).incrementAndGet();
+            String movie = "{\"id\":" + path.substring(path.lastIndexOf('/') + 1, path.indexOf(".json")) + "}";
+
+            if (path.equals(path(SERVER_ERROR_ID)) && request <= 2) {
+                StandInServer.sendJson(exchange, 503, "{\"error\":\"Service unavailable\"}");
+            } else if (path.equals(path(OVER_LIMIT_ID)) && request == 1) {
+                StandInServer.sendJson(exchange, 200, "{\"error\":\"Account Over Queries Per Second Limit\"}");
+            } else if (path.equals(path(DROPPED_ID)) && request == 1) {
+                // Promise a longer body than is sent, then drop the connection
+                exchange.sendResponseHeaders(200, 1000);
+                OutputStream out = exchange.getResponseBody();
+                out.write(movie.getBytes("UTF-8"));
+                out.flush();
+                out.close();
+            } else if (path.equals(path(ALWAYS_FAILS_ID))) {
+                StandInServer.sendJson(exchange, 500, "{\"error\":\"Internal error\"}");
+            } else if (path.equals(path(NOT_FOUND_ID))) {
+                StandInServer.sendJson(exchange, 404, "{\"error\":\"Not found\"}");
+            } else {
+                StandInServer.sendJson(exchange, 200, movie);
+            }
+        }
+    }
+}
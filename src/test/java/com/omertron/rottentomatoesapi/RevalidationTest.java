@@ -0,0 +1,161 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.omertron.rottentomatoesapi.tools.EndpointFamily;
+import com.omertron.rottentomatoesapi.tools.ResponseCache;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Check that expired cache entries are revalidated with conditional requests
+ * against a stand-in server
+ *
+ * @author Stuart
+ */
+public class RevalidationTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RevalidationTest.class);
+    private static final String API_KEY = "revalidation-test-key";
+    private static final String ETAG = "\"v1\"";
+    private static final String LAST_MODIFIED = "Wed, 01 Jun 2016 10:00:00 GMT";
+    private static final int ETAG_ID = 1;
+    private static final int LAST_MODIFIED_ID = 2;
+    private static final long TTL_MS = 50;
+    private static final AtomicInteger FULL_RESPONSES = new AtomicInteger();
+    private static final AtomicInteger NOT_MODIFIED_RESPONSES = new AtomicInteger();
+    private StandInServer server;
+    private CloseableHttpClient httpClient;
+    private ResponseCache cache;
+    private RottenTomatoesApi rt;
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestLogger.configure("INFO");
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        FULL_RESPONSES.set(0);
+        NOT_MODIFIED_RESPONSES.set(0);
+        server = new StandInServer(new ConditionalHandler());
+        httpClient = server.createHttpClient();
+        cache = new ResponseCache();
+        cache.setTtl(EndpointFamily.MOVIE_INFO, TTL_MS, TimeUnit.MILLISECONDS);
+        rt = new RottenTomatoesApi(API_KEY, httpClient);
+        rt.setResponseCache(cache);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        httpClient.close();
+        server.stop();
+    }
+
+    @Test
+    public void testEtag() throws Exception {
+        LOG.info("testEtag");
+        checkRevalidated(ETAG_ID);
+    }
+
+    @Test
+    public void testLastModified() throws Exception {
+        LOG.info("testLastModified");
+        checkRevalidated(LAST_MODIFIED_ID);
+    }
+
+    /**
+     * Responses without validators are fetched in full when they expire
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testNoValidators() throws Exception {
+        LOG.info("testNoValidators");
+        RTMovie first = rt.getDetailedInfo(3);
+        Thread.sleep(TTL_MS * 2);
+        RTMovie second = rt.getDetailedInfo(3);
+
+        assertNotSame("Response should have been fetched again", first, second);
+        assertEquals("Wrong number of full responses", 2, FULL_RESPONSES.get());
+        assertEquals("Wrong number of 304 responses", 0, NOT_MODIFIED_RESPONSES.get());
+    }
+
+    private void checkRevalidated(int movieId) throws Exception {
+        RTMovie first = rt.getDetailedInfo(movieId);
+        Thread.sleep(TTL_MS * 2);
+        RTMovie second = rt.getDetailedInfo(movieId);
+        // The revalidated entry is fresh again
+        RTMovie third = rt.getDetailedInfo(movieId);
+        LOG.info("{}", cache);
+
+        assertSame("Parsed response should be reused", first, second);
+        assertSame("Revalidated response should be cached", first, third);
+        assertEquals("Wrong number of full responses", 1, FULL_RESPONSES.get());
+        assertEquals("Wrong number of 304 responses", 1, NOT_MODIFIED_RESPONSES.get());
+        assertEquals("Wrong number of requests", 2, server.getRequestCount());
+        assertEquals("Wrong revalidated count", 1, cache.getRevalidatedCount());
+    }
+
+    /**
+     * Movie 1 has an ETag, movie 2 has a Last-Modified date and the other
+     * movies have no validators
+     */
+    private static class ConditionalHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            int id = Integer.parseInt(path.substring(path.lastIndexOf('/') + 1, path.indexOf(".json")));
+
+            boolean unchanged = false;
+            if (id == ETAG_ID) {
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                unchanged = ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"));
+            } else if (id == LAST_MODIFIED_ID) {
+                exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+                unchanged = LAST_MODIFIED.equals(exchange.getRequestHeaders().getFirst("If-Modified-Since"));
+            }
+
+            if (unchanged) {
+                NOT_MODIFIED_RESPONSES.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+            } else {
+                FULL_RESPONSES.incrementAndGet();
+                StandInServer.sendJson(exchange, 200, "{\"id\":" + id + ",\"title\":\"Movie " + id + "\"}");
+            }
+        }
+    }
+}
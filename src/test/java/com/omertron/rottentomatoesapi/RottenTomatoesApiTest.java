@@ -23,9 +23,11 @@ import com.omertron.rottentomatoesapi.model.RTCast;
 import com.omertron.rottentomatoesapi.model.RTClip;
 import com.omertron.rottentomatoesapi.model.RTMovie;
 import com.omertron.rottentomatoesapi.model.Review;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
+import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -60,6 +62,11 @@ public class RottenTomatoesApiTest {
         rt = new RottenTomatoesApi(API_KEY);
     }
 
+    @AfterClass
+    public static void tearDownClass() throws IOException {
+        rt.close();
+    }
+
     /**
      * Test of getBoxOffice method, of class RottenTomatoesApi.
      *
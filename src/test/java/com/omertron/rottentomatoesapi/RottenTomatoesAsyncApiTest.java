@@ -0,0 +1,139 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamj.api.common.exception.ApiExceptionType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RottenTomatoesAsyncApiTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RottenTomatoesAsyncApiTest.class);
+    private static final String API_KEY = "async-test-key";
+    private static final Pattern MOVIE_PATH = Pattern.compile("/movies/(\\d+)\\.json");
+    private static final int MISSING_ID = 404;
+    private static final long SERVER_DELAY_MS = 200;
+    private static final int LOOKUPS = 30;
+    private static StandInServer server;
+    private static CloseableHttpClient httpClient;
+    private static ExecutorService executor;
+    private static RottenTomatoesAsyncApi rt;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        TestLogger.configure("INFO");
+        server = new StandInServer(new SlowMovieHandler());
+        httpClient = server.createHttpClient();
+        executor = Executors.newFixedThreadPool(LOOKUPS);
+        rt = new RottenTomatoesAsyncApi(API_KEY, httpClient, executor);
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws IOException {
+        executor.shutdownNow();
+        httpClient.close();
+        server.stop();
+    }
+
+    /**
+     * The lookups should run in parallel, taking about as long as one lookup
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFanOut() throws Exception {
+        LOG.info("testFanOut");
+        long start = System.nanoTime();
+        List<CompletableFuture<RTMovie>> futures = new ArrayList<CompletableFuture<RTMovie>>();
+        for (int id = 1; id <= LOOKUPS; id++) {
+            futures.add(rt.getDetailedInfo(id));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).get(30, TimeUnit.SECONDS);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOG.info("{} lookups took {}ms", LOOKUPS, elapsed);
+
+        for (int id = 1; id <= LOOKUPS; id++) {
+            assertEquals("Wrong movie returned", id, futures.get(id - 1).get().getId());
+        }
+        assertTrue("Lookups did not run in parallel", elapsed < LOOKUPS * SERVER_DELAY_MS / 2);
+    }
+
+    /**
+     * A failed call should fail the future with the API exception
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFailedFuture() throws Exception {
+        LOG.info("testFailedFuture");
+        CompletableFuture<RTMovie> future = rt.getDetailedInfo(MISSING_ID);
+        try {
+            future.get(30, TimeUnit.SECONDS);
+            fail("Missing movie should fail the future");
+        } catch (ExecutionException ex) {
+            assertTrue("Wrong exception class", ex.getCause() instanceof RottenTomatoesException);
+            assertEquals("Wrong exception type", ApiExceptionType.HTTP_404_ERROR, ((RottenTomatoesException) ex.getCause()).getExceptionType());
+        }
+        assertTrue("Future should be exceptional", future.isCompletedExceptionally());
+    }
+
+    /**
+     * Return a movie with the requested ID after a short delay
+     */
+    private static class SlowMovieHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                Thread.sleep(SERVER_DELAY_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            Matcher matcher = MOVIE_PATH.matcher(exchange.getRequestURI().getPath());
+            if (!matcher.find() || Integer.parseInt(matcher.group(1)) == MISSING_ID) {
+                StandInServer.sendJson(exchange, 404, "{\"error\":\"Could not find a movie with the specified id\"}");
+            } else {
+                StandInServer.sendJson(exchange, 200, "{\"id\":" + matcher.group(1) + ",\"title\":\"Movie " + matcher.group(1) + "\"}");
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.routing.HttpRoutePlanner;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * A local stand-in for the Rotten Tomatoes API server
+ *
+ * The HTTP client returned by {@link #createHttpClient()} routes every request
+ * to this server, whatever host the URL names, so the API can be exercised
+ * without network access.
+ *
+ * @author Stuart
+ */
+public class StandInServer {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String LOCALHOST = "127.0.0.1";
+    private static final int MAX_CONNECTIONS = 100;
+    private static final int BACKLOG = 1024;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicInteger requestCount = new AtomicInteger(0);
+    private final AtomicInteger active = new AtomicInteger(0);
+    private final AtomicInteger maxActive = new AtomicInteger(0);
+
+    public StandInServer(final HttpHandler handler) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(LOCALHOST, 0), BACKLOG);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                try {
+                    handler.handle(exchange);
+                } finally {
+                    exchange.close();
+                    active.decrementAndGet();
+                }
+            }
+        });
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * The number of requests the server has received
+     *
+     * @return
+     */
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * The most requests the server has been handling at the same time since
+     * it started or was last reset
+     *
+     * @return
+     */
+    public int getMaxActive() {
+        return maxActive.get();
+    }
+
+    public void resetMaxActive() {
+        maxActive.set(0);
+    }
+
+    /**
+     * Create a HTTP client that sends all requests to this server
+     *
+     * @return
+     */
+    public CloseableHttpClient createHttpClient() {
+        final HttpHost target = new HttpHost(LOCALHOST, getPort());
+        return HttpClients.custom()
+                .setRoutePlanner(new HttpRoutePlanner() {
+                    @Override
+                    public HttpRoute determineRoute(HttpHost host, HttpRequest request, HttpContext context) throws HttpException {
+                        return new HttpRoute(target);
+                    }
+                })
+                .setMaxConnTotal(MAX_CONNECTIONS)
+                .setMaxConnPerRoute(MAX_CONNECTIONS)
+                .build();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Send a JSON body back to the client
+     *
+     * @param exchange
+     * @param status
+     * @param json
+     * @throws IOException
+     */
+    public static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(UTF8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(body);
+        } finally {
+            out.close();
+        }
+    }
+}
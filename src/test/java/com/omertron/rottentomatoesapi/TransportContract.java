@@ -0,0 +1,239 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi;
+
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.omertron.rottentomatoesapi.tools.ExponentialBackoffPolicy;
+import com.omertron.rottentomatoesapi.tools.HttpTransport;
+import com.omertron.rottentomatoesapi.tools.TransportConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yamj.api.common.exception.ApiExceptionType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The checks every HTTP transport must pass, run against the stand-in server
+ * which is used as a proxy so the requests keep their real host
+ *
+ * @author Stuart
+ */
+public abstract class TransportContract {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TransportContract.class);
+    private static final String API_KEY = "transport-test-key";
+    private static final String LOCALHOST = "127.0.0.1";
+    private static final Pattern MOVIE_PATH = Pattern.compile("/movies/(\\d+)\\.json");
+    private static final int MISSING_ID = 404;
+    private static final int FAILING_ID = 503;
+    private static final int THREADS = 16;
+    private static final int CALLS = 96;
+    private static final long SERVER_DELAY_MS = 10;
+    private static byte[] inTheaters;
+    private StandInServer server;
+    private ContractHandler handler;
+    private RottenTomatoesApi rt;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        TestLogger.configure("INFO");
+        inTheaters = Fixtures.load(Fixtures.IN_THEATERS);
+    }
+
+    /**
+     * Create the transport to check
+     *
+     * @param config the settings, including the stand-in server as the proxy
+     * @return
+     * @throws Exception
+     */
+    protected abstract HttpTransport createTransport(TransportConfig config) throws Exception;
+
+    /**
+     * Release the transport after each test
+     *
+     * @throws Exception
+     */
+    protected abstract void closeTransport() throws Exception;
+
+    @Before
+    public void setUp() throws Exception {
+        handler = new ContractHandler();
+        server = new StandInServer(handler);
+        rt = new RottenTomatoesApi(API_KEY, createTransport(new TransportConfig().setProxy(LOCALHOST, server.getPort())));
+        rt.setRetryPolicy(new ExponentialBackoffPolicy(10, 50, 2));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        rt.close();
+        closeTransport();
+        server.stop();
+    }
+
+    /**
+     * A list response should be requested with the right headers, decoded
+     * and mapped
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCompressedList() throws Exception {
+        LOG.info("testCompressedList");
+        List<RTMovie> movies = rt.getInTheaters();
+        assertEquals("Wrong number of movies", 50, movies.size());
+        assertEquals("Wrong accept header", "application/json", handler.accept);
+        assertEquals("Wrong accept encoding header", "gzip, deflate", handler.acceptEncoding);
+        assertEquals("Response was not decoded", inTheaters.length, rt.getTransferMetrics().getDecodedBytes());
+        assertTrue("Response was not compressed", rt.getTransferMetrics().getWireBytes() < inTheaters.length);
+    }
+
+    /**
+     * A missing movie should fail with the body of the error response
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testNotFound() throws Exception {
+        LOG.info("testNotFound");
+        try {
+            rt.getDetailedInfo(MISSING_ID);
+            fail("Missing movie should fail");
+        } catch (RottenTomatoesException ex) {
+            assertEquals("Wrong exception type", ApiExceptionType.HTTP_404_ERROR, ex.getExceptionType());
+            assertTrue("Missing error body", ex.getResponse().contains("Could not find"));
+        }
+        assertEquals("Missing movie should not be retried", 1, server.getRequestCount());
+    }
+
+    /**
+     * A server error should be retried
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testServerErrorRetried() throws Exception {
+        LOG.info("testServerErrorRetried");
+        RTMovie movie = rt.getDetailedInfo(FAILING_ID);
+        assertEquals("Wrong movie returned", FAILING_ID, movie.getId());
+        assertEquals("Server error was not retried", 2, server.getRequestCount());
+    }
+
+    /**
+     * Time many concurrent calls so the transports can be compared
+     *
+     * The time is only logged, the server checks that the calls overlapped.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBenchmark() throws Exception {
+        LOG.info("testBenchmark");
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<RTMovie>> calls = new ArrayList<Future<RTMovie>>(CALLS);
+            long start = System.nanoTime();
+            for (int i = 1; i <= CALLS; i++) {
+                final int id = i;
+                calls.add(executor.submit(() -> rt.getDetailedInfo(id)));
+            }
+            for (int i = 1; i <= CALLS; i++) {
+                assertEquals("Wrong movie returned", i, calls.get(i - 1).get(60, TimeUnit.SECONDS).getId());
+            }
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            int overlapping = server.getMaxActive();
+            LOG.info("{}: {} calls from {} threads took {}ms, with up to {} at once", getClass().getSimpleName(), CALLS, THREADS, elapsed, overlapping);
+            assertTrue("Calls did not run concurrently: " + overlapping + " at once", overlapping > 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Serve the in theaters fixture and single movies, compressing the
+     * responses when the client accepts it
+     */
+    private static class ContractHandler implements HttpHandler {
+
+        private final AtomicInteger failures = new AtomicInteger(0);
+        private volatile String accept;
+        private volatile String acceptEncoding;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            accept = exchange.getRequestHeaders().getFirst("Accept");
+            acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            try {
+                Thread.sleep(SERVER_DELAY_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            Matcher matcher = MOVIE_PATH.matcher(path);
+            if (path.contains("in_theaters")) {
+                sendGzip(exchange, inTheaters);
+            } else if (!matcher.find() || Integer.parseInt(matcher.group(1)) == MISSING_ID) {
+                StandInServer.sendJson(exchange, 404, "{\"error\":\"Could not find a movie with the specified id\"}");
+            } else if (Integer.parseInt(matcher.group(1)) == FAILING_ID && failures.getAndIncrement() == 0) {
+                StandInServer.sendJson(exchange, 503, "{\"error\":\"Service unavailable\"}");
+            } else {
+                StandInServer.sendJson(exchange, 200, "{\"id\":" + matcher.group(1) + ",\"title\":\"Movie " + matcher.group(1) + "\"}");
+            }
+        }
+
+        private void sendGzip(HttpExchange exchange, byte[] json) throws IOException {
+            byte[] body = json;
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (OutputStream out = new GZIPOutputStream(bytes)) {
+                    out.write(json);
+                }
+                body = bytes.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * The compact collections are read only whatever their size
+ *
+ * @author Stuart
+ */
+public class CompactCollectionsTest {
+
+    private static final int[] SIZES = {1, 2, CompactCollections.MAX_ARRAY_SIZE, CompactCollections.MAX_ARRAY_SIZE + 1, 100};
+
+    @Test
+    public void testMapsAreReadOnly() {
+        for (int size : SIZES) {
+            Map<String, String> source = new HashMap<String, String>();
+            for (int i = 0; i < size; i++) {
+                source.put("key" + i, "value" + i);
+            }
+            Map<String, String> compact = CompactCollections.compactMap(source);
+            assertEquals("Wrong contents for size " + size, source, compact);
+            try {
+                compact.put("extra", "value");
+                fail("Map of size " + size + " should be read only");
+            } catch (UnsupportedOperationException ex) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testSetsAreReadOnly() {
+        for (int size : SIZES) {
+            Set<String> source = new HashSet<String>();
+            for (int i = 0; i < size; i++) {
+                source.add("value" + i);
+            }
+            Set<String> compact = CompactCollections.compactSet(source);
+            assertEquals("Wrong contents for size " + size, source, compact);
+            try {
+                compact.add("extra");
+                fail("Set of size " + size + " should be read only");
+            } catch (UnsupportedOperationException ex) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testListsAreReadOnly() {
+        for (int size : SIZES) {
+            List<String> source = new ArrayList<String>();
+            for (int i = 0; i < size; i++) {
+                source.add("value" + i);
+            }
+            List<String> compact = CompactCollections.compactList(source);
+            assertEquals("Wrong contents for size " + size, source, compact);
+            assertSame("Compacting again should not wrap", compact, CompactCollections.compactList(compact));
+            try {
+                compact.add("extra");
+                fail("List of size " + size + " should be read only");
+            } catch (UnsupportedOperationException ex) {
+                // Expected
+            }
+        }
+    }
+}
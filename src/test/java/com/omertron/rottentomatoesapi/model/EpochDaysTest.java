@@ -0,0 +1,95 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omertron.rottentomatoesapi.Fixtures;
+import com.omertron.rottentomatoesapi.TestLogger;
+import com.omertron.rottentomatoesapi.wrapper.WrapperLists;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EpochDaysTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EpochDaysTest.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestLogger.configure("INFO");
+    }
+
+    @Test
+    public void testParse() {
+        LOG.info("testParse");
+        assertEquals("Wrong epoch", 0, EpochDays.parse("1970-01-01"));
+        assertEquals("Wrong day", LocalDate.of(2016, 2, 29).toEpochDay(), EpochDays.parse("2016-02-29"));
+        assertEquals("Dates before 1970 are negative", -1, EpochDays.parse("1969-12-31"));
+        assertEquals("Null should be missing", EpochDays.MISSING, EpochDays.parse(null));
+        assertEquals("Empty should be missing", EpochDays.MISSING, EpochDays.parse(""));
+        assertEquals("Bad format should be missing", EpochDays.MISSING, EpochDays.parse("2016/02/29"));
+        assertEquals("Bad digits should be missing", EpochDays.MISSING, EpochDays.parse("2016-0x-29"));
+        assertEquals("Bad day should be missing", EpochDays.MISSING, EpochDays.parse("2015-02-29"));
+        assertNull("Missing should have no date", EpochDays.toLocalDate(EpochDays.MISSING));
+        assertEquals("Wrong date", LocalDate.of(2016, 11, 3), EpochDays.toLocalDate(EpochDays.parse("2016-11-03")));
+    }
+
+    /**
+     * The models should decode the dates when they are mapped
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMappedDates() throws Exception {
+        LOG.info("testMappedDates");
+        List<RTMovie> movies = MAPPER.readValue(Fixtures.load(Fixtures.IN_THEATERS), WrapperLists.class).getMovies();
+        for (RTMovie movie : movies) {
+            assertEquals("Wrong theater day", LocalDate.parse(movie.getReleaseDates().get(RTMovie.RELEASE_THEATER)).toEpochDay(), movie.getTheaterReleaseDay());
+            assertEquals("Wrong DVD day", LocalDate.parse(movie.getReleaseDates().get(RTMovie.RELEASE_DVD)).toEpochDay(), movie.getDvdReleaseDay());
+        }
+
+        List<Review> reviews = MAPPER.readValue(Fixtures.load(Fixtures.REVIEWS), WrapperLists.class).getReviews();
+        for (Review review : reviews) {
+            assertEquals("Wrong review day", LocalDate.parse(review.getDate()).toEpochDay(), review.getDateDay());
+        }
+
+        RTMovie movie = new RTMovie();
+        assertEquals("New movie should have no date", EpochDays.MISSING, movie.getDvdReleaseDay());
+        assertFalse("Missing date is never in a window", EpochDays.isBetween(movie.getDvdReleaseDay(), Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testWindow() {
+        LOG.info("testWindow");
+        int from = EpochDays.parse("2016-10-01");
+        int to = from + 14;
+        assertTrue("First day is in the window", EpochDays.isBetween(from, from, to));
+        assertTrue("Last day is in the window", EpochDays.isBetween(EpochDays.parse("2016-10-15"), from, to));
+        assertFalse("Day after is not in the window", EpochDays.isBetween(EpochDays.parse("2016-10-16"), from, to));
+    }
+}
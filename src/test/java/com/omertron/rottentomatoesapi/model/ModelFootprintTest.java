@@ -0,0 +1,173 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omertron.rottentomatoesapi.Fixtures;
+import com.omertron.rottentomatoesapi.HeapMeter;
+import com.omertron.rottentomatoesapi.TestLogger;
+import com.omertron.rottentomatoesapi.wrapper.WrapperLists;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measure the heap used by the model objects
+ *
+ * @author Stuart
+ */
+public class ModelFootprintTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ModelFootprintTest.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int COPIES = 200;
+    private static final int EMPTY_MOVIES = 100000;
+    private static List<RTMovie> fixtureMovies;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        TestLogger.configure("INFO");
+        fixtureMovies = MAPPER.readValue(Fixtures.load(Fixtures.IN_THEATERS), WrapperLists.class).getMovies();
+    }
+
+    @Test
+    public void testEmptyObjectsShareCollections() {
+        LOG.info("testEmptyObjectsShareCollections");
+        RTMovie first = new RTMovie();
+        RTMovie second = new RTMovie();
+        assertSame("Empty maps should be shared", first.getRatings(), second.getLinks());
+        assertSame("Empty sets should be shared", first.getGenres(), second.getCast());
+        assertSame("Empty lists should be shared", new WrapperLists().getMovies(), new WrapperLists().getReviews());
+    }
+
+    @Test
+    public void testParsedCollections() {
+        LOG.info("testParsedCollections");
+        RTMovie movie = fixtureMovies.get(0);
+        assertEquals("Wrong number of ratings", 4, movie.getRatings().size());
+        assertEquals("Wrong rating", movie.getRatings().get("critics_score"), new HashMap<String, String>(movie.getRatings()).get("critics_score"));
+        assertEquals("Wrong number of cast", 5, movie.getCast().size());
+        assertTrue("Cast lookup failed", movie.getCast().contains(movie.getCast().iterator().next()));
+        assertEquals("Maps should be equal to a HashMap copy", new HashMap<String, String>(movie.getArtwork()), movie.getArtwork());
+        assertEquals("Sets should be equal to a HashSet copy", new HashSet<RTCast>(movie.getCast()), movie.getCast());
+    }
+
+    /**
+     * Log the bytes per movie, and compare with the movies holding the same
+     * data in HashMaps and HashSets as they did before
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBytesPerMovie() throws Exception {
+        LOG.info("testBytesPerMovie");
+        final byte[] json = Fixtures.load(Fixtures.IN_THEATERS);
+        final int perPage = fixtureMovies.size();
+
+        long empty = HeapMeter.bytesPerObject(EMPTY_MOVIES, new HeapMeter.Factory() {
+            @Override
+            public Object create(int index) {
+                return new RTMovie();
+            }
+        });
+
+        long compact = HeapMeter.bytesPerObject(COPIES, new HeapMeter.Factory() {
+            @Override
+            public Object create(int index) throws Exception {
+                return MAPPER.readValue(json, WrapperLists.class).getMovies();
+            }
+        }) / perPage;
+
+        long hashed = HeapMeter.bytesPerObject(COPIES, new HeapMeter.Factory() {
+            @Override
+            public Object create(int index) throws Exception {
+                List<RTMovie> movies = MAPPER.readValue(json, WrapperLists.class).getMovies();
+                for (RTMovie movie : movies) {
+                    expand(movie);
+                }
+                return movies;
+            }
+        }) / perPage;
+
+        LOG.info("Empty RTMovie: {} bytes, parsed RTMovie: {} bytes, parsed with hash collections: {} bytes", empty, compact, hashed);
+        assertTrue("Empty movie is too large: " + empty, empty < 150);
+        assertTrue("Compact collections should use less heap", compact < hashed);
+    }
+
+    /**
+     * Compare the heap used by a catalogue of movies with and without the
+     * shared string dictionary
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCompactMode() throws Exception {
+        LOG.info("testCompactMode");
+        final byte[] json = Fixtures.load(Fixtures.CATALOG);
+        HeapMeter.Factory catalog = new HeapMeter.Factory() {
+            @Override
+            public Object create(int index) throws Exception {
+                return MAPPER.readValue(json, WrapperLists.class).getMovies();
+            }
+        };
+
+        int perPage = MAPPER.readValue(json, WrapperLists.class).getMovies().size();
+        long standard = HeapMeter.bytesPerObject(COPIES, catalog) / perPage;
+        long compact;
+        StringDictionary.setEnabled(true);
+        try {
+            compact = HeapMeter.bytesPerObject(COPIES, catalog) / perPage;
+        } finally {
+            StringDictionary.setEnabled(false);
+        }
+
+        LOG.info("Catalogue RTMovie: {} bytes, with the string dictionary: {} bytes, dictionary holds {} strings",
+                standard, compact, StringDictionary.size());
+        assertTrue("Compact mode should use less heap", compact < standard);
+    }
+
+    /**
+     * Put the movie's collections back into hash based collections, as they
+     * were held before
+     *
+     * @param movie
+     */
+    private static void expand(RTMovie movie) throws Exception {
+        for (Field field : RTMovie.class.getDeclaredFields()) {
+            field.setAccessible(true);
+            Object value = field.get(movie);
+            if (value instanceof Map) {
+                field.set(movie, new HashMap<Object, Object>((Map<?, ?>) value));
+            } else if (value instanceof Set) {
+                field.set(movie, new HashSet<Object>((Set<?>) value));
+            }
+        }
+    }
+}
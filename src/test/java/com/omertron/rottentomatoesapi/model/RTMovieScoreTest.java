@@ -0,0 +1,133 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omertron.rottentomatoesapi.Fixtures;
+import com.omertron.rottentomatoesapi.TestLogger;
+import com.omertron.rottentomatoesapi.wrapper.WrapperLists;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RTMovieScoreTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RTMovieScoreTest.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int COPIES = 4000;
+    private static List<RTMovie> fixtureMovies;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        TestLogger.configure("INFO");
+        fixtureMovies = MAPPER.readValue(Fixtures.load(Fixtures.IN_THEATERS), WrapperLists.class).getMovies();
+    }
+
+    /**
+     * The parsed scores should match the ratings map
+     */
+    @Test
+    public void testParsedScores() {
+        LOG.info("testParsedScores");
+        for (RTMovie movie : fixtureMovies) {
+            assertEquals("Wrong critics score", Integer.parseInt(movie.getRatings().get(RTMovie.SCORE_CRITICS)), movie.getCriticsScore());
+            assertEquals("Wrong audience score", Integer.parseInt(movie.getRatings().get(RTMovie.SCORE_AUDIENCE)), movie.getAudienceScore());
+            assertTrue("Score should be present", movie.hasCriticsScore());
+        }
+    }
+
+    /**
+     * Missing, negative and invalid scores should be absent
+     */
+    @Test
+    public void testAbsentScores() {
+        LOG.info("testAbsentScores");
+        RTMovie movie = new RTMovie();
+        assertEquals("New movie should have no score", RTMovie.SCORE_ABSENT, movie.getCriticsScore());
+        assertFalse("New movie should have no score", movie.hasAudienceScore());
+
+        Map<String, String> ratings = new HashMap<String, String>();
+        ratings.put(RTMovie.SCORE_CRITICS, "-1");
+        ratings.put(RTMovie.SCORE_AUDIENCE, "n/a");
+        movie.setRatings(ratings);
+        assertEquals("Negative score should be absent", RTMovie.SCORE_ABSENT, movie.getCriticsScore());
+        assertEquals("Invalid score should be absent", RTMovie.SCORE_ABSENT, movie.getAudienceScore());
+        assertEquals("Ratings should be kept", "-1", movie.getRatings().get(RTMovie.SCORE_CRITICS));
+
+        ratings.put(RTMovie.SCORE_CRITICS, "0");
+        movie.setRatings(ratings);
+        assertTrue("Zero is a valid score", movie.hasCriticsScore());
+    }
+
+    /**
+     * Sorting by score should put the highest first and the absent last
+     * without allocating
+     */
+    @Test
+    public void testSortByScore() {
+        LOG.info("testSortByScore");
+        RTMovie[] movies = new RTMovie[COPIES * fixtureMovies.size() + 1];
+        for (int i = 0; i < movies.length - 1; i++) {
+            movies[i] = fixtureMovies.get(i % fixtureMovies.size());
+        }
+        movies[movies.length - 1] = new RTMovie();
+
+        List<RTMovie> sorted = new ArrayList<RTMovie>(fixtureMovies);
+        Collections.sort(sorted, RTMovie.BY_CRITICS_SCORE);
+        for (int i = 1; i < sorted.size(); i++) {
+            assertTrue("Wrong order", sorted.get(i - 1).getCriticsScore() >= sorted.get(i).getCriticsScore());
+        }
+
+        com.sun.management.ThreadMXBean threads = threadBean();
+        Assume.assumeTrue("Allocation counter not available", threads != null);
+        long tid = Thread.currentThread().getId();
+        // Compare every pair of neighbours, which is what a sort does at most
+        int checksum = 0;
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 1; i < movies.length; i++) {
+            checksum += RTMovie.BY_CRITICS_SCORE.compare(movies[i - 1], movies[i]);
+            checksum += RTMovie.BY_AUDIENCE_SCORE.compare(movies[i - 1], movies[i]);
+        }
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+        LOG.info("{} comparisons allocated {} bytes (checksum {})", 2 * (movies.length - 1), allocated, checksum);
+        assertTrue("Comparing scores should not allocate: " + allocated, allocated < 1024);
+
+        assertTrue("Absent score should sort last", RTMovie.BY_CRITICS_SCORE.compare(movies[0], movies[movies.length - 1]) < 0);
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return (com.sun.management.ThreadMXBean) bean;
+        }
+        return null;
+    }
+}
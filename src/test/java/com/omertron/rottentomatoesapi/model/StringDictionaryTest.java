@@ -0,0 +1,123 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.model;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class StringDictionaryTest {
+
+    @After
+    public void tearDown() {
+        StringDictionary.setEnabled(false);
+        StringDictionary.clear();
+    }
+
+    @Test
+    public void testDisabled() {
+        String value = new String("Drama");
+        assertSame("Disabled dictionary should not change values", value, StringDictionary.intern(value));
+    }
+
+    @Test
+    public void testShared() {
+        StringDictionary.setEnabled(true);
+        String first = StringDictionary.intern(new String("Universal Pictures"));
+        String second = StringDictionary.intern(new String("Universal Pictures"));
+        assertSame("Values should be shared", first, second);
+        assertSame("Enum labels should be used", MpaaRating.PG_13.getLabel(), StringDictionary.intern(new String("PG-13")));
+
+        Set<String> genres = new HashSet<String>();
+        genres.add(new String("Drama"));
+        assertSame("Set values should be shared", StringDictionary.intern("Drama"), StringDictionary.internAll(genres).iterator().next());
+
+        Map<String, String> ratings = new LinkedHashMap<String, String>();
+        ratings.put(RTMovie.RATING_CRITICS, new String("Certified Fresh"));
+        assertSame("Map values should be shared", RatingLabel.CERTIFIED_FRESH.getLabel(), StringDictionary.internValues(ratings).get(RTMovie.RATING_CRITICS));
+    }
+
+    @Test
+    public void testModelSetters() {
+        StringDictionary.setEnabled(true);
+        RTMovie first = new RTMovie();
+        RTMovie second = new RTMovie();
+        first.setStudio(new String("Focus Features"));
+        second.setStudio(new String("Focus Features"));
+        assertSame("Studio should be shared", first.getStudio(), second.getStudio());
+
+        first.setMpaaRating(new String("R"));
+        first.setRatings(Collections.singletonMap(RTMovie.RATING_AUDIENCE, "Spilled"));
+        assertEquals("Wrong MPAA rating", MpaaRating.R, first.getMpaaRatingType());
+        assertSame("MPAA rating should be the enum label", MpaaRating.R.getLabel(), first.getMpaaRating());
+        assertEquals("Wrong audience rating", RatingLabel.SPILLED, first.getAudienceRating());
+        assertEquals("Missing critics rating", RatingLabel.UNKNOWN, first.getCriticsRating());
+
+        Review review = new Review();
+        review.setFreshness(new String("fresh"));
+        assertSame("Freshness should be the enum label", Freshness.FRESH.getLabel(), review.getFreshness());
+        assertEquals("Wrong freshness", Freshness.FRESH, review.getFreshnessType());
+    }
+
+    @Test
+    public void testUnknownLabels() {
+        assertEquals(MpaaRating.UNKNOWN, MpaaRating.fromLabel("X"));
+        assertEquals(MpaaRating.UNKNOWN, MpaaRating.fromLabel(null));
+        assertEquals(MpaaRating.NC_17, MpaaRating.fromLabel("nc-17"));
+        assertEquals(Freshness.ROTTEN, Freshness.fromLabel("Rotten"));
+
+        RTMovie movie = new RTMovie();
+        movie.setMpaaRating("X");
+        assertEquals("Wrong MPAA rating", MpaaRating.UNKNOWN, movie.getMpaaRatingType());
+        assertEquals("Unknown rating should be kept", "X", movie.getMpaaRating());
+        movie.setMpaaRating(null);
+        assertNull("Missing rating should be null", movie.getMpaaRating());
+
+        Review review = new Review();
+        review.setFreshness("stale");
+        assertEquals("Wrong freshness", Freshness.UNKNOWN, review.getFreshnessType());
+        assertEquals("Unknown freshness should be kept", "stale", review.getFreshness());
+    }
+
+    /**
+     * The lookups should not depend on the default locale, Turkish has a
+     * different upper case for 'i'
+     */
+    @Test
+    public void testLabelsIgnoreLocale() {
+        Locale original = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            assertEquals(RatingLabel.CERTIFIED_FRESH, RatingLabel.fromLabel("certified fresh"));
+            assertEquals(MpaaRating.UNRATED, MpaaRating.fromLabel("UNRATED"));
+            assertEquals(Freshness.FRESH, Freshness.fromLabel("FRESH"));
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+}
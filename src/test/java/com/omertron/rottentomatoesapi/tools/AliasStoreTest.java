@@ -0,0 +1,127 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import com.omertron.rottentomatoesapi.TestLogger;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AliasStoreTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AliasStoreTest.class);
+    private static final int ALIASES = 100000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestLogger.configure("INFO");
+    }
+
+    @Test
+    public void testParseImdbId() {
+        LOG.info("testParseImdbId");
+        assertEquals("Wrong ID", 133093, AliasStore.parseImdbId("tt0133093"));
+        assertEquals("Wrong ID", 133093, AliasStore.parseImdbId("TT0133093"));
+        assertEquals("Wrong ID", 133093, AliasStore.parseImdbId("0133093"));
+        assertEquals("Missing digits", AliasStore.UNKNOWN, AliasStore.parseImdbId("tt"));
+        assertEquals("Bad digits", AliasStore.UNKNOWN, AliasStore.parseImdbId("tt01x3093"));
+        assertEquals("Zero is not an ID", AliasStore.UNKNOWN, AliasStore.parseImdbId("tt0000000"));
+        assertEquals("Too long", AliasStore.UNKNOWN, AliasStore.parseImdbId("tt12345678901"));
+        assertEquals("Wrong format", "tt0133093", AliasStore.formatImdbId(133093));
+        assertEquals("Wrong format", "tt10872600", AliasStore.formatImdbId(10872600));
+    }
+
+    /**
+     * Matches and misses should be held and replaced
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testInMemory() throws IOException {
+        LOG.info("testInMemory");
+        AliasStore store = new AliasStore();
+        for (int imdbId = 1; imdbId <= ALIASES; imdbId++) {
+            store.put(imdbId, imdbId % 10 == 0 ? AliasStore.NO_MATCH : imdbId + 7);
+        }
+
+        assertEquals("Wrong size", ALIASES, store.size());
+        assertEquals("Wrong match count", ALIASES - ALIASES / 10, store.getMatchCount());
+        assertEquals("Wrong alias", 1008, store.get(1001));
+        assertEquals("Wrong alias", 12352, store.get(12345));
+        assertEquals("Miss should be held", AliasStore.NO_MATCH, store.get(12340));
+        assertTrue("Miss should be held", store.contains(12340));
+        assertEquals("Unknown ID", AliasStore.UNKNOWN, store.get(ALIASES + 1));
+        assertFalse("Unknown ID", store.contains(ALIASES + 1));
+
+        store.put(12340, 99);
+        assertEquals("Miss should be replaced", 99, store.get(12340));
+        assertEquals("Wrong match count", ALIASES - ALIASES / 10 + 1, store.getMatchCount());
+    }
+
+    /**
+     * The mappings should be read back from the file, dropping a partly
+     * written record
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testPersistence() throws IOException {
+        LOG.info("testPersistence");
+        File file = new File(folder.getRoot(), "aliases.dat");
+        try (AliasStore store = new AliasStore(file)) {
+            for (int imdbId = 1; imdbId <= ALIASES; imdbId++) {
+                store.put(imdbId, imdbId % 10 == 0 ? AliasStore.NO_MATCH : imdbId + 7);
+            }
+            store.put(5, 55);
+        }
+        LOG.info("{} aliases take {} bytes", ALIASES, file.length());
+
+        // Half a record, as if the process stopped part way through a write
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length());
+            raf.writeInt(123);
+        }
+
+        try (AliasStore store = new AliasStore(file)) {
+            assertEquals("Wrong size", ALIASES, store.size());
+            assertEquals("Wrong alias", 12352, store.get(12345));
+            assertEquals("Later record should win", 55, store.get(5));
+            assertEquals("Miss should be kept", AliasStore.NO_MATCH, store.get(ALIASES));
+            store.put(ALIASES + 1, 1);
+        }
+        assertEquals("Partial record should be dropped", 4 + (ALIASES + 2) * 8, file.length());
+
+        try (AliasStore store = new AliasStore(file)) {
+            assertEquals("New alias should be kept", 1, store.get(ALIASES + 1));
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import com.omertron.rottentomatoesapi.RottenTomatoesApi;
+import com.omertron.rottentomatoesapi.StandInServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DiskCacheTest {
+
+    private static final String KEY = "v1.0/movies/1";
+    private static final String JSON = "{\"id\":1,\"title\":\"On Disk\"}";
+    private static final int SEGMENT_BYTES = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Responses should still be there after the cache is reopened
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSurvivesRestart() throws IOException {
+        File dir = folder.newFolder();
+        DiskCache cache = new DiskCache(dir);
+        cache.put(KEY, EndpointFamily.MOVIE_INFO, JSON);
+        assertEquals("Value not returned", JSON, cache.get(KEY));
+        cache.close();
+
+        cache = new DiskCache(dir);
+        try {
+            assertEquals("Value not loaded", JSON, cache.get(KEY));
+            assertNull("Unknown key should miss", cache.get("v1.0/movies/2"));
+            assertEquals("Wrong hit count", 1, cache.getHitCount());
+            assertEquals("Wrong miss count", 1, cache.getMissCount());
+        } finally {
+            cache.close();
+        }
+    }
+
+    /**
+     * A record left half written should be discarded without losing the
+     * records before it
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testCrashRecovery() throws IOException {
+        File dir = folder.newFolder();
+        DiskCache cache = new DiskCache(dir);
+        cache.put(KEY, EndpointFamily.MOVIE_INFO, JSON);
+        cache.put("v1.0/movies/2", EndpointFamily.MOVIE_INFO, "{\"id\":2}");
+        cache.close();
+
+        File segment = dir.listFiles()[0];
+        long goodLength = segment.length();
+        RandomAccessFile file = new RandomAccessFile(segment, "rw");
+        try {
+            // Chop the end off the last record and add some junk
+            file.setLength(goodLength - 3);
+            file.seek(goodLength - 3);
+            file.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        } finally {
+            file.close();
+        }
+
+        cache = new DiskCache(dir);
+        try {
+            assertEquals("Good record lost", JSON, cache.get(KEY));
+            assertNull("Broken record should be discarded", cache.get("v1.0/movies/2"));
+            assertTrue("Segment was not truncated", segment.length() < goodLength);
+            cache.put("v1.0/movies/3", EndpointFamily.MOVIE_INFO, "{\"id\":3}");
+        } finally {
+            cache.close();
+        }
+
+        cache = new DiskCache(dir);
+        try {
+            assertEquals("Record after recovery lost", "{\"id\":3}", cache.get("v1.0/movies/3"));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        DiskCache cache = new DiskCache(folder.newFolder());
+        try {
+            cache.setTtl(EndpointFamily.BOX_OFFICE, 50, TimeUnit.MILLISECONDS);
+            cache.setTtl(EndpointFamily.SEARCH, 0, TimeUnit.MILLISECONDS);
+            cache.put(KEY, EndpointFamily.BOX_OFFICE, JSON);
+            cache.put("search", EndpointFamily.SEARCH, JSON);
+            assertEquals("Value should be cached", JSON, cache.get(KEY));
+            assertNull("Family with no TTL should not be cached", cache.get("search"));
+
+            Thread.sleep(100);
+            assertNull("Value should have expired", cache.get(KEY));
+            assertEquals("Wrong expired count", 1, cache.getExpiredCount());
+        } finally {
+            cache.close();
+        }
+    }
+
+    /**
+     * A rewrite that has expired by the time the cache reopens should hide
+     * the older record it replaced
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testExpiredRewriteHidesOlderRecord() throws Exception {
+        File directory = folder.newFolder();
+        DiskCache cache = new DiskCache(directory);
+        try {
+            cache.setTtl(EndpointFamily.MOVIE_INFO, 1, TimeUnit.HOURS);
+            cache.setTtl(EndpointFamily.BOX_OFFICE, 50, TimeUnit.MILLISECONDS);
+            cache.put(KEY, EndpointFamily.MOVIE_INFO, "{\"old\":true}");
+            cache.put(KEY, EndpointFamily.BOX_OFFICE, JSON);
+        } finally {
+            cache.close();
+        }
+
+        Thread.sleep(100);
+        cache = new DiskCache(directory);
+        try {
+            assertNull("Older record should not outlive its replacement", cache.get(KEY));
+            assertEquals("Wrong cache size", 0, cache.size());
+        } finally {
+            cache.close();
+        }
+    }
+
+    /**
+     * Overwriting the same keys should leave dead segments that are compacted
+     * away
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testCompaction() throws IOException {
+        File dir = folder.newFolder();
+        DiskCache cache = new DiskCache(dir, 1024 * 1024, SEGMENT_BYTES);
+        try {
+            for (int round = 0; round < 50; round++) {
+                for (int i = 0; i < 10; i++) {
+                    cache.put("key" + i, EndpointFamily.MOVIE_INFO, "{\"id\":" + i + ",\"round\":" + round + "}");
+                }
+            }
+            // Compaction may already have run in the background
+            cache.compact();
+
+            assertTrue("Dead segments were not compacted: " + cache.getTotalBytes(), cache.getTotalBytes() < SEGMENT_BYTES * 2);
+            assertTrue("Compaction count not recorded", cache.getCompactionCount() > 0);
+            for (int i = 0; i < 10; i++) {
+                assertEquals("Wrong value after compaction", "{\"id\":" + i + ",\"round\":49}", cache.get("key" + i));
+            }
+        } finally {
+            cache.close();
+        }
+
+        cache = new DiskCache(dir, 1024 * 1024, SEGMENT_BYTES);
+        try {
+            assertEquals("Wrong number of keys after reopening", 10, cache.size());
+            assertEquals("Wrong value after reopening", "{\"id\":5,\"round\":49}", cache.get("key5"));
+        } finally {
+            cache.close();
+        }
+    }
+
+    /**
+     * The oldest segments should be dropped to stay within the size limit
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSizeLimit() throws IOException {
+        DiskCache cache = new DiskCache(folder.newFolder(), SEGMENT_BYTES * 3, SEGMENT_BYTES);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                cache.put("key" + i, EndpointFamily.MOVIE_INFO, "{\"id\":" + i + "}");
+                assertTrue("Cache grew past its limit: " + cache.getTotalBytes(), cache.getTotalBytes() <= SEGMENT_BYTES * 3);
+            }
+            assertNull("Oldest value should be dropped", cache.get("key0"));
+            assertEquals("Newest value should be cached", "{\"id\":999}", cache.get("key999"));
+        } finally {
+            cache.close();
+        }
+    }
+
+    /**
+     * A new API instance should be answered from the disk cache written by a
+     * previous one
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testApiUsesDiskCache() throws Exception {
+        File dir = folder.newFolder();
+        StandInServer server = new StandInServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                StandInServer.sendJson(exchange, 200, JSON);
+            }
+        });
+        CloseableHttpClient httpClient = server.createHttpClient();
+        try {
+            DiskCache cache = new DiskCache(dir);
+            RottenTomatoesApi rt = new RottenTomatoesApi("disk-cache-test-key", httpClient);
+            rt.setDiskCache(cache);
+            assertEquals("Wrong movie", "On Disk", rt.getDetailedInfo(1).getTitle());
+            cache.close();
+
+            cache = new DiskCache(dir);
+            rt = new RottenTomatoesApi("disk-cache-test-key", httpClient);
+            rt.setDiskCache(cache);
+            assertEquals("Wrong movie", "On Disk", rt.getDetailedInfo(1).getTitle());
+            cache.close();
+
+            assertEquals("Wrong number of requests", 1, server.getRequestCount());
+        } finally {
+            httpClient.close();
+            server.stop();
+        }
+    }
+}
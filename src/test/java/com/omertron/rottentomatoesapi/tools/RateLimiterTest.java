@@ -0,0 +1,95 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import com.omertron.rottentomatoesapi.TestLogger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimiterTest.class);
+    private static final double QPS = 20.0;
+    private static final int THREADS = 4;
+    private static final int CALLS_PER_THREAD = 5;
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestLogger.configure("INFO");
+    }
+
+    /**
+     * Calls from several threads should be spread out at the permitted rate
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void testSharedPacing() throws InterruptedException {
+        LOG.info("testSharedPacing");
+        final RateLimiter limiter = new RateLimiter(QPS);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < THREADS; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    limiter.acquire();
+                }
+            }));
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOG.info("{} took {}ms", limiter, elapsed);
+
+        int calls = THREADS * CALLS_PER_THREAD;
+        // The first call is free, the rest are spaced by the interval
+        long minimum = (long) ((calls - 1) * 1000 / QPS);
+        assertEquals("Wrong number of calls", calls, limiter.getAcquireCount());
+        assertTrue("Calls were not paced: " + elapsed + "ms", elapsed >= minimum - 20);
+        assertTrue("Waits were not recorded", limiter.getWaitCount() >= calls - 1);
+        assertTrue("Wait time was not recorded", limiter.getTotalWaitMillis() > 0);
+    }
+
+    /**
+     * A full bucket should allow a burst of calls without waiting
+     */
+    @Test
+    public void testBurst() {
+        LOG.info("testBurst");
+        RateLimiter limiter = new RateLimiter(1.0, 3);
+        assertEquals("First call should not wait", 0, limiter.reserve());
+        assertEquals("Second call should not wait", 0, limiter.reserve());
+        assertEquals("Third call should not wait", 0, limiter.reserve());
+        assertTrue("Fourth call should wait", limiter.reserve() > 0);
+        assertEquals("Wrong wait count", 1, limiter.getWaitCount());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseBodyTest {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final byte[] JSON = "{\"title\":\"Known\"}".getBytes(UTF8);
+
+    @Test
+    public void testDeflateWrappers() throws IOException {
+        assertArrayEquals("Wrong zlib body", JSON, read("deflate", deflate(false)));
+        assertArrayEquals("Wrong raw body", JSON, read("deflate", deflate(true)));
+    }
+
+    /**
+     * A raw stream can start with a byte that looks like a zlib method, only
+     * the header check tells them apart
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testRawStreamWithZlibMethod() throws IOException {
+        // A stored block with padding bits set, then an empty final block
+        byte[] raw = new byte[JSON.length + 10];
+        raw[0] = 0x08;
+        raw[1] = (byte) JSON.length;
+        raw[2] = 0;
+        raw[3] = (byte) ~JSON.length;
+        raw[4] = (byte) 0xFF;
+        System.arraycopy(JSON, 0, raw, 5, JSON.length);
+        int end = 5 + JSON.length;
+        raw[end] = 0x01;
+        raw[end + 1] = 0;
+        raw[end + 2] = 0;
+        raw[end + 3] = (byte) 0xFF;
+        raw[end + 4] = (byte) 0xFF;
+        assertTrue("Test data should not be a zlib header", ((raw[0] << 8) | raw[1]) % 31 != 0);
+        assertArrayEquals("Wrong body", JSON, read("deflate", raw));
+    }
+
+    /**
+     * The encoding should match whatever the default locale, Turkish lower
+     * cases 'I' without the dot
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testEncodingIgnoresLocale() throws IOException {
+        Locale original = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            assertArrayEquals("Wrong body", JSON, read("GZIP", gzip()));
+            assertArrayEquals("Wrong body", JSON, read(" Identity ", JSON));
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+
+    private static byte[] read(String encoding, byte[] body) throws IOException {
+        try (ResponseBody in = ResponseBody.open(new ByteArrayInputStream(body), encoding, new TransferMetrics())) {
+            return in.readAll();
+        }
+    }
+
+    private static byte[] deflate(boolean raw) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new DeflaterOutputStream(bytes, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            out.write(JSON);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gzip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(JSON);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import com.omertron.rottentomatoesapi.RottenTomatoesApi;
+import com.omertron.rottentomatoesapi.StandInServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseCacheTest {
+
+    private static final String KEY = "v1.0/movies/1";
+
+    @Test
+    public void testHitAndMiss() {
+        ResponseCache cache = new ResponseCache();
+        assertNull("Empty cache should miss", cache.get(KEY));
+        Object value = new Object();
+        cache.put(KEY, EndpointFamily.MOVIE_INFO, value);
+        assertSame("Cached value not returned", value, cache.get(KEY));
+        assertEquals("Wrong hit count", 1, cache.getHitCount());
+        assertEquals("Wrong miss count", 1, cache.getMissCount());
+    }
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+        ResponseCache cache = new ResponseCache();
+        cache.setTtl(EndpointFamily.BOX_OFFICE, 50, TimeUnit.MILLISECONDS);
+        cache.setTtl(EndpointFamily.SEARCH, 0, TimeUnit.MILLISECONDS);
+        cache.put(KEY, EndpointFamily.BOX_OFFICE, "box office");
+        cache.put("search", EndpointFamily.SEARCH, "search");
+        assertNotNull("Value should be cached", cache.get(KEY));
+        assertNull("Family with no TTL should not be cached", cache.get("search"));
+
+        Thread.sleep(100);
+        assertNull("Value should have expired", cache.get(KEY));
+        assertEquals("Wrong expired count", 1, cache.getExpiredCount());
+    }
+
+    @Test
+    public void testEviction() {
+        ResponseCache cache = new ResponseCache(10);
+        for (int i = 0; i < 10; i++) {
+            cache.put("key" + i, EndpointFamily.MOVIE_INFO, i);
+        }
+        // Reading the first entry gives it a second chance
+        assertNotNull("Value should be cached", cache.get("key0"));
+
+        for (int i = 10; i < 100; i++) {
+            cache.put("key" + i, EndpointFamily.MOVIE_INFO, i);
+            assertTrue("Cache grew past its size: " + cache.size(), cache.size() <= 10);
+        }
+        assertEquals("Wrong eviction count", 90, cache.getEvictionCount());
+        assertNull("Unused entry should be evicted", cache.get("key1"));
+        assertNotNull("Newest entry should be cached", cache.get("key99"));
+    }
+
+    @Test
+    public void testInvalidateKeepsQueueBounded() {
+        ResponseCache cache = new ResponseCache(10);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(KEY, EndpointFamily.MOVIE_INFO, i);
+            cache.invalidate(KEY);
+        }
+        cache.put(KEY, EndpointFamily.MOVIE_INFO, 1000);
+        assertEquals("Wrong cache size", 1, cache.size());
+        assertEquals("Invalidated keys were left queued", 1, cache.getQueueLength());
+    }
+
+    @Test
+    public void testEndpointFamily() {
+        assertEquals(EndpointFamily.BOX_OFFICE, EndpointFamily.fromUrl("/lists/movies/box_office"));
+        assertEquals(EndpointFamily.LISTS, EndpointFamily.fromUrl("/lists/dvds/new_releases"));
+        assertEquals(EndpointFamily.DIRECTORY, EndpointFamily.fromUrl("/lists"));
+        assertEquals(EndpointFamily.DIRECTORY, EndpointFamily.fromUrl("/lists/movies"));
+        assertEquals(EndpointFamily.MOVIE_INFO, EndpointFamily.fromUrl("/movies/{movie-id}"));
+        assertEquals(EndpointFamily.MOVIE_CAST, EndpointFamily.fromUrl("/movies/{movie-id}/cast"));
+        assertEquals(EndpointFamily.MOVIE_REVIEWS, EndpointFamily.fromUrl("/movies/{movie-id}/reviews"));
+        assertEquals(EndpointFamily.MOVIE_ALIAS, EndpointFamily.fromUrl("/movie_alias"));
+        assertEquals(EndpointFamily.SEARCH, EndpointFamily.fromUrl("/movies"));
+    }
+
+    /**
+     * Repeated calls through the API should only reach the server once
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testApiUsesCache() throws Exception {
+        StandInServer server = new StandInServer(new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                StandInServer.sendJson(exchange, 200, "{\"id\":1,\"title\":\"Cached\",\"movies\":[{\"id\":2}]}");
+            }
+        });
+        CloseableHttpClient httpClient = server.createHttpClient();
+        try {
+            RottenTomatoesApi rt = new RottenTomatoesApi("cache-test-key", httpClient);
+            ResponseCache cache = new ResponseCache();
+            rt.setResponseCache(cache);
+
+            for (int i = 0; i < 5; i++) {
+                assertEquals("Wrong movie", "Cached", rt.getDetailedInfo(1).getTitle());
+                assertEquals("Wrong list", 1, rt.getBoxOffice("us", 10).size());
+            }
+            // Different parameters are a different request
+            rt.getBoxOffice("us", 20);
+
+            assertEquals("Wrong number of requests", 3, server.getRequestCount());
+            assertEquals("Wrong hit count", 8, cache.getHitCount());
+            assertEquals("Wrong miss count", 3, cache.getMissCount());
+        } finally {
+            httpClient.close();
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void testExponentialBackoff() {
+        RetryPolicy policy = new ExponentialBackoffPolicy(100, 1000, 10);
+        assertEquals("Wrong first delay", 100, policy.getDelay(1, 0));
+        assertEquals("Wrong second delay", 200, policy.getDelay(2, 100));
+        assertEquals("Wrong third delay", 400, policy.getDelay(3, 200));
+        assertEquals("Delay not capped", 1000, policy.getDelay(5, 800));
+        assertEquals("Delay not capped", 1000, policy.getDelay(100, 1000));
+    }
+
+    @Test
+    public void testDecorrelatedJitter() {
+        RetryPolicy policy = new DecorrelatedJitterPolicy(100, 2000, 10);
+        long delay = 0;
+        boolean varied = false;
+        long first = policy.getDelay(1, 0);
+        for (int retry = 1; retry <= 1000; retry++) {
+            long previous = delay;
+            delay = policy.getDelay(retry, previous);
+            assertTrue("Delay below base: " + delay, delay >= 100);
+            assertTrue("Delay above cap: " + delay, delay <= 2000);
+            assertTrue("Delay grew too fast: " + delay, delay <= Math.max(100, previous) * 3);
+            varied |= retry > 1 && delay != first;
+        }
+        assertTrue("Delays should be random", varied);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *      Copyright (c) 2004-2016 Stuart Boston
+ *
+ *      This file is part of the RottenTomatoes API.
+ *
+ *      The RottenTomatoes API is free software: you can redistribute it and/or modify
+ *      it under the terms of the GNU General Public License as published by
+ *      the Free Software Foundation, either version 3 of the License, or
+ *      any later version.
+ *
+ *      The RottenTomatoes API is distributed in the hope that it will be useful,
+ *      but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *      MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *      GNU General Public License for more details.
+ *
+ *      You should have received a copy of the GNU General Public License
+ *      along with the RottenTomatoes API.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package com.omertron.rottentomatoesapi.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.omertron.rottentomatoesapi.model.RTMovie;
+import com.omertron.rottentomatoesapi.model.Review;
+import com.omertron.rottentomatoesapi.wrapper.WrapperLists;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UnknownPropertiesTest {
+
+    private static final String MOVIE = "{\"id\":7,\"new_field\":{\"nested\":[1,2,{\"deep\":\"value\"}]},\"title\":\"Known\","
+            + "\"alternate_ids\":{\"imdb\":\"0000007\"},\"another\":\"text\",\"year\":2016}";
+    private static final String REVIEWS = "{\"reviews\":[{\"critic\":\"A\",\"top_critic\":true},{\"critic\":\"B\",\"top_critic\":false}]}";
+
+    @After
+    public void tearDown() {
+        UnknownProperties.setTelemetryEnabled(false);
+        UnknownProperties.reset();
+    }
+
+    /**
+     * Unknown values should be skipped and the known ones around them mapped
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSkipped() throws IOException {
+        RTMovie movie = JsonReaders.standard().forType(RTMovie.class).readValue(MOVIE);
+        assertEquals("Wrong ID", 7, movie.getId());
+        assertEquals("Wrong title", "Known", movie.getTitle());
+        assertEquals("Wrong year", 2016, movie.getYear());
+        assertEquals("Wrong IMDB ID", "0000007", movie.getAlternateIds().get("imdb"));
+        assertTrue("Counts should not be kept by default", UnknownProperties.getAllCounts().isEmpty());
+    }
+
+    /**
+     * The models should read with a mapper that does not have the handler
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testPlainMapper() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        RTMovie movie = mapper.readValue(MOVIE, RTMovie.class);
+        assertEquals("Wrong ID", 7, movie.getId());
+        assertEquals("Wrong title", "Known", movie.getTitle());
+        assertEquals("Wrong year", 2016, movie.getYear());
+
+        WrapperLists wrapper = mapper.readValue(REVIEWS, WrapperLists.class);
+        assertEquals("Wrong number of reviews", 2, wrapper.getReviews().size());
+    }
+
+    @Test
+    public void testTelemetry() throws IOException {
+        UnknownProperties.setTelemetryEnabled(true);
+        JsonReaders.standard().forType(RTMovie.class).readValue(MOVIE);
+        JsonReaders.afterburner().forType(RTMovie.class).readValue(MOVIE);
+        JsonReaders.standard().forType(WrapperLists.class).readValue(REVIEWS);
+
+        Map<String, Long> movieCounts = UnknownProperties.getCounts(RTMovie.class);
+        assertEquals("Wrong movie counts: " + movieCounts, 2, movieCounts.size());
+        assertEquals("Wrong count", Long.valueOf(2), movieCounts.get("new_field"));
+        assertEquals("Wrong count", Long.valueOf(2), movieCounts.get("another"));
+        assertEquals("Wrong review count", Long.valueOf(2), UnknownProperties.getCounts(Review.class).get("top_critic"));
+        assertTrue("Wrapper had no unknown properties", UnknownProperties.getCounts(WrapperLists.class).isEmpty());
+    }
+
+    /**
+     * Skipping a large unknown value should not allocate anything for it
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSkippingDoesNotAllocate() throws IOException {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+
+        StringBuilder large = new StringBuilder("{\"id\":1,\"extra\":[");
+        for (int i = 0; i < 500; i++) {
+            large.append(i == 0 ? "" : ",").append("{\"key\":\"value number ").append(i).append("\",\"n\":").append(i).append('}');
+        }
+        byte[] withUnknown = large.append("],\"title\":\"T\"}").toString().getBytes("UTF-8");
+        byte[] withoutUnknown = "{\"id\":1,\"title\":\"T\"}".getBytes("UTF-8");
+
+        ObjectReader reader = JsonReaders.standard().forType(RTMovie.class);
+        long plain = allocated(threadBean, reader, withoutUnknown);
+        long skipped = allocated(threadBean, reader, withUnknown);
+        // Mapping the skipped values would allocate several times their size
+        assertTrue("Skipping allocated " + (skipped - plain) + " extra bytes", skipped - plain < withUnknown.length);
+    }
+
+    private static long allocated(com.sun.management.ThreadMXBean threadBean, ObjectReader reader, byte[] json) throws IOException {
+        for (int i = 0; i < 200; i++) {
+            reader.readValue(json);
+        }
+        long before = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < 100; i++) {
+            reader.readValue(json);
+        }
+        return (threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - before) / 100;
+    }
+}